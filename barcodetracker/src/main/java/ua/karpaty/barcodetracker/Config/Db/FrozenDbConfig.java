@@ -1,18 +1,23 @@
 package ua.karpaty.barcodetracker.Config.Db;
 
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.community.dialect.SQLiteDialect;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.orm.jpa.EntityManagerFactoryBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 import javax.sql.DataSource;
+import java.util.Map;
 
 @Configuration
 @EnableTransactionManagement
@@ -30,10 +35,60 @@ public class FrozenDbConfig {
         return new DataSourceProperties();
     }
 
-    // 2. Створюємо саме джерело даних (DataSource)
+    // 2. Два пули з'єднань до одного файлу SQLite у режимі WAL:
+    //    - записувач з одним з'єднанням: SQLite все одно допускає лише одного записувача,
+    //      тож записи стають у чергу пулу, а не отримують SQLITE_BUSY;
+    //    - читачі: у WAL вони не блокуються записом і читають паралельно.
+    @Bean(destroyMethod = "close")
+    public HikariDataSource frozenWriterDataSource(
+            @Qualifier("frozenDataSourceProperties") DataSourceProperties properties,
+            @Value("${bct.frozen.writer-timeout-ms:60000}") long writerTimeoutMs,
+            @Value("${bct.frozen.busy-timeout-ms:10000}") int busyTimeoutMs,
+            @Value("${bct.frozen.cache-size-kb:16384}") int cacheSizeKb,
+            @Value("${bct.frozen.mmap-size:268435456}") long mmapSize) {
+        HikariDataSource dataSource = createSqlitePool(properties, busyTimeoutMs, cacheSizeKb, mmapSize);
+        dataSource.setPoolName("frozen-writer");
+        dataSource.setMaximumPoolSize(1);
+        // Довгий імпорт тримає записувача; інші записи чекають, а не падають
+        dataSource.setConnectionTimeout(writerTimeoutMs);
+        return dataSource;
+    }
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource frozenReaderDataSource(
+            @Qualifier("frozenDataSourceProperties") DataSourceProperties properties,
+            @Value("${bct.frozen.reader-pool-size:4}") int readerPoolSize,
+            @Value("${bct.frozen.busy-timeout-ms:10000}") int busyTimeoutMs,
+            @Value("${bct.frozen.cache-size-kb:16384}") int cacheSizeKb,
+            @Value("${bct.frozen.mmap-size:268435456}") long mmapSize) {
+        HikariDataSource dataSource = createSqlitePool(properties, busyTimeoutMs, cacheSizeKb, mmapSize);
+        dataSource.setPoolName("frozen-reader");
+        dataSource.setMaximumPoolSize(readerPoolSize);
+        dataSource.setMinimumIdle(1);
+        return dataSource;
+    }
+
+    // Транзакції з readOnly = true отримують з'єднання читача, решта - записувача.
+    // З'єднання береться ліниво, на першому запиті, коли прапорець readOnly вже відомий.
     @Bean
-    public DataSource frozenDataSource(@Qualifier("frozenDataSourceProperties") DataSourceProperties properties) {
-        return properties.initializeDataSourceBuilder().build();
+    public DataSource frozenDataSource(@Qualifier("frozenWriterDataSource") DataSource writer,
+                                       @Qualifier("frozenReaderDataSource") DataSource reader) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(writer);
+        dataSource.setReadOnlyDataSource(reader);
+        return dataSource;
+    }
+
+    private static HikariDataSource createSqlitePool(DataSourceProperties properties, int busyTimeoutMs,
+                                                     int cacheSizeKb, long mmapSize) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        // PRAGMA-параметри драйвер sqlite-jdbc застосовує до кожного нового з'єднання
+        dataSource.addDataSourceProperty("journal_mode", "WAL");
+        dataSource.addDataSourceProperty("synchronous", "NORMAL");
+        dataSource.addDataSourceProperty("busy_timeout", String.valueOf(busyTimeoutMs));
+        dataSource.addDataSourceProperty("cache_size", String.valueOf(-cacheSizeKb));
+        dataSource.addDataSourceProperty("temp_store", "MEMORY");
+        dataSource.setConnectionInitSql("PRAGMA mmap_size = " + mmapSize);
+        return dataSource;
     }
 
     // 3. Створюємо EntityManager, який буде працювати з нашими "замороженими" Entity
@@ -44,6 +99,7 @@ public class FrozenDbConfig {
         return builder
                 .dataSource(dataSource)
                 .packages("ua.karpaty.barcodetracker.Entity.Frozen") // Сканувати Entity ТІЛЬКИ в цій папці
+                .properties(Map.of("hibernate.dialect", SQLiteDialect.class.getName()))
                 .persistenceUnit("frozen")
                 .build();
     }
@@ -0,0 +1,67 @@
+package ua.karpaty.barcodetracker.Config.Db;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Заповнює колонки rack/bay/excess для рядків, збережених до їх появи.
+ * Розбір location повторює Barcode.syncLocationParts: нижній регістр,
+ * необов'язковий префікс "excess", далі стелаж і (якщо є) останнє слово як проліт.
+ * Працює пачками, щоб не тримати одну велику транзакцію на всю таблицю.
+ */
+@Slf4j
+@Component
+public class LocationColumnsBackfill implements ApplicationRunner {
+
+    private static final int BATCH_SIZE = 50_000;
+
+    private static final String BACKFILL_SQL = """
+            WITH src AS (
+                SELECT id, lower(regexp_replace(btrim(location), '\\s+', ' ', 'g')) AS loc
+                FROM barcode
+                WHERE rack IS NULL AND location IS NOT NULL AND btrim(location) <> ''
+                LIMIT ?
+            ), parts AS (
+                SELECT id,
+                       loc LIKE 'excess %' AS excess,
+                       CASE WHEN loc LIKE 'excess %' THEN substr(loc, 8) ELSE loc END AS rest
+                FROM src
+            )
+            UPDATE barcode b
+            SET excess = p.excess,
+                rack = split_part(p.rest, ' ', 1),
+                bay = CASE WHEN p.rest LIKE '% %' THEN regexp_replace(p.rest, '^.* ', '') END
+            FROM parts p
+            WHERE b.id = p.id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public LocationColumnsBackfill(@Qualifier("primaryDataSource") DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long startNanos = System.nanoTime();
+        long total = 0;
+        try {
+            int updated;
+            do {
+                updated = jdbcTemplate.update(BACKFILL_SQL, BATCH_SIZE);
+                total += updated;
+            } while (updated == BATCH_SIZE);
+        } catch (Exception e) {
+            log.warn("Could not backfill rack/bay columns: {}", e.getMessage());
+        }
+        if (total > 0) {
+            log.info("Backfilled rack/bay/excess for {} barcodes in {} ms", total, (System.nanoTime() - startNanos) / 1_000_000);
+        }
+    }
+}
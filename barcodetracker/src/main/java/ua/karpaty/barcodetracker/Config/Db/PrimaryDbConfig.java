@@ -3,6 +3,7 @@ package ua.karpaty.barcodetracker.Config.Db;
 // (Імпорти залишаються ті самі, що й минулого разу)
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.FilterType;
+import org.hibernate.dialect.PostgreSQLDialect;
 import ua.karpaty.barcodetracker.Entity.*;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
@@ -17,6 +18,7 @@ import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 import javax.sql.DataSource;
+import java.util.Map;
 
 @Configuration
 @EnableTransactionManagement
@@ -57,13 +59,19 @@ public class PrimaryDbConfig {
         return builder
                 .dataSource(dataSource)
                 .packages(
+                        ActivityEvent.class,
+                        ArchiveRun.class,
                         Barcode.class,
                         ImportBatch.class,
                         LocationHistory.class,
                         MaterialMaster.class,
+                        MonthlyStat.class,
                         StatusHistory.class,
                         User.class
                 )
+                // Діалект задано явно для кожної бази: глобальний spring.jpa.properties.hibernate.dialect
+                // потрапив би в обидві фабрики, а з SQLiteDialect послідовності стають таблицями
+                .properties(Map.of("hibernate.dialect", PostgreSQLDialect.class.getName()))
                 .persistenceUnit("primary")
                 .build();
     }
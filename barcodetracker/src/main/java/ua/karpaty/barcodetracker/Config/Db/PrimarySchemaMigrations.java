@@ -0,0 +1,67 @@
+package ua.karpaty.barcodetracker.Config.Db;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Версійні міграції основної бази з classpath:db/migration/primary (Flyway).
+ * Зараз вони ведуть набір індексів; таблиці й колонки як і раніше створює
+ * Hibernate (ddl-auto=update), тому міграції запускаються вже після нього,
+ * а не автоконфігурацією Spring Boot (spring.flyway.enabled=false).
+ * <p>
+ * База без історії міграцій (створена до їх появи) отримує базову версію 0,
+ * тож V1 на ній теж виконується - індекси створюються з IF NOT EXISTS.
+ * Помилка міграції зупиняє старт: інакше застосунок працював би на схемі, якої не очікує
+ * код (без обмежень, секцій чи таблиць пізніших версій).
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class PrimarySchemaMigrations implements ApplicationRunner {
+
+    static final String LOCATION = "classpath:db/migration/primary";
+
+    private final DataSource dataSource;
+
+    public PrimarySchemaMigrations(@Qualifier("primaryDataSource") DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long startNanos = System.nanoTime();
+        try {
+            MigrateResult result = migrate(dataSource);
+            log.info("Primary schema at version {}: {} migrations applied in {} ms",
+                    result.targetSchemaVersion != null ? result.targetSchemaVersion : result.initialSchemaVersion,
+                    result.migrationsExecuted, (System.nanoTime() - startNanos) / 1_000_000);
+        } catch (Exception e) {
+            throw new IllegalStateException("Міграція основної бази не вдалася: " + e.getMessage(), e);
+        }
+    }
+
+    public static MigrateResult migrate(DataSource dataSource) {
+        return Flyway.configure()
+                .dataSource(dataSource)
+                .locations(LOCATION)
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                // CREATE INDEX CONCURRENTLY виконується поза транзакцією, перевірки - у звичайному режимі
+                .mixed(true)
+                // Транзакційний advisory-lock Flyway тримає відкриту транзакцію на окремому з'єднанні,
+                // і CREATE INDEX CONCURRENTLY чекав би на неї вічно; сесійний lock цього не робить
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+    }
+}
@@ -0,0 +1,54 @@
+package ua.karpaty.barcodetracker.Config.Db;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Вирівнює послідовності (barcode_seq, location_history_seq, status_history_seq) з
+ * максимальним id у таблицях. Потрібно для баз, створених ще з IDENTITY-ключами:
+ * Hibernate створює нову послідовність з 1, і без цього кроку перші вставки
+ * конфліктували б з існуючими рядками. Якщо вирівняти не вдалося, застосунок не стартує:
+ * інакше помилка проявилася б лише на першому імпорті дублікатами ключів.
+ */
+@Slf4j
+@Component
+public class PrimarySequenceInitializer implements ApplicationRunner {
+
+    // послідовність -> таблиця
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "barcode_seq", "barcode",
+            "location_history_seq", "location_history",
+            "status_history_seq", "status_history"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PrimarySequenceInitializer(@Qualifier("primaryDataSource") DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        SEQUENCES.forEach((sequence, table) -> {
+            try {
+                // setval(max(id)) -> наступний nextval поверне max(id) + increment,
+                // а pooled-оптимізатор видасть id з діапазону (max(id), max(id) + increment]
+                Long value = jdbcTemplate.queryForObject(
+                        "SELECT setval('" + sequence + "', GREATEST(" +
+                                "(SELECT COALESCE(MAX(id), 1) FROM " + table + "), " +
+                                "(SELECT last_value FROM " + sequence + ")))",
+                        Long.class);
+                log.info("Sequence '{}' aligned with table '{}' at {}", sequence, table, value);
+            } catch (Exception e) {
+                throw new IllegalStateException("Не вдалося вирівняти послідовність '" + sequence + "' з таблицею '" + table + "'", e);
+            }
+        });
+    }
+}
@@ -0,0 +1,44 @@
+package ua.karpaty.barcodetracker.Config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ImportJobConfig {
+
+    // Обмежений пул для фонових імпортів: кілька робочих потоків + черга фіксованого розміру.
+    // Коли черга заповнена, нові файли відхиляються, а не накопичуються в пам'яті.
+    @Bean
+    public ThreadPoolTaskExecutor importJobExecutor(@Value("${bct.import.workers:2}") int workers,
+                                                    @Value("${bct.import.queue-capacity:20}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("import-job-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+
+    // Потоки для розбору CSV архіву (FrozenCsvParser). Запис у SQLite лишається
+    // в потоці задачі, тут лише розбір байтів. Якщо черга заповнена, шматок
+    // розбирає сам потік задачі.
+    @Bean
+    public ThreadPoolTaskExecutor frozenParseExecutor(@Value("${bct.frozen-import.parser-threads:0}") int threads) {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(poolSize * 4);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("frozen-parse-");
+        executor.initialize();
+        return executor;
+    }
+}
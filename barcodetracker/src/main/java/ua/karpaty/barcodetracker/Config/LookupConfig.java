@@ -0,0 +1,26 @@
+package ua.karpaty.barcodetracker.Config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class LookupConfig {
+
+    // Потоки для пошуку коду у frozen-базі паралельно з основною (BarcodeLookupService).
+    // Не більше за пул читачів SQLite; коли черга заповнена, запит виконує сам потік запиту.
+    @Bean
+    public ThreadPoolTaskExecutor frozenLookupExecutor(@Value("${bct.lookup.frozen-threads:2}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(threads * 8);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("frozen-lookup-");
+        executor.initialize();
+        return executor;
+    }
+}
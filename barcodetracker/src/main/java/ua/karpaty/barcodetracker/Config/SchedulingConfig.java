@@ -0,0 +1,10 @@
+package ua.karpaty.barcodetracker.Config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Періодичні задачі (звірка лічильників дашборду тощо)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
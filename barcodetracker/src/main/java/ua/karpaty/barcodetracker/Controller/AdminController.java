@@ -8,32 +8,27 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import org.springframework.web.servlet.view.RedirectView;
+import org.springframework.web.util.UriComponentsBuilder;
 import ua.karpaty.barcodetracker.Dto.*;
 import ua.karpaty.barcodetracker.Entity.*;
-import ua.karpaty.barcodetracker.Entity.Frozen.FrozenBarcode;
 import ua.karpaty.barcodetracker.Repository.BarcodeRepository;
 import ua.karpaty.barcodetracker.Repository.Frozen.FrozenBarcodeRepository;
 import ua.karpaty.barcodetracker.Repository.LocationHistoryRepository;
 import ua.karpaty.barcodetracker.Repository.MaterialMasterRepository;
 import ua.karpaty.barcodetracker.Repository.StatusHistoryRepository;
-import ua.karpaty.barcodetracker.Service.BarcodeService;
-import ua.karpaty.barcodetracker.Service.ExcelService;
-import ua.karpaty.barcodetracker.Service.FrozenDataService;
-import ua.karpaty.barcodetracker.Service.MaterialMasterService;
+import ua.karpaty.barcodetracker.Service.*;
 
 import java.util.*;
 import java.io.IOException;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 
 @Controller
@@ -41,11 +36,14 @@ import java.util.stream.Collectors;
 public class AdminController {
 
     private final BarcodeService barcodeService;
-    private final ExcelService excelService;
+    private final BarcodeImportService barcodeImportService;
+    private final BarcodeTransferService barcodeTransferService;
+    private final BarcodeDiscardService barcodeDiscardService;
+    private final ImportJobService importJobService;
     private final BarcodeRepository barcodeRepository;
     private final LocationHistoryRepository locationHistoryRepository;
     private final StatusHistoryRepository statusHistoryRepository;
-    private final Map<String, Integer> locationMap;
+    private final LocationLayoutService locationLayoutService;
 
     private final MaterialMasterService materialMasterService;
     private final MaterialMasterRepository materialMasterRepository;
@@ -56,26 +54,46 @@ public class AdminController {
 
     private final FrozenBarcodeRepository frozenBarcodeRepository;
 
+    private final KnownCodeFilter knownCodeFilter;
+
+    private final BarcodeArchiveService barcodeArchiveService;
+    private final ApnInventoryCache apnInventoryCache;
+    private final BarcodeLookupService barcodeLookupService;
+
     @Autowired
-    public AdminController(BarcodeService barcodeService, ExcelService excelService,
+    public AdminController(BarcodeService barcodeService, BarcodeImportService barcodeImportService,
+                           BarcodeTransferService barcodeTransferService,
+                           BarcodeDiscardService barcodeDiscardService,
+                           ImportJobService importJobService,
                            BarcodeRepository barcodeRepository,
                            LocationHistoryRepository locationHistoryRepository,
-                           StatusHistoryRepository statusHistoryRepository, Map<String, Integer> locationMap,
+                           StatusHistoryRepository statusHistoryRepository, LocationLayoutService locationLayoutService,
                            MaterialMasterService materialMasterService,
                            MaterialMasterRepository materialMasterRepository,
                            ObjectMapper objectMapper,
-                           FrozenDataService frozenDataService, FrozenBarcodeRepository frozenBarcodeRepository) {
+                           FrozenDataService frozenDataService, FrozenBarcodeRepository frozenBarcodeRepository,
+                           KnownCodeFilter knownCodeFilter,
+                           BarcodeArchiveService barcodeArchiveService,
+                           ApnInventoryCache apnInventoryCache,
+                           BarcodeLookupService barcodeLookupService) {
         this.barcodeService = barcodeService;
-        this.excelService = excelService;
+        this.barcodeImportService = barcodeImportService;
+        this.barcodeTransferService = barcodeTransferService;
+        this.barcodeDiscardService = barcodeDiscardService;
+        this.importJobService = importJobService;
         this.barcodeRepository = barcodeRepository;
         this.locationHistoryRepository = locationHistoryRepository;
         this.statusHistoryRepository = statusHistoryRepository;
-        this.locationMap = locationMap;
+        this.locationLayoutService = locationLayoutService;
         this.materialMasterService = materialMasterService;
         this.materialMasterRepository = materialMasterRepository;
         this.objectMapper = objectMapper;
         this.frozenDataService = frozenDataService;
         this.frozenBarcodeRepository = frozenBarcodeRepository;
+        this.knownCodeFilter = knownCodeFilter;
+        this.barcodeArchiveService = barcodeArchiveService;
+        this.apnInventoryCache = apnInventoryCache;
+        this.barcodeLookupService = barcodeLookupService;
     }
 
     @GetMapping("/")
@@ -103,6 +121,7 @@ public class AdminController {
             @RequestParam(required = false) String apn,
             @RequestParam(required = false) String rack,
             @RequestParam(required = false) String bay,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "50") int size,
             Model model) {
@@ -120,27 +139,27 @@ public class AdminController {
         model.addAttribute("rackQuery", currentRack);
         model.addAttribute("bayQuery", currentBay);
 
-        model.addAttribute("allRacks", barcodeService.getAllRacks());
-        model.addAttribute("allBays", barcodeService.getAllBays());
-        model.addAttribute("locationMap", this.locationMap);
+        // Одна версія схеми на всю сторінку, навіть якщо її саме зараз перезавантажують
+        LocationRegistry layout = locationLayoutService.current();
+        model.addAttribute("allRacks", layout.getRackNames());
+        model.addAttribute("allBays", layout.getBayNumbers());
+        model.addAttribute("locationMap", layout.getBayCounts());
 
         if (currentApn != null) {
-            Map<LocationDTO, List<Barcode>> materialLocations =
+            Map<LocationDTO, List<ApnInventoryItemDto>> materialLocations =
                     barcodeService.findMaterialByApnGroupedByLocation(currentApn);
             model.addAttribute("materialLocations", materialLocations);
-            model.addAttribute("warehousePage", Page.empty());
-            model.addAttribute("totalPages", 0);
-            model.addAttribute("currentPage", 0);
-            model.addAttribute("pageSize", size);
+            model.addAttribute("warehousePage", null);
 
         } else {
-            Pageable pageable = PageRequest.of(page, size);
-            Page<Barcode> warehousePage = barcodeService.findWarehouseView(currentRack, currentBay, pageable);
+            CursorPageDto<BarcodeListView> warehousePage = barcodeService.findWarehouseView(currentRack, currentBay, cursor, page, size);
 
             model.addAttribute("warehousePage", warehousePage);
-            model.addAttribute("totalPages", warehousePage.getTotalPages());
-            model.addAttribute("currentPage", warehousePage.getNumber());
-            model.addAttribute("pageSize", size);
+            model.addAttribute("pageBaseUrl", UriComponentsBuilder.fromPath("/warehouse")
+                    .queryParamIfPresent("rack", Optional.ofNullable(currentRack))
+                    .queryParamIfPresent("bay", Optional.ofNullable(currentBay))
+                    .queryParam("size", size)
+                    .encode().build().toUriString());
             model.addAttribute("materialLocations", Map.of());
         }
         return "admin/warehouse-view";
@@ -154,70 +173,11 @@ public class AdminController {
             return "redirect:/upload-new";
         }
         try {
-            List<Barcode> allBarcodes = excelService.parseExcel(file);
-            if (allBarcodes.isEmpty()) {
-                redirectAttributes.addFlashAttribute("error", "Файл порожній або не містить коректних даних.");
-                return "redirect:/upload-new";
-            }
-
-            // --- ОНОВЛЕНА ЛОГІКА: Збираємо пропущені коди ---
-
-            // 1. Збираємо коди з файлу (зберігаючи дублікати файлу)
-            List<String> codesFromFile = allBarcodes.stream()
-                    .map(Barcode::getCode)
-                    .collect(Collectors.toList());
-
-            // 2. Знаходимо всі коди, які ВЖЕ існують в "гарячій" (PostgreSQL) базі
-            List<Barcode> existingHotBarcodes = barcodeRepository.findByCodeIn(codesFromFile);
-            Set<String> hotCodesSet = existingHotBarcodes.stream()
-                    .map(Barcode::getCode)
-                    .collect(Collectors.toSet());
-
-            // 3. Знаходимо всі коди, які ВЖЕ існують в "замороженій" (SQLite) базі
-            List<FrozenBarcode> existingFrozenBarcodes = frozenBarcodeRepository.findByCodeIn(codesFromFile);
-            Set<String> frozenCodesSet = existingFrozenBarcodes.stream()
-                    .map(FrozenBarcode::getCode)
-                    .collect(Collectors.toSet());
-
-            // 4. Створюємо єдиний набір ВСІХ існуючих кодів
-            Set<String> allExistingCodes = new HashSet<>(hotCodesSet);
-            allExistingCodes.addAll(frozenCodesSet);
-
-            // 5. Розділяємо штрих-коди з файлу на два списки
-            List<Barcode> newBarcodes = new ArrayList<>();
-            List<String> skippedCodes = new ArrayList<>(); // <--- Новий список для помилок
-
-            Set<String> codesProcessed = new HashSet<>(); // Допоміжний сет, щоб уникнути дублікатів з самого файлу
-
-            for (Barcode barcode : allBarcodes) {
-                String code = barcode.getCode();
-                if (codesProcessed.add(code)) { // .add() поверне true, якщо код зустрічається ВПЕРШЕ
-                    if (allExistingCodes.contains(code)) {
-                        skippedCodes.add(code); // Код існує в БД
-                    } else {
-                        newBarcodes.add(barcode); // Код унікальний
-                    }
-                } else {
-                    // Цей код - дублікат ВЖЕ В САМОМУ ФАЙЛІ. Також додаємо до пропущених.
-                    skippedCodes.add(code + " (дублікат у файлі)");
-                }
-            }
-            // --- КІНЕЦЬ ОНОВЛЕНОЇ ЛОГІКИ ---
-
-            // Зберігаємо тільки нові, якщо вони є
-            if (!newBarcodes.isEmpty()) {
-                barcodeService.saveAll(newBarcodes);
-            }
-
-            // Передаємо повідомлення на сторінку
+            ImportBatch job = importJobService.submit(ImportJobType.NEW_BARCODES, null, file,
+                    barcodeImportService::importNewBarcodes);
             redirectAttributes.addFlashAttribute("message",
-                    "Файл успішно оброблено. Додано нових: " + newBarcodes.size() + ".");
-
-            if (!skippedCodes.isEmpty()) {
-                // Передаємо список пропущених кодів
-                redirectAttributes.addFlashAttribute("skippedCodes", skippedCodes);
-            }
-
+                    "Файл прийнято в обробку як " + job.getName() + ". Прогрес відображається нижче.");
+            redirectAttributes.addFlashAttribute("jobIds", List.of(job.getId()));
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", "Сталася помилка під час обробки файлу: " + e.getMessage());
             e.printStackTrace();
@@ -227,31 +187,33 @@ public class AdminController {
 
     @GetMapping("/import/{id}")
     public String showImportDetails(@PathVariable Long id,
+                                    @RequestParam(required = false) String cursor,
                                     @RequestParam(defaultValue = "0") int page,
                                     Model model) {
         int size = 50;
-        Pageable pageable = PageRequest.of(page, size, Sort.by("creationDate").descending());
-        Page<Barcode> barcodePage = barcodeService.findBarcodesByImportId(id, pageable);
+        CursorPageDto<BarcodeListView> barcodePage = barcodeService.findBarcodesByImportId(id, cursor, page, size);
 
         model.addAttribute("barcodes", barcodePage.getContent());
-        model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", barcodePage.getTotalPages());
+        model.addAttribute("pageData", barcodePage);
+        model.addAttribute("pageBaseUrl", "/import/" + id);
         model.addAttribute("importId", id);
         return "admin/import-details";
     }
 
     @GetMapping("/barcodes/download")
     public void downloadFilteredBarcodes(@RequestParam(value = "apn", required = false) String apn,
+                                         @RequestParam(value = "format", required = false) String format,
                                          HttpServletResponse response) throws IOException {
 
-        response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-        response.setHeader("Content-Disposition", "attachment; filename=STAVEXP.xlsx");
+        ExportFormat exportFormat = ExportFormat.fromParam(format);
+        response.setContentType(exportFormat.getContentType());
+        response.setHeader("Content-Disposition", "attachment; filename=" + exportFormat.fileName("STAVEXP"));
 
         try {
             if (apn != null && !apn.isEmpty()) {
-                barcodeService.streamBarcodesByApnToExcel(apn, response.getOutputStream());
+                barcodeService.exportBarcodesByApn(apn, exportFormat, response.getOutputStream());
             } else {
-                barcodeService.streamAllBarcodesToExcel(response.getOutputStream());
+                barcodeService.exportAllBarcodes(exportFormat, response.getOutputStream());
             }
         } catch (Exception e) {
             System.out.println("Помилка під час стрімінгу Excel-файлу");
@@ -261,7 +223,7 @@ public class AdminController {
 
     @GetMapping("/dashboard")
     public String getDashboard(Model model) {
-        List<Barcode> outdatedBarcodes = barcodeService.findTopOutdatedBarcodes(5);
+        List<BarcodeListView> outdatedBarcodes = barcodeService.findTopOutdatedBarcodes(5);
         model.addAttribute("stats", barcodeService.getDashboardStats());
         model.addAttribute("outdatedBarcodes", outdatedBarcodes);
         model.addAttribute("activityLog", barcodeService.getRecentActivities(5));
@@ -285,11 +247,12 @@ public class AdminController {
     }
 
     @GetMapping("/barcodes/download/outdated")
-    public void downloadOutdatedBarcodes(HttpServletResponse response) throws IOException {
-        List<Barcode> outdatedBarcodes = barcodeService.findAllOutdatedBarcodes();
-        response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-        response.setHeader("Content-Disposition", "attachment; filename=outdated-barcodes.xlsx");
-        ExcelService.exportToExcel(outdatedBarcodes, response.getOutputStream());
+    public void downloadOutdatedBarcodes(@RequestParam(value = "format", required = false) String format,
+                                         HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat = ExportFormat.fromParam(format);
+        response.setContentType(exportFormat.getContentType());
+        response.setHeader("Content-Disposition", "attachment; filename=" + exportFormat.fileName("outdated-barcodes"));
+        barcodeService.exportOutdatedBarcodes(exportFormat, response.getOutputStream());
     }
 
     @GetMapping("/barcodes/{id}")
@@ -302,7 +265,8 @@ public class AdminController {
         model.addAttribute("barcode", barcode);
         model.addAttribute("locationHistory", locationHistory);
         model.addAttribute("statusHistory", statusHistory);
-        model.addAttribute("locationMap", locationMap);
+        model.addAttribute("statuses", BarcodeStatus.values());
+        model.addAttribute("locationMap", locationLayoutService.current().getBayCounts());
 
         if (barcode.getApn() != null && !barcode.getApn().isEmpty()) {
             Optional<MaterialMaster> masterDataOpt = materialMasterRepository.findByApn(barcode.getApn());
@@ -321,18 +285,17 @@ public class AdminController {
 
         String trimmedCode = code.trim();
 
-        // 1. Пошук у "гарячій" (PostgreSQL) базі
-        Optional<Barcode> barcodeOpt = barcodeService.findByCode(trimmedCode);
-        if (barcodeOpt.isPresent()) {
-            // Знайдено в активній БД, переходимо на звичайну сторінку деталей
-            return "redirect:/barcodes/" + barcodeOpt.get().getId();
+        // Пошук одночасно в "гарячій" (PostgreSQL) і "замороженій" (SQLite) базі, див. BarcodeLookupService
+        BarcodeLookupService.Result result = barcodeLookupService.lookup(trimmedCode);
+
+        // 1. Знайдено в активній БД, переходимо на звичайну сторінку деталей
+        if (result.hotId() != null) {
+            return "redirect:/barcodes/" + result.hotId();
         }
 
-        // 2. Якщо не знайдено, шукаємо у "замороженій" (SQLite) базі
-        Optional<FrozenBarcode> frozenBarcodeOpt = frozenDataService.findByCode(trimmedCode);
-        if (frozenBarcodeOpt.isPresent()) {
-            // Знайдено в "замороженій" БД, показуємо нову сторінку архіву
-            model.addAttribute("barcode", frozenBarcodeOpt.get());
+        // 2. Знайдено в "замороженій" БД, показуємо сторінку архіву
+        if (result.frozen() != null) {
+            model.addAttribute("barcode", result.frozen());
             return "admin/frozen-barcode-details";
         }
 
@@ -342,17 +305,22 @@ public class AdminController {
     }
 
     @GetMapping("/barcodes")
-    public String viewAllBarcodes(@RequestParam(defaultValue = "0") int page,
+    public String viewAllBarcodes(@RequestParam(required = false) String cursor,
+                                  @RequestParam(defaultValue = "0") int page,
                                   @RequestParam(defaultValue = "50") int size,
                                   @RequestParam(required = false) String apn,
                                   Model model) {
-        Page<Barcode> barcodePage = (apn != null && !apn.isEmpty()) ?
-                barcodeService.findByApnContainingAndStatusNot(apn, "out", page, size) :
-                barcodeService.findAllByStatusNot("out", page, size);
+        boolean apnFilter = apn != null && !apn.isEmpty();
+        CursorPageDto<BarcodeListView> barcodePage = apnFilter ?
+                barcodeService.findActiveByApnContaining(apn, cursor, page, size) :
+                barcodeService.findAllActive(cursor, page, size);
 
         model.addAttribute("barcodes", barcodePage.getContent());
-        model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", barcodePage.getTotalPages());
+        model.addAttribute("pageData", barcodePage);
+        model.addAttribute("pageBaseUrl", UriComponentsBuilder.fromPath("/barcodes")
+                .queryParamIfPresent("apn", Optional.ofNullable(apnFilter ? apn : null))
+                .queryParam("size", size)
+                .encode().build().toUriString());
         model.addAttribute("apn", apn);
         model.addAttribute("pageSize", size);
 
@@ -361,7 +329,7 @@ public class AdminController {
 
     @GetMapping("/transfer")
     public String showTransferForm(Model model) {
-        model.addAttribute("locationMap", locationMap);
+        model.addAttribute("locationMap", locationLayoutService.current().getBayCounts());
         return "admin/transfer-barcodes";
     }
 
@@ -388,42 +356,10 @@ public class AdminController {
         }
 
         try {
-            List<String> codes = excelService.extractCodes(file);
-            List<Barcode> barcodes = barcodeRepository.findByCodeIn(codes);
-
-            int transferred = 0;
-            int skippedOut = 0;
-            int skippedWires = 0;
-
-            List<Barcode> barcodesToUpdate = new ArrayList<>();
-            List<LocationHistory> historyToSave = new ArrayList<>();
-
-            for (Barcode barcode : barcodes) {
-                if ("wires".equalsIgnoreCase(barcode.getLocation())) {
-                    skippedWires++;
-                    continue;
-                }
-                if ("out".equalsIgnoreCase(barcode.getStatus())) {
-                    skippedOut++;
-                    continue;
-                }
-
-                String oldLocation = barcode.getLocation();
-                if (!oldLocation.equals(fullNewLocation)) {
-                    barcode.setLocation(fullNewLocation);
-                    barcode.setLastUpdated(LocalDateTime.now());
-                    barcodesToUpdate.add(barcode);
-                    historyToSave.add(new LocationHistory(barcode, oldLocation, fullNewLocation, LocalDateTime.now()));
-                    transferred++;
-                }
-            }
-
-            barcodeRepository.saveAll(barcodesToUpdate);
-            locationHistoryRepository.saveAll(historyToSave);
-
-            redirectAttributes.addFlashAttribute("message",
-                    String.format("Перенесено: %d. Пропущено (статус 'out'): %d. Пропущено (локація 'wires'): %d.",
-                            transferred, skippedOut, skippedWires));
+            ImportBatch job = importJobService.submit(ImportJobType.TRANSFER, "Переміщення на " + fullNewLocation, file,
+                    (storedFile, batch, progress) -> barcodeTransferService.transferToLocation(storedFile, fullNewLocation, progress));
+            redirectAttributes.addFlashAttribute("message", "Файл прийнято в обробку. Прогрес відображається нижче.");
+            redirectAttributes.addFlashAttribute("jobIds", List.of(job.getId()));
 
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", "Помилка під час обробки: " + e.getMessage());
@@ -441,104 +377,10 @@ public class AdminController {
         }
 
         try {
-            List<BarcodeTransferDto> transfers = excelService.parseTransfers(file);
-            if (transfers.isEmpty()) {
-                redirectAttributes.addFlashAttribute("error", "Файл порожній або не містить даних для обробки.");
-                return "redirect:/transfer";
-            }
-
-            List<String> codesToUpdate = transfers.stream().map(BarcodeTransferDto::getCode).collect(Collectors.toList());
-            List<Barcode> barcodesFromDb = barcodeRepository.findByCodeIn(codesToUpdate);
-            Map<String, Barcode> barcodeMap = barcodesFromDb.stream()
-                    .collect(Collectors.toMap(Barcode::getCode, Function.identity()));
-
-            int transferred = 0, skippedOut = 0, notFound = 0, skippedWires = 0, invalidLocation = 0, invalidNumber = 0;
-
-            List<Barcode> barcodesToSave = new ArrayList<>();
-            List<LocationHistory> historyToSave = new ArrayList<>();
-
-            for (BarcodeTransferDto transfer : transfers) {
-                Barcode barcode = barcodeMap.get(transfer.getCode());
-
-                if (barcode == null) {
-                    notFound++;
-                    continue;
-                }
-                if ("wires".equalsIgnoreCase(barcode.getLocation())) {
-                    skippedWires++;
-                    continue;
-                }
-                if ("out".equalsIgnoreCase(barcode.getStatus())) {
-                    skippedOut++;
-                    continue;
-                }
-
-                String rawLocation = transfer.getLocationName();
-                String rawNumber = transfer.getLocationNumber();
-
-                boolean isExcess = rawLocation.toLowerCase().contains("excess");
-                String baseLocationName = rawLocation.toLowerCase().replace("excess", "").trim();
-
-                String normalizedLocationKey = findLocationKey(baseLocationName);
-
-                if (normalizedLocationKey == null) {
-                    invalidLocation++;
-                    continue;
-                }
-
-                int maxNumber = locationMap.get(normalizedLocationKey);
-                int providedNumber = 0;
-
-                if (rawNumber.isEmpty()) {
-                    if (maxNumber > 0) {
-                        invalidNumber++;
-                        continue;
-                    }
-                } else {
-                    try {
-                        providedNumber = Integer.parseInt(rawNumber);
-                    } catch (NumberFormatException e) {
-                        invalidNumber++;
-                        continue;
-                    }
-                }
-
-                if (maxNumber == 0 && providedNumber > 0) {
-                    invalidNumber++;
-                    continue;
-                }
-                if (maxNumber > 0 && (providedNumber < 1 || providedNumber > maxNumber)) {
-                    invalidNumber++;
-                    continue;
-                }
-
-                StringBuilder finalLocation = new StringBuilder();
-                if (isExcess && !normalizedLocationKey.equals("prestock")) {
-                    finalLocation.append("excess ");
-                }
-                finalLocation.append(normalizedLocationKey);
-                if (providedNumber > 0) {
-                    finalLocation.append(" ").append(providedNumber);
-                }
-                String newLocation = finalLocation.toString();
-
-                String oldLocation = barcode.getLocation();
-                if (!oldLocation.equals(newLocation)) {
-                    barcode.setLocation(newLocation);
-                    barcode.setLastUpdated(LocalDateTime.now());
-                    barcodesToSave.add(barcode);
-                    historyToSave.add(new LocationHistory(barcode, oldLocation, newLocation, LocalDateTime.now()));
-                    transferred++;
-                }
-            }
-
-            barcodeRepository.saveAll(barcodesToSave);
-            locationHistoryRepository.saveAll(historyToSave);
-
-            redirectAttributes.addFlashAttribute("message",
-                    String.format("Обробку завершено. Перенесено: %d, Не знайдено: %d, Пропущено ('out'): %d, " +
-                                    "Пропущено ('wires'): %d, Невірний стелаж: %d, Невірний прольот: %d.",
-                            transferred, notFound, skippedOut, skippedWires, invalidLocation, invalidNumber));
+            ImportBatch job = importJobService.submit(ImportJobType.TRANSFER_DETAILED, "Переміщення за файлом", file,
+                    (storedFile, batch, progress) -> barcodeTransferService.transferDetailed(storedFile, progress));
+            redirectAttributes.addFlashAttribute("message", "Файл прийнято в обробку. Прогрес відображається нижче.");
+            redirectAttributes.addFlashAttribute("jobIds", List.of(job.getId()));
 
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", "Помилка під час обробки файлу: " + e.getMessage());
@@ -547,18 +389,6 @@ public class AdminController {
         return "redirect:/transfer";
     }
 
-    private String findLocationKey(String rawBaseLocationName) {
-        if (rawBaseLocationName == null || rawBaseLocationName.isEmpty()) {
-            return null;
-        }
-        for (String key : this.locationMap.keySet()) {
-            if (key.equalsIgnoreCase(rawBaseLocationName)) {
-                return key;
-            }
-        }
-        return null;
-    }
-
     @PostMapping("/barcodes/{id}/updateLocation")
     public String updateBarcodeLocation(@PathVariable Long id,
                                         @RequestParam String newLocation,
@@ -587,8 +417,16 @@ public class AdminController {
     }
 
     @PostMapping("/barcodes/{id}/updateStatus")
-    public String updateStatus(@PathVariable Long id, @RequestParam String newStatus) {
-        barcodeService.updateStatus(id, newStatus);
+    public String updateStatus(@PathVariable Long id, @RequestParam String newStatus,
+                               RedirectAttributes redirectAttributes) {
+        BarcodeStatus status;
+        try {
+            status = BarcodeStatus.fromCode(newStatus);
+        } catch (IllegalArgumentException e) {
+            redirectAttributes.addFlashAttribute("error", e.getMessage());
+            return "redirect:/barcodes/" + id;
+        }
+        barcodeService.updateStatus(id, status);
         return "redirect:/barcodes/" + id;
     }
 
@@ -597,12 +435,11 @@ public class AdminController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
             @RequestParam(required = false) String apn,
             @RequestParam(required = false) Boolean searchArchive, // <--- НОВИЙ ПАРАМЕТР
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "50") int size,
             Model model) {
 
-        Pageable pageable = PageRequest.of(page, size, Sort.by("lastUpdated").descending());
-
         // --- НОВА ЛОГІКА ---
         String filterApn = (apn != null && !apn.isBlank()) ? apn.trim() : null;
         LocalDate filterDate = date;
@@ -613,45 +450,38 @@ public class AdminController {
             filterDate = LocalDate.now();
         }
 
-        Page<DiscardedBarcodeDto> dtoPage;
+        CursorPageDto<DiscardedBarcodeDto> dtoPage;
 
         if (isArchiveSearch) {
             // --- РЕЖИМ 1: Пошук в "Замороженій" БД (SQLite) ---
             // Сортуємо за датою списання
-            Pageable frozenPageable = PageRequest.of(page, size, Sort.by("dateDiscarded").descending());
-            Page<FrozenBarcode> frozenPage;
-
-            if (filterDate != null && filterApn != null) {
-                frozenPage = frozenBarcodeRepository.findByApnContainingIgnoreCaseAndDateDiscardedBetween(filterApn, filterDate, filterDate, frozenPageable);
-            } else if (filterDate != null) {
-                frozenPage = frozenBarcodeRepository.findByDateDiscardedBetween(filterDate, filterDate, frozenPageable);
-            } else if (filterApn != null) {
-                frozenPage = frozenBarcodeRepository.findByApnContainingIgnoreCase(filterApn, frozenPageable);
-            } else {
-                frozenPage = frozenBarcodeRepository.findAll(frozenPageable);
-            }
-            // Конвертуємо Page<FrozenBarcode> -> Page<DiscardedBarcodeDto>
-            dtoPage = frozenPage.map(DiscardedBarcodeDto::new);
+            dtoPage = frozenDataService.findDiscarded(filterDate, filterApn, cursor, page, size)
+                    .map(DiscardedBarcodeDto::new);
 
         } else {
             // --- РЕЖИМ 2: Пошук в "Гарячій" БД (PostgreSQL), як і раніше ---
-            Page<Barcode> barcodePage;
+            CursorPageDto<BarcodeListView> barcodePage;
             if (filterDate != null && filterApn != null) {
-                barcodePage = barcodeService.findOutByDateAndApn(filterDate.atStartOfDay(), filterDate.atTime(LocalTime.MAX), filterApn, pageable);
+                barcodePage = barcodeService.findOutByDateAndApn(filterDate.atStartOfDay(), filterDate.atTime(LocalTime.MAX), filterApn, cursor, page, size);
             } else if (filterDate != null) {
-                barcodePage = barcodeService.findOutByDateRange(filterDate.atStartOfDay(), filterDate.atTime(LocalTime.MAX), pageable);
+                barcodePage = barcodeService.findOutByDateRange(filterDate.atStartOfDay(), filterDate.atTime(LocalTime.MAX), cursor, page, size);
             } else if (filterApn != null) {
-                barcodePage = barcodeService.findOutByApn(filterApn, pageable);
+                barcodePage = barcodeService.findOutByApn(filterApn, cursor, page, size);
             } else {
-                barcodePage = barcodeService.findAllOutSortedByDate(pageable);
+                barcodePage = barcodeService.findAllOutSortedByDate(cursor, page, size);
             }
-            // Конвертуємо Page<Barcode> -> Page<DiscardedBarcodeDto>
+            // Конвертуємо BarcodeListView -> DiscardedBarcodeDto
             dtoPage = barcodePage.map(DiscardedBarcodeDto::new);
         }
 
         model.addAttribute("discardedBarcodes", dtoPage.getContent());
-        model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", dtoPage.getTotalPages());
+        model.addAttribute("pageData", dtoPage);
+        model.addAttribute("pageBaseUrl", UriComponentsBuilder.fromPath("/discarded")
+                .queryParamIfPresent("apn", Optional.ofNullable(filterApn))
+                .queryParamIfPresent("date", Optional.ofNullable(filterDate))
+                .queryParam("searchArchive", isArchiveSearch)
+                .queryParam("size", size)
+                .encode().build().toUriString());
         model.addAttribute("apn", filterApn);
         model.addAttribute("date", filterDate);
         model.addAttribute("searchArchive", isArchiveSearch);
@@ -662,24 +492,14 @@ public class AdminController {
     @GetMapping("/discarded/export")
     public void exportDiscardedToExcel(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
                                        @RequestParam(required = false) String apn,
+                                       @RequestParam(required = false) String format,
                                        HttpServletResponse response) throws IOException {
 
-        List<Barcode> bars;
+        ExportFormat exportFormat = ExportFormat.fromParam(format);
+        response.setContentType(exportFormat.getContentType());
+        response.setHeader("Content-Disposition", "attachment; filename=" + exportFormat.fileName("discarded-barcodes"));
 
-        if (date != null && apn != null && !apn.isBlank()) {
-            bars = barcodeService.findOutByDateAndApn(date.atStartOfDay(), date.atTime(LocalTime.MAX), apn);
-        } else if (date != null) {
-            bars = barcodeService.findOutByDateRange(date.atStartOfDay(), date.atTime(LocalTime.MAX));
-        } else if (apn != null && !apn.isBlank()) {
-            bars = barcodeService.findOutByApn(apn);
-        } else {
-            bars = barcodeService.findAllOutSortedByDate();
-        }
-
-        response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-        response.setHeader("Content-Disposition", "attachment; filename=discarded-barcodes.xlsx");
-
-        ExcelService.exportDiscardedToExcel(bars, response.getOutputStream());
+        barcodeService.exportDiscarded(date, apn, exportFormat, response.getOutputStream());
     }
 
     @GetMapping("/upload-discarded")
@@ -697,71 +517,10 @@ public class AdminController {
             return "redirect:/upload-discarded";
         }
         try {
-            Map<String, List<String>> extractResult = barcodeService.readFirstColumnBarcodes(file, 3000);
-
-            if (extractResult == null) {
-                redirectAttributes.addFlashAttribute("error", "Файл містить більше 3000 рядків.");
-                return "redirect:/upload-discarded";
-            }
-
-            List<String> codesFromExcel = extractResult.get("codesToProcess");
-            List<String> duplicateCodes = extractResult.get("duplicateCodes");
-
-            if (codesFromExcel.isEmpty() && duplicateCodes.isEmpty()) {
-                redirectAttributes.addFlashAttribute("error", "У файлі не знайдено цифрових штрих-кодів у першій колонці.");
-                return "redirect:/upload-discarded";
-            }
-
-            List<Barcode> barcodesFromDb = barcodeRepository.findByCodeIn(codesFromExcel);
-            Map<String, Barcode> barcodeMap = barcodesFromDb.stream()
-                    .collect(Collectors.toMap(Barcode::getCode, Function.identity()));
-
-            int updatedCount = 0;
-            int alreadyOutCount = 0;
-            List<String> notFoundCodes = new ArrayList<>();
-
-            List<Barcode> barcodesToUpdate = new ArrayList<>();
-            List<StatusHistory> historyToSave = new ArrayList<>();
-
-            for (String code : codesFromExcel) {
-                Barcode barcode = barcodeMap.get(code);
-                if (barcode == null) {
-                    notFoundCodes.add(code);
-                } else if ("out".equalsIgnoreCase(barcode.getStatus())) {
-                    alreadyOutCount++;
-                } else {
-                    if (duplicateCodes.contains(code)) {
-                        continue;
-                    }
-
-                    String oldStatus = barcode.getStatus();
-                    barcode.setStatus("out");
-                    barcode.setLastUpdated(LocalDateTime.now());
-                    barcodesToUpdate.add(barcode);
-                    historyToSave.add(new StatusHistory(barcode, oldStatus, "out", LocalDateTime.now()));
-                    updatedCount++;
-                }
-            }
-
-            if (!barcodesToUpdate.isEmpty()) {
-                barcodeRepository.saveAll(barcodesToUpdate);
-                statusHistoryRepository.saveAll(historyToSave);
-            }
-
-            String message = String.format(
-                    "Обробку завершено: Списано: %d. Вже були списані: %d.",
-                    updatedCount, alreadyOutCount
-            );
-            redirectAttributes.addFlashAttribute("message", message);
-
-            Set<String> allErrors = new HashSet<>(notFoundCodes);
-            allErrors.addAll(duplicateCodes);
-
-            if (!allErrors.isEmpty()) {
-                String notFoundMessage = "<b>Не оброблено (" + allErrors.size() + " шт) - не знайдено або дублікати:</b><br>"
-                        + String.join("<br>", allErrors);
-                redirectAttributes.addFlashAttribute("error", notFoundMessage);
-            }
+            ImportBatch job = importJobService.submit(ImportJobType.DISCARD, "Списання за файлом", file,
+                    (storedFile, batch, progress) -> barcodeDiscardService.discardFromExcel(storedFile, progress));
+            redirectAttributes.addFlashAttribute("message", "Файл прийнято в обробку. Прогрес відображається нижче.");
+            redirectAttributes.addFlashAttribute("jobIds", List.of(job.getId()));
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -772,14 +531,14 @@ public class AdminController {
     }
 
     @GetMapping("/barcodes/download/summary")
-    public void downloadApnSummary(HttpServletResponse response) throws IOException {
-
-        List<ApnSummaryDto> summaryList = barcodeService.getApnSummary();
+    public void downloadApnSummary(@RequestParam(value = "format", required = false) String format,
+                                   HttpServletResponse response) throws IOException {
 
-        response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-        response.setHeader("Content-Disposition", "attachment; filename=RAWEXP.xlsx");
+        ExportFormat exportFormat = ExportFormat.fromParam(format);
+        response.setContentType(exportFormat.getContentType());
+        response.setHeader("Content-Disposition", "attachment; filename=" + exportFormat.fileName("RAWEXP"));
 
-        ExcelService.exportApnSummaryToExcel(summaryList, response.getOutputStream());
+        barcodeService.exportApnSummary(exportFormat, response.getOutputStream());
     }
 
     @GetMapping("/import-master")
@@ -827,7 +586,13 @@ public class AdminController {
     }
 
     @GetMapping("/import-frozen")
-    public String showImportFrozenForm() {
+    public String showImportFrozenForm(Model model) {
+        // Архівація списаних кодів - на цій же сторінці: останні запуски. Що буде перенесено,
+        // сторінка підвантажує з /archive/dry-run на вимогу - це кілька count-запитів
+        model.addAttribute("archiveOlderThanDays", barcodeArchiveService.getOlderThanDays());
+        model.addAttribute("archiveRuns", barcodeArchiveService.getRecentRuns());
+        model.addAttribute("archiveRunning", barcodeArchiveService.isRunning());
+        model.addAttribute("archiveEnabled", barcodeArchiveService.isEnabled());
         return "admin/import-frozen";
     }
 
@@ -840,25 +605,83 @@ public class AdminController {
             return "redirect:/import-frozen";
         }
 
-        List<String> messages = new ArrayList<>();
+        // Кожен файл - окрема фонова задача, тож кілька файлів обробляються паралельно в межах пулу
+        List<Long> jobIds = new ArrayList<>();
         try {
-            // === ЗМІНА ТУТ ===
-            // Ми більше не передаємо весь масив у сервіс.
-            // Ми викликаємо сервіс 4 рази. Кожен виклик = 1 нова транзакція.
             for (MultipartFile file : files) {
                 if (file.isEmpty()) continue;
-                String message = frozenDataService.importFromCsv(file); // Викликаємо оновлений публічний метод
-                messages.add(message);
+                ImportBatch job = importJobService.submit(ImportJobType.FROZEN, "Архів: " + file.getOriginalFilename(), file,
+                        (storedFile, batch, progress) -> frozenDataService.importFromCsv(storedFile, progress));
+                jobIds.add(job.getId());
             }
-            redirectAttributes.addFlashAttribute("messages", messages);
+            redirectAttributes.addFlashAttribute("message", "Файлів прийнято в обробку: " + jobIds.size() + ". Прогрес відображається нижче.");
 
         } catch (Exception e) {
-            // Якщо будь-який файл "впаде" з критичною помилкою (не дублікат),
-            // ми перехопимо її тут.
             redirectAttributes.addFlashAttribute("error", "Сталася критична помилка під час імпорту: " + e.getMessage());
         }
+        redirectAttributes.addFlashAttribute("jobIds", jobIds);
         return "redirect:/import-frozen";
     }
 
+    @GetMapping("/jobs/{id}")
+    @ResponseBody
+    public ResponseEntity<ImportJobStatusDto> getImportJobStatus(@PathVariable Long id) {
+        return importJobService.getStatus(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/jobs")
+    @ResponseBody
+    public List<ImportJobStatusDto> getRecentImportJobs() {
+        return importJobService.getRecentJobs();
+    }
+
+    @GetMapping("/stats/code-filter")
+    @ResponseBody
+    public CodeFilterStatsDto getCodeFilterStats() {
+        return knownCodeFilter.getStats();
+    }
+
+    @GetMapping("/stats/apn-cache")
+    @ResponseBody
+    public ApnCacheStatsDto getApnCacheStats() {
+        return apnInventoryCache.getStats();
+    }
+
+    @GetMapping("/stats/lookup")
+    @ResponseBody
+    public LookupStatsDto getLookupStats() {
+        return barcodeLookupService.getStats();
+    }
+
+    // --- Архівація списаних штрих-кодів у frozen-базу ---
+
+    @GetMapping("/archive/dry-run")
+    @ResponseBody
+    public ArchiveReportDto getArchiveDryRun() {
+        return barcodeArchiveService.dryRun();
+    }
+
+    @PostMapping("/archive/run")
+    public String startArchive(RedirectAttributes redirectAttributes) {
+        try {
+            if (barcodeArchiveService.submit()) {
+                redirectAttributes.addFlashAttribute("message", "Архівацію запущено у фоні. Оновіть сторінку, щоб побачити результат.");
+            } else {
+                redirectAttributes.addFlashAttribute("error", "Архівація вже виконується.");
+            }
+        } catch (IllegalStateException e) {
+            redirectAttributes.addFlashAttribute("error", e.getMessage());
+        }
+        return "redirect:/import-frozen";
+    }
+
+    @GetMapping("/archive/runs")
+    @ResponseBody
+    public List<ArchiveRun> getArchiveRuns() {
+        return barcodeArchiveService.getRecentRuns();
+    }
+
 
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package ua.karpaty.barcodetracker.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Метрики кешу складу по APN (/stats/apn-cache)
+@Getter
+@AllArgsConstructor
+public class ApnCacheStatsDto {
+    private final int size;
+    private final int maxEntries;
+    private final long ttlMs;
+    private final long hits;
+    private final long misses;
+    private final double hitRatio;
+    private final long evictions;
+    private final long invalidations;
+    private final double avgHitNanos;
+    private final double avgLoadMs;
+}
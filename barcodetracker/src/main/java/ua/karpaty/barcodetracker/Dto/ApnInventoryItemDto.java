@@ -0,0 +1,19 @@
+package ua.karpaty.barcodetracker.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+// Рядок складу для пошуку по APN (/warehouse?apn=...). Читається JPQL-конструктором
+// і зберігається в ApnInventoryCache, тож не тримає посилань на сутність.
+@Getter
+@AllArgsConstructor
+public class ApnInventoryItemDto {
+    private Long id;
+    private String code;
+    private String apn;
+    private int quantity;
+    private String location;
+    private LocalDateTime creationDate;
+}
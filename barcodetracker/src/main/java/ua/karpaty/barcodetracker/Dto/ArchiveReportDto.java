@@ -0,0 +1,21 @@
+package ua.karpaty.barcodetracker.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+// Звіт "сухого" прогону архівації (/archive/dry-run): що буде перенесено, без змін у базах
+@Getter
+@AllArgsConstructor
+public class ArchiveReportDto {
+    private final LocalDateTime cutoff;
+    private final int olderThanDays;
+    private final long candidateBarcodes;
+    private final long locationHistoryRows;
+    private final long statusHistoryRows;
+    private final int batchSize;
+    private final long estimatedBatches;
+    private final LocalDateTime oldestCandidate;
+    private final Long resumableRunId;
+}
@@ -0,0 +1,19 @@
+package ua.karpaty.barcodetracker.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+// Рядок вивантаження штрих-кодів. Читається JPQL-конструктором, а не сутністю,
+// тож потік на сотні тисяч рядків не накопичується в persistence context.
+// date - дата додавання або дата списання, залежно від вивантаження.
+@Getter
+@AllArgsConstructor
+public class BarcodeExportDto {
+    private String code;
+    private String apn;
+    private int quantity;
+    private String location;
+    private LocalDateTime date;
+}
@@ -0,0 +1,24 @@
+package ua.karpaty.barcodetracker.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+// Рядок списків штрих-кодів (/barcodes, /discarded, /import/{id}, склад, дашборд).
+// DTO-проєкція: Spring Data вибирає лише ці колонки JPQL-конструктором, без сутності, її лінивих
+// асоціацій і знімка для dirty-checking. Саме клас, а не інтерфейс: інтерфейсна проєкція
+// загортає кожен рядок у Map і проксі й виділяє на сторінку вдвічі більше (ListViewBenchmark).
+// id та дати потрібні ще й для keyset-курсорів.
+@Getter
+@AllArgsConstructor
+public class BarcodeListView {
+    private Long id;
+    private String code;
+    private String apn;
+    private int quantity;
+    private String location;
+    private String status;
+    private LocalDateTime creationDate;
+    private LocalDateTime lastUpdated;
+}
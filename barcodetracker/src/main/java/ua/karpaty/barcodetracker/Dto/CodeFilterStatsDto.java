@@ -0,0 +1,25 @@
+package ua.karpaty.barcodetracker.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Метрики фільтра відомих кодів (/stats/code-filter)
+@Getter
+@AllArgsConstructor
+public class CodeFilterStatsDto {
+    private final boolean enabled;
+    private final boolean ready;
+    private final boolean rebuilding;
+    private final long codeCount;
+    private final long capacity;
+    private final long sizeInBytes;
+    private final int hashCount;
+    private final double expectedFalsePositiveRate;
+    private final double observedFalsePositiveRate;
+    private final long lookups;
+    private final long definiteMisses;
+    private final long possibleHits;
+    private final long confirmedHits;
+    private final double avgLookupNanos;
+    private final long lastBuildMs;
+}
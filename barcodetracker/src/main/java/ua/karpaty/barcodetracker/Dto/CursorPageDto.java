@@ -0,0 +1,53 @@
+package ua.karpaty.barcodetracker.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Сторінка списку з keyset-пагінацією. Замість номера сторінки навігація йде
+ * непрозорими курсорами; pageNumber лише для відображення (-1, якщо невідомий,
+ * наприклад після переходу на останню сторінку без загальної кількості).
+ */
+@Getter
+@AllArgsConstructor
+public class CursorPageDto<T> {
+    private final List<T> content;
+    private final int pageNumber;
+    private final int pageSize;
+    private final boolean hasPrevious;
+    private final boolean hasNext;
+    private final String previousCursor;
+    private final String nextCursor;
+    // Приблизна загальна кількість (з лічильників), null - якщо невідома
+    private final Long approximateTotal;
+
+    public boolean isEmpty() {
+        return content.isEmpty();
+    }
+
+    public int getPreviousPageNumber() {
+        return pageNumber > 0 ? pageNumber - 1 : -1;
+    }
+
+    public int getNextPageNumber() {
+        return pageNumber >= 0 ? pageNumber + 1 : -1;
+    }
+
+    // Номер першого рядка сторінки мінус один (для нумерації в таблиці)
+    public long getRowOffset() {
+        return pageNumber > 0 ? (long) pageNumber * pageSize : 0;
+    }
+
+    public Long getApproximateTotalPages() {
+        if (approximateTotal == null) return null;
+        return Math.max(1, (approximateTotal + pageSize - 1) / pageSize);
+    }
+
+    public <R> CursorPageDto<R> map(Function<? super T, ? extends R> mapper) {
+        List<R> mapped = content.stream().<R>map(mapper).toList();
+        return new CursorPageDto<>(mapped, pageNumber, pageSize, hasPrevious, hasNext, previousCursor, nextCursor, approximateTotal);
+    }
+}
@@ -1,7 +1,6 @@
 package ua.karpaty.barcodetracker.Dto;
 
 import lombok.Data;
-import ua.karpaty.barcodetracker.Entity.Barcode;
 import ua.karpaty.barcodetracker.Entity.Frozen.FrozenBarcode;
 
 import java.time.LocalDateTime;
@@ -17,8 +16,8 @@ public class DiscardedBarcodeDto {
     private Long barcodeId; // ID з "гарячої" бази для посилання
     private boolean isFrozen; // Прапорець, що це архівний запис
 
-    // Конструктор для "гарячого" Barcode
-    public DiscardedBarcodeDto(Barcode barcode) {
+    // Конструктор для "гарячого" Barcode (рядок проєкції)
+    public DiscardedBarcodeDto(BarcodeListView barcode) {
         this.code = barcode.getCode();
         this.apn = barcode.getApn();
         this.quantity = barcode.getQuantity();
@@ -0,0 +1,19 @@
+package ua.karpaty.barcodetracker.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Результат обробки однієї пачки рядків під час імпорту
+@Getter
+@AllArgsConstructor
+public class ImportChunkReportDto {
+    private final int chunkNumber;
+    private final int rowCount;
+    private final int addedCount;
+    private final int skippedCount;
+    private final String error; // null, якщо пачку збережено успішно
+
+    public boolean isFailed() {
+        return error != null;
+    }
+}
@@ -0,0 +1,16 @@
+package ua.karpaty.barcodetracker.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Підсумок виконаної фонової задачі імпорту
+@Getter
+@AllArgsConstructor
+public class ImportJobResultDto {
+    private final String message;
+    private final String details; // може бути null
+    private final long totalRows;
+    private final long addedRows;
+    private final long skippedRows;
+    private final long failedRows;
+}
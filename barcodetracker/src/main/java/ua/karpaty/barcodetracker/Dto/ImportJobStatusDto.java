@@ -0,0 +1,27 @@
+package ua.karpaty.barcodetracker.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+// Відповідь ендпоінта /jobs/{id} для опитування прогресу
+@Getter
+@AllArgsConstructor
+public class ImportJobStatusDto {
+    private final Long id;
+    private final String name;
+    private final String type;
+    private final String state;
+    private final boolean finished;
+    private final String fileName;
+    private final long processedRows;
+    private final long addedRows;
+    private final long skippedRows;
+    private final long failedRows;
+    private final Long totalRows;
+    private final LocalDateTime startedAt;
+    private final Long durationMs;
+    private final String message;
+    private final String details;
+}
@@ -0,0 +1,44 @@
+package ua.karpaty.barcodetracker.Dto;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Підсумок імпорту: загальні лічильники + звіт по кожній пачці
+@Getter
+public class ImportReportDto {
+    private final int maxReportedSkippedCodes;
+
+    private long totalRows;
+    private long addedCount;
+    private long skippedCount;
+    private int failedChunks;
+    private final List<ImportChunkReportDto> chunks = new ArrayList<>();
+
+    // Список пропущених кодів обмежений, щоб звіт не ріс разом з файлом
+    private final List<String> skippedCodes = new ArrayList<>();
+    private long omittedSkippedCodes;
+
+    public ImportReportDto(int maxReportedSkippedCodes) {
+        this.maxReportedSkippedCodes = maxReportedSkippedCodes;
+    }
+
+    public void addChunk(ImportChunkReportDto chunk) {
+        chunks.add(chunk);
+        totalRows += chunk.getRowCount();
+        addedCount += chunk.getAddedCount();
+        skippedCount += chunk.getSkippedCount();
+        if (chunk.isFailed()) {
+            failedChunks++;
+        }
+    }
+
+    public void addSkippedCode(String code) {
+        if (skippedCodes.size() < maxReportedSkippedCodes) {
+            skippedCodes.add(code);
+        } else {
+            omittedSkippedCodes++;
+        }
+    }
+}
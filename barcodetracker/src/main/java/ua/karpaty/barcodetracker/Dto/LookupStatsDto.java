@@ -0,0 +1,23 @@
+package ua.karpaty.barcodetracker.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Метрики пошуку штрих-коду (/barcodes/search, /stats/lookup); перцентилі - за останні latencySamples запитів
+@Getter
+@AllArgsConstructor
+public class LookupStatsDto {
+    private final int size;
+    private final int maxEntries;
+    private final long ttlMs;
+    private final long lookups;
+    private final long cacheHits;
+    private final long hotHits;
+    private final long frozenHits;
+    private final long notFound;
+    private final long filterSkips;
+    private final long invalidations;
+    private final int latencySamples;
+    private final double p50Ms;
+    private final double p99Ms;
+}
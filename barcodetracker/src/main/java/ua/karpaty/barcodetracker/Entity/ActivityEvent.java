@@ -0,0 +1,45 @@
+package ua.karpaty.barcodetracker.Entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Подія стрічки активності на дашборді. Пишеться в тій самій транзакції, що й дія
+ * (імпорт, переміщення, зміна статусу, списання), з готовим текстом і посиланням,
+ * тож стрічка читається з однієї таблиці без з'єднань з історією. Рядки лише додаються.
+ */
+@Entity
+// Індекс по event_time - у міграціях db/migration/primary (PrimarySchemaMigrations)
+@Table(name = "activity_event")
+@Getter
+@Setter
+@NoArgsConstructor
+public class ActivityEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDateTime eventTime;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 20)
+    private ActivityType type;
+
+    @Column(nullable = false, length = 500)
+    private String description;
+
+    private String linkUrl;
+
+    public ActivityEvent(ActivityType type, String description, String linkUrl, LocalDateTime eventTime) {
+        this.type = type;
+        this.description = description;
+        this.linkUrl = linkUrl;
+        this.eventTime = eventTime;
+    }
+}
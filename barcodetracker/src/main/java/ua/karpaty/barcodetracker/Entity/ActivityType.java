@@ -0,0 +1,19 @@
+package ua.karpaty.barcodetracker.Entity;
+
+// Тип події у стрічці активності (ActivityEvent) та її іконка (Bootstrap Icons) на дашборді
+public enum ActivityType {
+    IMPORT("bi bi-file-earmark-plus text-success"),  // імпорт нових штрих-кодів
+    MOVE("bi bi-geo-alt text-primary"),              // переміщення, у т.ч. масове
+    STATUS("bi bi-toggles text-warning"),            // зміна статусу
+    DISCARD("bi bi-file-earmark-minus text-danger"); // списання, у т.ч. масове
+
+    private final String iconClass;
+
+    ActivityType(String iconClass) {
+        this.iconClass = iconClass;
+    }
+
+    public String getIconClass() {
+        return iconClass;
+    }
+}
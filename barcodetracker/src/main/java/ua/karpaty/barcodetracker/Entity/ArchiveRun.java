@@ -0,0 +1,51 @@
+package ua.karpaty.barcodetracker.Entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Запуск архівації списаних штрих-кодів у frozen-базу. lastArchivedId - контрольна
+ * точка: перерваний запуск (RUNNING після рестарту) продовжується з неї.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "archive_run")
+public class ArchiveRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private ImportJobState state;
+
+    // Архівуються штрих-коди зі статусом 'out', оновлені раніше цієї дати
+    @Column(nullable = false)
+    private LocalDateTime cutoff;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    private Long lastArchivedId;
+    private long archivedCount;
+    // Коди, що вже були у frozen-базі (запис там оновлено; з основної вони теж видалені)
+    private long alreadyFrozenCount;
+    private long historyRowsDeleted;
+    private int batches;
+
+    @Column(columnDefinition = "TEXT")
+    private String message;
+
+    public ArchiveRun(LocalDateTime cutoff) {
+        this.cutoff = cutoff;
+        this.state = ImportJobState.RUNNING;
+        this.startedAt = LocalDateTime.now();
+    }
+}
@@ -2,19 +2,24 @@ package ua.karpaty.barcodetracker.Entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.Formula;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
+// Індекси таблиці - у міграціях db/migration/primary (PrimarySchemaMigrations)
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class Barcode {
+    // SEQUENCE замість IDENTITY: інакше Hibernate не може групувати INSERT-и в JDBC-батчі
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "barcode_seq")
+    @SequenceGenerator(name = "barcode_seq", sequenceName = "barcode_seq", allocationSize = 50)
     private Long id;
 
     private String code;
@@ -22,11 +27,27 @@ public class Barcode {
     private int quantity;
 
     private String location;
+
+    // Код BarcodeStatus; назовні поле видно лише як enum (getStatus/setStatus)
     private String status;
 
+    // Штрих-код ще на складі (не 'out'). Обчислюється в SQL, тож похідні запити репозиторію
+    // з ActiveTrue отримують умову з літералом і можуть іти по частковим індексам
+    // "WHERE status <> 'out'" (див. міграції). Лише для запитів: після setStatus значення не оновлюється.
+    @Formula("status <> 'out'")
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Boolean active;
+
+    // Нормалізовані частини location ("excess SK 5" -> excess=true, rack="sk", bay="5").
+    // Заповнюються автоматично при зміні location, щоб фільтри складу могли йти по індексу.
     private String rack;
     private String bay;
 
+    @ColumnDefault("false")
+    @Column(nullable = false)
+    private boolean excess;
+
     private LocalDateTime creationDate;
     private LocalDateTime lastUpdated;
 
@@ -82,14 +103,35 @@ public class Barcode {
 
     public void setLocation(String location) {
         this.location = location;
+        syncLocationParts();
+    }
+
+    @PrePersist
+    @PreUpdate
+    void syncLocationParts() {
+        String[] parts = location != null ? location.trim().toLowerCase().split("\\s+") : new String[0];
+        if (parts.length == 0 || parts[0].isEmpty()) {
+            this.excess = false;
+            this.rack = null;
+            this.bay = null;
+            return;
+        }
+
+        int first = 0;
+        this.excess = parts.length > 1 && parts[0].equals("excess");
+        if (this.excess) {
+            first = 1;
+        }
+        this.rack = parts[first];
+        this.bay = parts.length - first > 1 ? parts[parts.length - 1] : null;
     }
 
-    public String getStatus() {
-        return status;
+    public BarcodeStatus getStatus() {
+        return BarcodeStatus.fromCode(status);
     }
 
-    public void setStatus(String status) {
-        this.status = status;
+    public void setStatus(BarcodeStatus status) {
+        this.status = BarcodeStatus.codeOf(status);
     }
 
     public LocalDateTime getLastUpdated() {
@@ -0,0 +1,49 @@
+package ua.karpaty.barcodetracker.Entity;
+
+import java.util.Locale;
+
+// Статус штрих-коду. У колонці barcode.status та в історії зберігається code (нижній регістр)
+public enum BarcodeStatus {
+    STOCK("stock"), // на складі
+    OUT("out"),     // списано
+    CHECK("check"); // на перевірці
+
+    private final String code;
+
+    BarcodeStatus(String code) {
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public boolean isOut() {
+        return this == OUT;
+    }
+
+    /**
+     * Статус за кодом з бази або форми; регістр і пробіли по краях не важливі. null -> null.
+     */
+    public static BarcodeStatus fromCode(String code) {
+        if (code == null) {
+            return null;
+        }
+        String normalized = code.trim().toLowerCase(Locale.ROOT);
+        for (BarcodeStatus status : values()) {
+            if (status.code.equals(normalized)) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Невідомий статус штрих-коду: '" + code + "'");
+    }
+
+    public static String codeOf(BarcodeStatus status) {
+        return status != null ? status.code : null;
+    }
+
+    @Override
+    public String toString() {
+        return code;
+    }
+}
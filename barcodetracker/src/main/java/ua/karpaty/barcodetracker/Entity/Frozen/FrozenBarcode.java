@@ -11,7 +11,7 @@ import java.time.LocalDate;
 @Getter
 @Setter
 @NoArgsConstructor
-@Table(name = "frozen_barcodes")
+@Table(name = "frozen_barcodes", indexes = @Index(name = "idx_frozen_date_discarded", columnList = "dateDiscarded"))
 public class FrozenBarcode {
 
     @Id
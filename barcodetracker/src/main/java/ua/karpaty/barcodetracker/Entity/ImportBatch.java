@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -23,6 +24,37 @@ public class ImportBatch {
     @Column(name = "barcode_count")
     private Integer barcodeCount; // Будемо зберігати тут розмір 'barcodes.size()'
 
+    // --- Стан фонової задачі імпорту ---
+    // Значення за замовчуванням заповнюють і старі записи, створені до появи задач
+    @Enumerated(EnumType.STRING)
+    @ColumnDefault("'NEW_BARCODES'")
+    @Column(length = 30)
+    private ImportJobType jobType = ImportJobType.NEW_BARCODES;
+
+    @Enumerated(EnumType.STRING)
+    @ColumnDefault("'COMPLETED'")
+    @Column(length = 20)
+    private ImportJobState state = ImportJobState.COMPLETED;
+
+    private String fileName;
+
+    private Long totalRows;
+    private Long processedRows;
+    private Long addedRows;
+    private Long skippedRows;
+    private Long failedRows;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private Long durationMs;
+
+    @Column(columnDefinition = "TEXT")
+    private String message;
+
+    // Пропущені коди, помилки пачок тощо (по одному на рядок)
+    @Column(columnDefinition = "TEXT")
+    private String details;
+
     @OneToMany(mappedBy = "importBatch", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Barcode> barcodes;
 
@@ -30,4 +62,11 @@ public class ImportBatch {
         this.name = name;
         this.importDate = importDate;
     }
+
+    public ImportBatch(String name, LocalDateTime importDate, ImportJobType jobType, String fileName) {
+        this(name, importDate);
+        this.jobType = jobType;
+        this.state = ImportJobState.QUEUED;
+        this.fileName = fileName;
+    }
 }
\ No newline at end of file
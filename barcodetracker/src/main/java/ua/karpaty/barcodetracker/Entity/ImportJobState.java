@@ -0,0 +1,12 @@
+package ua.karpaty.barcodetracker.Entity;
+
+public enum ImportJobState {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED;
+
+    public boolean isFinished() {
+        return this == COMPLETED || this == FAILED;
+    }
+}
@@ -0,0 +1,10 @@
+package ua.karpaty.barcodetracker.Entity;
+
+// Тип фонової задачі імпорту, яку описує запис ImportBatch
+public enum ImportJobType {
+    NEW_BARCODES,      // /upload-new
+    TRANSFER,          // /transfer
+    TRANSFER_DETAILED, // /transfer-detailed
+    DISCARD,           // /discarded/upload
+    FROZEN             // /import-frozen
+}
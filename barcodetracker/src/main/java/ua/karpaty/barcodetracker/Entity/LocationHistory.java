@@ -6,6 +6,8 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
+// Таблиця секціонована по change_time (міграція V4, секції веде HistoryPartitionManager);
+// індекси - у міграціях db/migration/primary (PrimarySchemaMigrations)
 @Getter
 @Setter
 @AllArgsConstructor
@@ -13,7 +15,8 @@ import java.time.LocalDateTime;
 public class LocationHistory {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "location_history_seq")
+    @SequenceGenerator(name = "location_history_seq", sequenceName = "location_history_seq", allocationSize = 50)
     private Long id;
 
     private String oldLocation;
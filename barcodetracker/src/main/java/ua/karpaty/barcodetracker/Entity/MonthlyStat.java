@@ -0,0 +1,48 @@
+package ua.karpaty.barcodetracker.Entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Підсумок за закритий місяць для графіків дашборду. Поточний місяць тут
+ * не зберігається - він рахується "наживо".
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "monthly_stat", uniqueConstraints =
+        @UniqueConstraint(name = "uk_monthly_stat_period", columnNames = {"metric", "periodYear", "periodMonth"}))
+public class MonthlyStat {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private MonthlyStatMetric metric;
+
+    @Column(nullable = false)
+    private int periodYear;
+
+    @Column(nullable = false)
+    private int periodMonth;
+
+    @Column(nullable = false)
+    private long count;
+
+    private LocalDateTime computedAt;
+
+    public MonthlyStat(MonthlyStatMetric metric, int periodYear, int periodMonth, long count, LocalDateTime computedAt) {
+        this.metric = metric;
+        this.periodYear = periodYear;
+        this.periodMonth = periodMonth;
+        this.count = count;
+        this.computedAt = computedAt;
+    }
+}
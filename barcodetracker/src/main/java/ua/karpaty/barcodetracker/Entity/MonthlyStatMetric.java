@@ -0,0 +1,7 @@
+package ua.karpaty.barcodetracker.Entity;
+
+// Показник у таблиці місячних підсумків MonthlyStat
+public enum MonthlyStatMetric {
+    ADDED,     // нові штрих-коди за датою створення
+    DISCARDED  // унікальні штрих-коди, переведені в 'out'
+}
@@ -9,13 +9,16 @@ import lombok.AllArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
+// Таблиця секціонована по change_time (міграція V4, секції веде HistoryPartitionManager);
+// індекси - у міграціях db/migration/primary (PrimarySchemaMigrations)
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 public class StatusHistory {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "status_history_seq")
+    @SequenceGenerator(name = "status_history_seq", sequenceName = "status_history_seq", allocationSize = 50)
     private Long id;
 
     private String oldStatus;
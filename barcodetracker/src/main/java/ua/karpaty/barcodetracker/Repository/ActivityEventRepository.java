@@ -0,0 +1,15 @@
+package ua.karpaty.barcodetracker.Repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import ua.karpaty.barcodetracker.Entity.ActivityEvent;
+
+import java.util.List;
+
+@Repository
+public interface ActivityEventRepository extends JpaRepository<ActivityEvent, Long> {
+
+    // Останні події: зворотний прохід по idx_activity_event_time
+    List<ActivityEvent> findAllByOrderByEventTimeDescIdDesc(Pageable pageable);
+}
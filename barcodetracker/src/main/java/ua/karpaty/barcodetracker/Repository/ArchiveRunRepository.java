@@ -0,0 +1,18 @@
+package ua.karpaty.barcodetracker.Repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import ua.karpaty.barcodetracker.Entity.ArchiveRun;
+import ua.karpaty.barcodetracker.Entity.ImportJobState;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ArchiveRunRepository extends JpaRepository<ArchiveRun, Long> {
+
+    Optional<ArchiveRun> findFirstByStateOrderByIdDesc(ImportJobState state);
+
+    List<ArchiveRun> findAllByOrderByIdDesc(Pageable pageable);
+}
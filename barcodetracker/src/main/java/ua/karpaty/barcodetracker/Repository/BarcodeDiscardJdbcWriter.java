@@ -0,0 +1,119 @@
+package ua.karpaty.barcodetracker.Repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ua.karpaty.barcodetracker.Entity.BarcodeStatus;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Масове списання за списком кодів набором SQL-запитів. Коди з файлу додаються
+ * пачками в тимчасову таблицю discard_stage, з неї будується discard_codes
+ * (унікальні коди з ознакою дубліката), а далі статус змінюється одним UPDATE ... FROM,
+ * історія - INSERT ... SELECT. Обидві таблиці ON COMMIT DROP; викликати всередині
+ * транзакції primaryTransactionManager.
+ */
+@Repository
+public class BarcodeDiscardJdbcWriter {
+
+    private static final String STATUS_OUT = BarcodeStatus.OUT.getCode();
+
+    private static final String CREATE_STAGE_SQL =
+            "CREATE TEMP TABLE discard_stage (code varchar(255) NOT NULL) ON COMMIT DROP";
+
+    private static final String STAGE_SQL = "INSERT INTO discard_stage (code) SELECT * FROM unnest(?::varchar[])";
+
+    private static final String BUILD_CODES_SQL = "CREATE TEMP TABLE discard_codes ON COMMIT DROP AS " +
+            "SELECT code, count(*) > 1 AS duplicate FROM discard_stage GROUP BY code";
+
+    // Код, що повторюється у файлі, не списується (як і код не з бази)
+    private static final String TARGET = "FROM barcode b JOIN discard_codes d ON b.code = d.code " +
+            "WHERE NOT d.duplicate AND b.status IS DISTINCT FROM '" + STATUS_OUT + "'";
+
+    private static final String LOCK_SQL = "SELECT count(*) FROM (SELECT 1 " + TARGET + " FOR UPDATE OF b) locked";
+
+    private static final String COUNT_SQL = "SELECT count(*), count(*) FILTER (WHERE d.duplicate), " +
+            "count(*) FILTER (WHERE b.status = '" + STATUS_OUT + "') " +
+            "FROM discard_codes d LEFT JOIN barcode b ON b.code = d.code";
+
+    private static final String PROBLEM_CODES_SQL = "SELECT d.code FROM discard_codes d " +
+            "LEFT JOIN barcode b ON b.code = d.code WHERE b.id IS NULL OR d.duplicate ORDER BY d.code";
+
+    private static final String APNS_SQL = "SELECT DISTINCT b.apn " + TARGET;
+
+    // id історії - окреме значення послідовності на рядок (див. BarcodeTransferJdbcWriter)
+    private static final String APPLY_SQL = "WITH target AS (" +
+            "SELECT b.id, b.status AS old_status, b.location " + TARGET +
+            "), changed AS (" +
+            "UPDATE barcode b SET status = '" + STATUS_OUT + "', last_updated = ? FROM target t WHERE b.id = t.id " +
+            "RETURNING b.id, t.old_status, t.location" +
+            "), history AS (" +
+            "INSERT INTO status_history (id, barcode_id, old_status, new_status, change_time) " +
+            "SELECT nextval('status_history_seq'), id, old_status, '" + STATUS_OUT + "', ? FROM changed" +
+            ") SELECT location, old_status, count(*) FROM changed GROUP BY location, old_status";
+
+    /**
+     * uniqueCodes - різні коди у файлі, duplicateCodes - з них ті, що повторюються,
+     * alreadyOut - уже списані.
+     */
+    public record DiscardCounts(long uniqueCodes, long duplicateCodes, long alreadyOut) {
+    }
+
+    public record DiscardedGroup(String location, BarcodeStatus oldStatus, long count) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public BarcodeDiscardJdbcWriter(@Qualifier("primaryDataSource") DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    public void createStage() {
+        jdbcTemplate.execute(CREATE_STAGE_SQL);
+    }
+
+    public void stage(List<String> codes) {
+        if (codes.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute(STAGE_SQL, (PreparedStatement ps) -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("varchar", codes.toArray(new String[0])));
+            return ps.executeUpdate();
+        });
+    }
+
+    /**
+     * Після того як усі пачки додано: групує коди і блокує рядки, які буде списано.
+     */
+    public DiscardCounts prepare() {
+        jdbcTemplate.execute(BUILD_CODES_SQL);
+        // Тимчасові таблиці autovacuum не аналізує
+        jdbcTemplate.execute("ANALYZE discard_codes");
+        jdbcTemplate.queryForObject(LOCK_SQL, Long.class);
+        return jdbcTemplate.queryForObject(COUNT_SQL, (rs, rowNum) -> new DiscardCounts(rs.getLong(1), rs.getLong(2), rs.getLong(3)));
+    }
+
+    /**
+     * Коди, яких немає в базі, та коди, що повторюються у файлі (відсортовані).
+     */
+    public List<String> findProblemCodes() {
+        return jdbcTemplate.queryForList(PROBLEM_CODES_SQL, String.class);
+    }
+
+    public List<String> findApnsToDiscard() {
+        return jdbcTemplate.queryForList(APNS_SQL, String.class);
+    }
+
+    public List<DiscardedGroup> applyDiscard(LocalDateTime changeTime) {
+        Timestamp timestamp = Timestamp.valueOf(changeTime);
+        return jdbcTemplate.query(APPLY_SQL, (rs, rowNum) -> new DiscardedGroup(
+                rs.getString(1), BarcodeStatus.fromCode(rs.getString(2)), rs.getLong(3)), timestamp, timestamp);
+    }
+}
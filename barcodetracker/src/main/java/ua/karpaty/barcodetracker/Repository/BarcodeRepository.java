@@ -1,129 +1,104 @@
 package ua.karpaty.barcodetracker.Repository;
 
+import jakarta.persistence.LockModeType;
 import jakarta.persistence.QueryHint;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ua.karpaty.barcodetracker.Dto.*;
 import ua.karpaty.barcodetracker.Entity.Barcode;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Stream;
 
+// Запити - у readOnly-транзакціях (Hibernate не робить знімків для dirty-checking і не flush-ить);
+// всередині транзакції сервісу вони просто до неї приєднуються. Списки повертають проєкцію BarcodeListView.
+// Запити по штрих-кодах на складі мають умову status <> 'out' літералом (ActiveTrue у похідних
+// запитах, див. Barcode.active): з параметром замість літерала PostgreSQL у загальному плані
+// не може використати часткові індекси "WHERE status <> 'out'".
 @Repository
+@Transactional(readOnly = true)
 public interface BarcodeRepository extends JpaRepository<Barcode, Long>, JpaSpecificationExecutor<Barcode> {
 
     Optional<Barcode> findByCode(String code);
 
-    List<Barcode> findByStatusOrderByLastUpdatedDesc(String status);
+    // Списки з keyset-пагінацією (ScrollPosition): без COUNT-запиту і без OFFSET.
+    // Between по першому ключу сортування - діапазон з KeysetCursors.leadingKeyRange: з ним
+    // індекс починає читати з позиції курсора, тож глибокі сторінки коштують стільки ж, скільки перша.
+    Window<BarcodeListView> findByStatusAndLastUpdatedBetweenOrderByLastUpdatedDescIdDesc(
+            String status, LocalDateTime start, LocalDateTime end, ScrollPosition position, Limit limit);
 
-    Page<Barcode> findByStatusOrderByLastUpdatedDesc(String status, Pageable pageable);
+    Window<BarcodeListView> findByStatusAndLastUpdatedBetweenAndApnOrderByLastUpdatedDescIdDesc(
+            String status, LocalDateTime from, LocalDateTime to, String apn, ScrollPosition position, Limit limit);
 
-    List<Barcode> findByStatusAndLastUpdatedBetweenOrderByLastUpdatedDesc(
-            String status, LocalDateTime start, LocalDateTime end);
+    Window<BarcodeListView> findByActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc(
+            LocalDateTime from, LocalDateTime to, ScrollPosition position, Limit limit);
 
-    Page<Barcode> findByStatusAndLastUpdatedBetweenOrderByLastUpdatedDesc(
-            String status, LocalDateTime start, LocalDateTime end, Pageable pageable);
+    Window<BarcodeListView> findByApnContainingAndActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc(
+            String apn, LocalDateTime from, LocalDateTime to, ScrollPosition position, Limit limit);
 
-    @Query("""
+    @Query("SELECT b.code FROM Barcode b WHERE b.code IN :codes")
+    Set<String> findExistingCodes(@Param("codes") Collection<String> codes);
 
-            SELECT b FROM Barcode b
-        WHERE b.status = :status
-          AND b.lastUpdated BETWEEN :from AND :to
-          AND b.apn = :apn
-        ORDER BY b.lastUpdated DESC
-        """)
-    List<Barcode> findByStatusAndDateRangeAndApn(
-            @Param("status") String status,
-            @Param("from") LocalDateTime from,
-            @Param("to") LocalDateTime to,
-            @Param("apn") String apn);
+    List<BarcodeListView> findByCreationDateBeforeAndActiveTrue(LocalDateTime date, Pageable pageable);
 
-    @Query("""
-        SELECT b FROM Barcode b
-        WHERE b.status = :status
-          AND b.lastUpdated BETWEEN :from AND :to
-          AND b.apn = :apn
-        ORDER BY b.lastUpdated DESC
-        """)
-    Page<Barcode> findByStatusAndDateRangeAndApn(
-            @Param("status") String status,
-            @Param("from") LocalDateTime from,
-            @Param("to") LocalDateTime to,
-            @Param("apn") String apn,
-            Pageable pageable);
-    List<Barcode> findByStatusAndApnOrderByLastUpdatedDesc(String status, String apn);
+    Window<BarcodeListView> findByImportBatchIdAndCreationDateBetweenOrderByCreationDateDescIdDesc(
+            Long batchId, LocalDateTime from, LocalDateTime to, ScrollPosition position, Limit limit);
 
-    Page<Barcode> findByStatusAndApnOrderByLastUpdatedDesc(String status, String apn, Pageable pageable);
+    @Query(value = "SELECT EXTRACT(YEAR FROM b.creation_date) as \"year\", EXTRACT(MONTH FROM b.creation_date) as \"month\", COUNT(b.id) as \"count\" " +
+            "FROM barcode b " +
+            "WHERE b.creation_date >= :startDate AND b.creation_date < :endDate " +
+            "GROUP BY EXTRACT(YEAR FROM b.creation_date), EXTRACT(MONTH FROM b.creation_date) " +
+            "ORDER BY \"year\", \"month\"", nativeQuery = true)
+    List<MonthlyStatDto> getMonthlyAddedStats(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
 
-    Page<Barcode> findAllByStatusNot(String status, Pageable pageable);
+    // Склад по APN для ApnInventoryCache - проєкція замість сутностей, частковий індекс (apn, creationDate, id)
+    @Query("SELECT new ua.karpaty.barcodetracker.Dto.ApnInventoryItemDto(b.id, b.code, b.apn, b.quantity, b.location, b.creationDate) " +
+            "FROM Barcode b WHERE b.apn = :apn AND b.status <> 'out' ORDER BY b.creationDate ASC, b.id ASC")
+    List<ApnInventoryItemDto> findInventoryByApn(@Param("apn") String apn);
 
-    Page<Barcode> findByApnContainingAndStatusNot(String apn, String status, Pageable pageable);
+    // Фільтри складу йдуть по нормалізованих колонках rack/bay (див. Barcode.syncLocationParts),
+    // щоб їх обслуговували часткові індекси (rack, bay, creationDate, id) та (bay, creationDate, id).
+    // rack/bay передаються в нижньому регістрі.
+    Window<BarcodeListView> findByRackAndBayIsNotNullAndActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc(
+            String rack, LocalDateTime from, LocalDateTime to, ScrollPosition position, Limit limit);
 
-    List<Barcode> findByCodeIn(List<String> codes);
+    Window<BarcodeListView> findByRackAndBayIsNullAndExcessFalseAndActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc(
+            String rack, LocalDateTime from, LocalDateTime to, ScrollPosition position, Limit limit);
 
-    List<Barcode> findByCreationDateBeforeAndStatusNot(LocalDateTime date, String status);
+    Window<BarcodeListView> findByRackAndBayAndActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc(
+            String rack, String bay, LocalDateTime from, LocalDateTime to, ScrollPosition position, Limit limit);
 
-    Page<Barcode> findByCreationDateBeforeAndStatusNot(LocalDateTime date, String status, Pageable pageable);
+    Window<BarcodeListView> findByBayAndRackNotAndActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc(
+            String bay, String excludedRack, LocalDateTime from, LocalDateTime to, ScrollPosition position, Limit limit);
 
-    Page<Barcode> findByImportBatchId(Long batchId, Pageable pageable);
-
-    @Query(value = "SELECT EXTRACT(YEAR FROM b.creation_date) as \"year\", EXTRACT(MONTH FROM b.creation_date) as \"month\", COUNT(b.id) as \"count\" " +
-            "FROM barcode b " +
-            "WHERE b.creation_date >= :startDate " +
-            "GROUP BY EXTRACT(YEAR FROM b.creation_date), EXTRACT(MONTH FROM b.creation_date) " +
-            "ORDER BY \"year\", \"month\"", nativeQuery = true)
-    List<MonthlyStatDto> getMonthlyAddedStats(@Param("startDate") LocalDateTime startDate);
-
-    List<Barcode> findByApnAndStatusNotOrderByCreationDateAsc(String apn, String status);
-
-    @Query("SELECT b FROM Barcode b WHERE lower(b.status) <> 'out' AND " +
-            "(lower(trim(b.location)) LIKE lower(concat(trim(:rack), ' %')) OR " +
-            " lower(trim(b.location)) LIKE lower(concat('excess ', trim(:rack), ' %'))) " +
-            "AND lower(b.location) <> 'wires' " +
-            "ORDER BY b.creationDate ASC")
-    Page<Barcode> findByRackStartsWithOrderByCreationDateAsc(@Param("rack") String rack, Pageable pageable);
-
-    @Query("SELECT b FROM Barcode b WHERE lower(b.status) <> 'out' AND lower(trim(b.location)) = lower(trim(:rack)) " +
-            "AND lower(b.location) <> 'wires' " +
-            "ORDER BY b.creationDate ASC")
-    Page<Barcode> findByRackExactOrderByCreationDateAsc(@Param("rack") String rack, Pageable pageable);
-
-    @Query("SELECT b FROM Barcode b WHERE lower(b.status) <> 'out' AND " +
-            "(lower(trim(b.location)) = lower(concat(trim(:rack), ' ', trim(:bay))) OR " +
-            " lower(trim(b.location)) = lower(concat('excess ', trim(:rack), ' ', trim(:bay)))) " +
-            "AND lower(b.location) <> 'wires' " +
-            "ORDER BY b.creationDate ASC")
-    Page<Barcode> findByRackAndBayExactOrderByCreationDateAsc(@Param("rack") String rack, @Param("bay") String bay, Pageable pageable);
-
-    @Query("SELECT b FROM Barcode b WHERE lower(b.status) <> 'out' AND lower(trim(b.location)) LIKE lower(concat('% ', trim(:bay))) " +
-            "AND lower(b.location) <> 'wires' " + // <-- Додати цю умову
-            "ORDER BY b.creationDate ASC")
-    Page<Barcode> findByBayEndsWithOrderByCreationDateAsc(@Param("bay") String bay, Pageable pageable);
-
-    @Query("SELECT b FROM Barcode b WHERE lower(b.status) <> 'out' " +
-            "AND lower(b.location) <> 'wires' " +
-            "ORDER BY b.creationDate ASC")
-    Page<Barcode> findWarehouseViewAllOrderByCreationDateAsc(Pageable pageable);
+    Window<BarcodeListView> findByRackNotAndActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc(
+            String excludedRack, LocalDateTime from, LocalDateTime to, ScrollPosition position, Limit limit);
 
+    @QueryHints(value = @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "1000"))
     @Query("SELECT new ua.karpaty.barcodetracker.Dto.ApnSummaryDto(b.apn, SUM(b.quantity), COUNT(b.id)) " +
             "FROM Barcode b " +
-            "WHERE b.status <> :status AND b.apn IS NOT NULL AND b.apn <> '' " +
+            "WHERE b.status <> 'out' AND b.apn IS NOT NULL AND b.apn <> '' " +
             "GROUP BY b.apn " +
             "ORDER BY b.apn ASC")
-    List<ApnSummaryDto> getApnSummaryByStatusNot(@Param("status") String status);
+    Stream<ApnSummaryDto> streamActiveApnSummary();
 
     @Query(value = """
         SELECT
-            (SELECT COUNT(*) FROM barcode WHERE status != 'out') AS totalInDb,
+            (SELECT COUNT(*) FROM barcode WHERE status <> 'out') AS totalInDb,
             (SELECT COUNT(*) FROM barcode) AS totalAdded,
             (SELECT COUNT(*) FROM barcode WHERE status = 'out') AS totalDiscarded,
             (SELECT location FROM barcode
-             WHERE status != 'out' AND location IS NOT NULL AND location != ''
+             WHERE status <> 'out' AND location IS NOT NULL AND location != ''
              GROUP BY location
              ORDER BY COUNT(location) DESC
              LIMIT 1) AS mostPopularLocation
@@ -132,13 +107,51 @@ public interface BarcodeRepository extends JpaRepository<Barcode, Long>, JpaSpec
 
     long countByImportBatchId(Long batchId);
 
-    @QueryHints(value = @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "500"))
-    @Query("SELECT b FROM Barcode b WHERE b.status <> :status ORDER BY b.creationDate ASC")
-    Stream<Barcode> streamByStatusNotOrderByCreationDateAsc(@Param("status") String status);
-
-    @QueryHints(value = @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "500"))
-    @Query("SELECT b FROM Barcode b WHERE lower(b.apn) LIKE lower(concat('%', :apn, '%')) AND b.status <> :status ORDER BY b.creationDate ASC")
-    Stream<Barcode> streamByApnContainingIgnoreCaseAndStatusNotOrderByCreationDateAsc(@Param("apn") String apn, @Param("status") String status);
+    // Усі коди для побудови фільтра KnownCodeFilter (читаються потоком, без сутностей)
+    @QueryHints(value = @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "5000"))
+    @Query("SELECT b.code FROM Barcode b")
+    Stream<String> streamAllCodes();
+
+    // Потоки для вивантажень у Excel: рядки BarcodeExportDto замість сутностей, читаються
+    // курсором по 1000 (fetch size працює лише всередині транзакції)
+    @QueryHints(value = @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new ua.karpaty.barcodetracker.Dto.BarcodeExportDto(b.code, b.apn, b.quantity, b.location, b.creationDate) " +
+            "FROM Barcode b WHERE b.status <> 'out' ORDER BY b.creationDate ASC")
+    Stream<BarcodeExportDto> streamActiveExport();
+
+    // ILIKE, а не lower(b.apn) LIKE lower(...): так умову обслуговує триграмний індекс idx_barcode_active_apn_trgm
+    @QueryHints(value = @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new ua.karpaty.barcodetracker.Dto.BarcodeExportDto(b.code, b.apn, b.quantity, b.location, b.creationDate) " +
+            "FROM Barcode b WHERE b.apn ILIKE concat('%', :apn, '%') AND b.status <> 'out' ORDER BY b.creationDate ASC")
+    Stream<BarcodeExportDto> streamActiveExportByApnContainingIgnoreCase(@Param("apn") String apn);
+
+    @QueryHints(value = @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new ua.karpaty.barcodetracker.Dto.BarcodeExportDto(b.code, b.apn, b.quantity, b.location, b.creationDate) " +
+            "FROM Barcode b WHERE b.creationDate < :date AND b.status <> 'out' ORDER BY b.creationDate ASC")
+    Stream<BarcodeExportDto> streamActiveExportByCreationDateBefore(@Param("date") LocalDateTime date);
+
+    // Списані: дата в рядку - дата списання (lastUpdated)
+    @QueryHints(value = @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new ua.karpaty.barcodetracker.Dto.BarcodeExportDto(b.code, b.apn, b.quantity, b.location, b.lastUpdated) " +
+            "FROM Barcode b WHERE b.status = :status ORDER BY b.lastUpdated DESC")
+    Stream<BarcodeExportDto> streamExportByStatus(@Param("status") String status);
+
+    @QueryHints(value = @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new ua.karpaty.barcodetracker.Dto.BarcodeExportDto(b.code, b.apn, b.quantity, b.location, b.lastUpdated) " +
+            "FROM Barcode b WHERE b.status = :status AND b.lastUpdated BETWEEN :from AND :to ORDER BY b.lastUpdated DESC")
+    Stream<BarcodeExportDto> streamExportByStatusAndLastUpdatedBetween(
+            @Param("status") String status, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @QueryHints(value = @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new ua.karpaty.barcodetracker.Dto.BarcodeExportDto(b.code, b.apn, b.quantity, b.location, b.lastUpdated) " +
+            "FROM Barcode b WHERE b.status = :status AND b.lastUpdated BETWEEN :from AND :to AND b.apn = :apn ORDER BY b.lastUpdated DESC")
+    Stream<BarcodeExportDto> streamExportByStatusAndLastUpdatedBetweenAndApn(
+            @Param("status") String status, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to, @Param("apn") String apn);
+
+    @QueryHints(value = @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new ua.karpaty.barcodetracker.Dto.BarcodeExportDto(b.code, b.apn, b.quantity, b.location, b.lastUpdated) " +
+            "FROM Barcode b WHERE b.status = :status AND b.apn = :apn ORDER BY b.lastUpdated DESC")
+    Stream<BarcodeExportDto> streamExportByStatusAndApn(@Param("status") String status, @Param("apn") String apn);
 
     @Query("SELECT new ua.karpaty.barcodetracker.Dto.MismatchDto(b.id, b.code, b.apn, b.location, m.location) " +
             "FROM Barcode b JOIN MaterialMaster m ON b.apn = m.apn " +
@@ -156,4 +169,29 @@ public interface BarcodeRepository extends JpaRepository<Barcode, Long>, JpaSpec
             "ORDER BY COUNT(b) DESC")
     List<LocationCountDto> getLocationFillRate(Pageable pageable);
 
+    // Для звірки лічильників дашборду (DashboardCounterService)
+    @Query("SELECT new ua.karpaty.barcodetracker.Dto.LocationCountDto(b.location, COUNT(b)) " +
+            "FROM Barcode b " +
+            "WHERE b.status <> 'out' AND b.location IS NOT NULL AND b.location <> '' " +
+            "GROUP BY b.location")
+    List<LocationCountDto> countActiveByLocation();
+
+    // Архівація (BarcodeArchiveService): пачки кандидатів ідуть по id після контрольної точки.
+    // Рядки блокуються до кінця транзакції архівації, щоб їх не змінили між записом в архів і видаленням
+    @Transactional
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<Barcode> findByStatusAndLastUpdatedBeforeAndIdGreaterThanOrderByIdAsc(
+            String status, LocalDateTime cutoff, Long afterId, Limit limit);
+
+    long countByStatusAndLastUpdatedBefore(String status, LocalDateTime cutoff);
+
+    @Query("SELECT MIN(b.lastUpdated) FROM Barcode b WHERE b.status = :status AND b.lastUpdated < :cutoff")
+    LocalDateTime findOldestLastUpdated(@Param("status") String status, @Param("cutoff") LocalDateTime cutoff);
+
+    // Історію треба видалити раніше (deleteByBarcodeIds в репозиторіях історії)
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Barcode b WHERE b.id IN :ids AND b.status = 'out'")
+    int deleteOutByIds(@Param("ids") Collection<Long> ids);
+
 }
@@ -0,0 +1,164 @@
+package ua.karpaty.barcodetracker.Repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ua.karpaty.barcodetracker.Entity.BarcodeStatus;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Масове переміщення штрих-кодів набором SQL-запитів замість зміни кожної сутності.
+ * Рядки файлу спершу потрапляють у тимчасову таблицю transfer_stage (ON COMMIT DROP),
+ * далі переміщення - одним UPDATE ... FROM, а історія - INSERT ... SELECT з того ж
+ * набору змінених рядків. Викликати всередині транзакції primaryTransactionManager -
+ * JdbcTemplate бере її з'єднання, тож усі кроки атомарні.
+ */
+@Repository
+public class BarcodeTransferJdbcWriter {
+
+    // Скільки рядків передається одним INSERT ... SELECT FROM unnest(масиви)
+    private static final int STAGE_CHUNK_SIZE = 10_000;
+
+    public static final int PROBLEM_NONE = 0;
+    public static final int PROBLEM_INVALID_LOCATION = 1;
+    public static final int PROBLEM_INVALID_NUMBER = 2;
+
+    private static final String CREATE_STAGE_SQL = "CREATE TEMP TABLE transfer_stage (" +
+            "row_no integer NOT NULL, code varchar(255), location varchar(255), rack varchar(255), " +
+            "bay varchar(255), excess boolean, problem smallint NOT NULL) ON COMMIT DROP";
+
+    private static final String STAGE_SQL = "INSERT INTO transfer_stage (row_no, code, location, rack, bay, excess, problem) " +
+            "SELECT * FROM unnest(?::integer[], ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], ?::boolean[], ?::smallint[])";
+
+    // Штрих-код, який ще можна переміщувати: не 'wires' (без урахування регістру) і не 'out'
+    private static final String LIVE = "lower(b.location) IS DISTINCT FROM 'wires' AND b.status IS DISTINCT FROM 'out'";
+
+    // Порядок перевірок як у послідовній обробці: не знайдено -> 'wires' -> 'out' -> помилка локації
+    private static final String COUNT_SQL = "SELECT " +
+            "count(*) FILTER (WHERE b.id IS NULL), " +
+            "count(*) FILTER (WHERE lower(b.location) = 'wires'), " +
+            "count(*) FILTER (WHERE lower(b.location) IS DISTINCT FROM 'wires' AND b.status = 'out'), " +
+            "count(*) FILTER (WHERE b.id IS NOT NULL AND " + LIVE + " AND s.problem = " + PROBLEM_INVALID_LOCATION + "), " +
+            "count(*) FILTER (WHERE b.id IS NOT NULL AND " + LIVE + " AND s.problem = " + PROBLEM_INVALID_NUMBER + ") " +
+            "FROM transfer_stage s LEFT JOIN barcode b ON b.code = s.code";
+
+    private static final String LOCK_SQL = "SELECT count(*) FROM (SELECT 1 FROM barcode b " +
+            "JOIN transfer_stage s ON b.code = s.code WHERE s.problem = " + PROBLEM_NONE + " FOR UPDATE OF b) locked";
+
+    private static final String APNS_SQL = "SELECT DISTINCT b.apn FROM barcode b JOIN transfer_stage s ON b.code = s.code " +
+            "WHERE s.problem = " + PROBLEM_NONE + " AND " + LIVE + " AND b.location IS DISTINCT FROM s.location";
+
+    // Для коду, що повторюється у файлі, діє останній рядок. Результат - зміни, згруповані для лічильників дашборду.
+    // id історії - окреме значення послідовності на рядок: Hibernate (allocationSize = 50) бере діапазони
+    // нижче отриманого значення, тож з ним це не перетинається.
+    private static final String APPLY_SQL = "WITH target AS (" +
+            "SELECT DISTINCT ON (b.id) b.id, b.location AS old_location, b.status, " +
+            "s.location AS new_location, s.rack, s.bay, s.excess " +
+            "FROM transfer_stage s JOIN barcode b ON b.code = s.code " +
+            "WHERE s.problem = " + PROBLEM_NONE + " AND " + LIVE + " " +
+            "ORDER BY b.id, s.row_no DESC" +
+            "), moved AS (" +
+            "UPDATE barcode b SET location = t.new_location, rack = t.rack, bay = t.bay, excess = t.excess, last_updated = ? " +
+            "FROM target t WHERE b.id = t.id AND b.location IS DISTINCT FROM t.new_location " +
+            "RETURNING b.id, t.old_location, t.new_location, t.status" +
+            "), history AS (" +
+            "INSERT INTO location_history (id, barcode_id, old_location, new_location, change_time) " +
+            "SELECT nextval('location_history_seq'), id, old_location, new_location, ? FROM moved" +
+            ") SELECT status, old_location, new_location, count(*) FROM moved GROUP BY status, old_location, new_location";
+
+    /**
+     * Рядок файлу переміщення. rack/bay/excess - нормалізовані частини location,
+     * як їх рахує Barcode.syncLocationParts. Для рядків з problem != 0 локація не заповнюється.
+     */
+    public record StagedTransfer(String code, String location, String rack, String bay, boolean excess, int problem) {
+    }
+
+    public record TransferCounts(long notFound, long skippedWires, long skippedOut, long invalidLocation, long invalidNumber) {
+    }
+
+    public record MovedGroup(BarcodeStatus status, String oldLocation, String newLocation, long count) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public BarcodeTransferJdbcWriter(@Qualifier("primaryDataSource") DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    public void createStage() {
+        jdbcTemplate.execute(CREATE_STAGE_SQL);
+    }
+
+    /**
+     * Додає рядки в transfer_stage; firstRowNo - номер першого рядка (для "останній рядок перемагає").
+     */
+    public void stage(List<StagedTransfer> rows, int firstRowNo) {
+        for (int from = 0; from < rows.size(); from += STAGE_CHUNK_SIZE) {
+            List<StagedTransfer> chunk = rows.subList(from, Math.min(rows.size(), from + STAGE_CHUNK_SIZE));
+            int chunkFirstRowNo = firstRowNo + from;
+            jdbcTemplate.execute(STAGE_SQL, (PreparedStatement ps) -> {
+                int size = chunk.size();
+                Integer[] rowNos = new Integer[size];
+                String[] codes = new String[size];
+                String[] locations = new String[size];
+                String[] racks = new String[size];
+                String[] bays = new String[size];
+                Boolean[] excess = new Boolean[size];
+                Short[] problems = new Short[size];
+                for (int i = 0; i < size; i++) {
+                    StagedTransfer row = chunk.get(i);
+                    rowNos[i] = chunkFirstRowNo + i;
+                    codes[i] = row.code();
+                    locations[i] = row.location();
+                    racks[i] = row.rack();
+                    bays[i] = row.bay();
+                    excess[i] = row.excess();
+                    problems[i] = (short) row.problem();
+                }
+                ps.setArray(1, ps.getConnection().createArrayOf("integer", rowNos));
+                ps.setArray(2, ps.getConnection().createArrayOf("varchar", codes));
+                ps.setArray(3, ps.getConnection().createArrayOf("varchar", locations));
+                ps.setArray(4, ps.getConnection().createArrayOf("varchar", racks));
+                ps.setArray(5, ps.getConnection().createArrayOf("varchar", bays));
+                ps.setArray(6, ps.getConnection().createArrayOf("boolean", excess));
+                ps.setArray(7, ps.getConnection().createArrayOf("smallint", problems));
+                return ps.executeUpdate();
+            });
+        }
+    }
+
+    /**
+     * Лічильники пропусків по всіх рядках файлу; викликати після lockStaged і до applyMoves.
+     */
+    public TransferCounts countSkipped() {
+        return jdbcTemplate.queryForObject(COUNT_SQL, (rs, rowNum) -> new TransferCounts(
+                rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getLong(5)));
+    }
+
+    /**
+     * Блокує штрих-коди з файлу до кінця транзакції, щоб стан, за яким порахували
+     * пропуски, не змінився до UPDATE.
+     */
+    public void lockStaged() {
+        // Тимчасові таблиці autovacuum не аналізує, а без статистики планувальник вважає їх крихітними
+        jdbcTemplate.execute("ANALYZE transfer_stage");
+        jdbcTemplate.queryForObject(LOCK_SQL, Long.class);
+    }
+
+    public List<String> findApnsToMove() {
+        return jdbcTemplate.queryForList(APNS_SQL, String.class);
+    }
+
+    public List<MovedGroup> applyMoves(LocalDateTime changeTime) {
+        Timestamp timestamp = Timestamp.valueOf(changeTime);
+        return jdbcTemplate.query(APPLY_SQL, (rs, rowNum) -> new MovedGroup(
+                BarcodeStatus.fromCode(rs.getString(1)), rs.getString(2), rs.getString(3), rs.getLong(4)), timestamp, timestamp);
+    }
+}
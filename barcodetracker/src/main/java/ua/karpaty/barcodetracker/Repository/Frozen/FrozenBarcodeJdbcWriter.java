@@ -0,0 +1,104 @@
+package ua.karpaty.barcodetracker.Repository.Frozen;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ua.karpaty.barcodetracker.Entity.Frozen.FrozenBarcode;
+
+import javax.sql.DataSource;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Пакетний запис у frozen_barcodes напряму через JDBC, без persistence context.
+ * INSERT OR IGNORE спирається на унікальний індекс по code, тож окремий запит
+ * на існуючі коди не потрібен: дублікати (і в базі, і всередині пакета) просто
+ * не вставляються. Архівація натомість пише upsert-ом: повторно перенесений код
+ * оновлює наявний рядок. Викликати всередині транзакції frozenTransactionManager -
+ * JdbcTemplate бере її з'єднання (записувача).
+ */
+@Repository
+public class FrozenBarcodeJdbcWriter {
+
+    // Колонки як їх створює Hibernate для FrozenBarcode; дати - через setDate, як у Hibernate
+    private static final String INSERT_SQL = "INSERT OR IGNORE INTO frozen_barcodes " +
+            "(code, apn, quantity, date_added, date_discarded) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String UPSERT_SQL = "INSERT INTO frozen_barcodes " +
+            "(code, apn, quantity, date_added, date_discarded) VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (code) DO UPDATE SET apn = excluded.apn, quantity = excluded.quantity, " +
+            "date_added = excluded.date_added, date_discarded = excluded.date_discarded";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public FrozenBarcodeJdbcWriter(@Qualifier("frozenDataSource") DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Повертає коди, які справді вставлено (без дублікатів).
+     */
+    public List<String> insertIgnoringDuplicates(List<FrozenBarcode> barcodes) {
+        if (barcodes.isEmpty()) {
+            return List.of();
+        }
+        int[] counts = batchWrite(INSERT_SQL, barcodes);
+
+        List<String> inserted = new ArrayList<>(barcodes.size());
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                inserted.add(barcodes.get(i).getCode());
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * Вставляє нові коди й перезаписує наявні. Повертає коди, яких до цього в архіві не було.
+     */
+    public List<String> upsert(List<FrozenBarcode> barcodes) {
+        if (barcodes.isEmpty()) {
+            return List.of();
+        }
+        // Записувач один, тож між цим запитом і записом ніхто інший коди не додасть
+        String placeholders = String.join(", ", Collections.nCopies(barcodes.size(), "?"));
+        Set<String> existing = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT code FROM frozen_barcodes WHERE code IN (" + placeholders + ")", String.class,
+                barcodes.stream().map(FrozenBarcode::getCode).toArray()));
+        batchWrite(UPSERT_SQL, barcodes);
+        return barcodes.stream().map(FrozenBarcode::getCode).filter(code -> !existing.contains(code)).toList();
+    }
+
+    private int[] batchWrite(String sql, List<FrozenBarcode> barcodes) {
+        return jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                FrozenBarcode barcode = barcodes.get(i);
+                ps.setString(1, barcode.getCode());
+                ps.setString(2, barcode.getApn());
+                if (barcode.getQuantity() != null) {
+                    ps.setInt(3, barcode.getQuantity());
+                } else {
+                    ps.setNull(3, Types.INTEGER);
+                }
+                ps.setDate(4, barcode.getDateAdded() != null ? Date.valueOf(barcode.getDateAdded()) : null);
+                ps.setDate(5, barcode.getDateDiscarded() != null ? Date.valueOf(barcode.getDateDiscarded()) : null);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return barcodes.size();
+            }
+        });
+    }
+}
@@ -1,19 +1,26 @@
 package ua.karpaty.barcodetracker.Repository.Frozen;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ua.karpaty.barcodetracker.Entity.Frozen.FrozenBarcode;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
 
-// Цей репозиторій автоматично підхопиться конфігурацією FrozenDbConfig
+// Цей репозиторій автоматично підхопиться конфігурацією FrozenDbConfig.
+// Запити - у readOnly-транзакціях, тож ідуть через пул читачів (save* з SimpleJpaRepository - через записувача)
 @Repository
+@Transactional(readOnly = true)
 public interface FrozenBarcodeRepository extends JpaRepository<FrozenBarcode, Long> {
 
     // Метод для пошуку
@@ -25,14 +32,16 @@ public interface FrozenBarcodeRepository extends JpaRepository<FrozenBarcode, Lo
     @Query("SELECT f.code FROM FrozenBarcode f WHERE f.code IN :codes")
     Set<String> findExistingCodes(List<String> codes);
 
-    Page<FrozenBarcode> findAll(Pageable pageable);
+    // Усі коди архіву для побудови фільтра KnownCodeFilter
+    @QueryHints(value = @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "5000"))
+    @Query("SELECT f.code FROM FrozenBarcode f")
+    Stream<String> streamAllCodes();
 
-    // Знайти за датою списання
-    Page<FrozenBarcode> findByDateDiscardedBetween(LocalDate start, LocalDate end, Pageable pageable);
-
-    // Знайти за APN
-    Page<FrozenBarcode> findByApnContainingIgnoreCase(String apn, Pageable pageable);
+    // Списки архіву з keyset-пагінацією (ScrollPosition), від найновіших списань.
+    // Межі дати - діапазон з KeysetCursors.leadingDateRange (весь архів - без обмеження дати),
+    // щоб індекс idx_frozen_date_discarded починав читати з позиції курсора
+    Window<FrozenBarcode> findByDateDiscardedBetweenOrderByDateDiscardedDescIdDesc(LocalDate start, LocalDate end, ScrollPosition position, Limit limit);
 
     // Знайти за APN та датою
-    Page<FrozenBarcode> findByApnContainingIgnoreCaseAndDateDiscardedBetween(String apn, LocalDate start, LocalDate end, Pageable pageable);
+    Window<FrozenBarcode> findByApnContainingIgnoreCaseAndDateDiscardedBetweenOrderByDateDiscardedDescIdDesc(String apn, LocalDate start, LocalDate end, ScrollPosition position, Limit limit);
 }
\ No newline at end of file
@@ -3,7 +3,11 @@ package ua.karpaty.barcodetracker.Repository;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import ua.karpaty.barcodetracker.Entity.ImportBatch;
+import ua.karpaty.barcodetracker.Entity.ImportJobState;
+import ua.karpaty.barcodetracker.Entity.ImportJobType;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,4 +16,12 @@ public interface ImportBatchRepository extends JpaRepository<ImportBatch, Long>
     Optional<ImportBatch> findTopByOrderByIdDesc();
 
     List<ImportBatch> findAllByOrderByIdDesc();
+
+    Optional<ImportBatch> findTopByJobTypeOrderByIdDesc(ImportJobType jobType);
+
+    List<ImportBatch> findAllByJobTypeOrderByIdDesc(ImportJobType jobType);
+
+    List<ImportBatch> findTop20ByOrderByIdDesc();
+
+    List<ImportBatch> findByStateInAndImportDateBefore(Collection<ImportJobState> states, LocalDateTime createdBefore);
 }
\ No newline at end of file
@@ -1,15 +1,23 @@
 package ua.karpaty.barcodetracker.Repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ua.karpaty.barcodetracker.Entity.LocationHistory;
 
-import org.springframework.data.domain.Pageable;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface LocationHistoryRepository extends JpaRepository<LocationHistory, Long> {
     List<LocationHistory> findByBarcodeIdOrderByChangeTimeDesc(Long barcodeId);
 
-    @Query("SELECT lh FROM LocationHistory lh JOIN FETCH lh.barcode b ORDER BY lh.changeTime DESC")
-    List<LocationHistory> findRecentWithBarcode(Pageable pageable);
+    // Для архівації: історія штрих-кодів, що переносяться у frozen-базу
+    @Modifying
+    @Query("DELETE FROM LocationHistory lh WHERE lh.barcode.id IN :ids")
+    int deleteByBarcodeIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT COUNT(lh) FROM LocationHistory lh WHERE lh.barcode.status = :status AND lh.barcode.lastUpdated < :cutoff")
+    long countForArchive(@Param("status") String status, @Param("cutoff") LocalDateTime cutoff);
 }
@@ -0,0 +1,21 @@
+package ua.karpaty.barcodetracker.Repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ua.karpaty.barcodetracker.Entity.MonthlyStat;
+import ua.karpaty.barcodetracker.Entity.MonthlyStatMetric;
+
+import java.util.List;
+
+@Repository
+public interface MonthlyStatRepository extends JpaRepository<MonthlyStat, Long> {
+
+    List<MonthlyStat> findByMetric(MonthlyStatMetric metric);
+
+    @Modifying
+    @Query("DELETE FROM MonthlyStat m WHERE m.metric = :metric AND m.periodYear = :year AND m.periodMonth = :month")
+    int deletePeriod(@Param("metric") MonthlyStatMetric metric, @Param("year") int year, @Param("month") int month);
+}
@@ -1,13 +1,14 @@
 package ua.karpaty.barcodetracker.Repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import ua.karpaty.barcodetracker.Dto.MonthlyStatDto;
 import ua.karpaty.barcodetracker.Entity.StatusHistory;
 
-import org.springframework.data.domain.Pageable;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface StatusHistoryRepository extends JpaRepository<StatusHistory, Long> {
@@ -15,11 +16,16 @@ public interface StatusHistoryRepository extends JpaRepository<StatusHistory, Lo
 
     @Query(value = "SELECT EXTRACT(YEAR FROM sh.change_time) as \"year\", EXTRACT(MONTH FROM sh.change_time) as \"month\", COUNT(DISTINCT sh.barcode_id) as \"count\" " +
             "FROM status_history sh " +
-            "WHERE sh.new_status = 'out' AND sh.change_time >= :startDate " +
+            "WHERE sh.new_status = 'out' AND sh.change_time >= :startDate AND sh.change_time < :endDate " +
             "GROUP BY EXTRACT(YEAR FROM sh.change_time), EXTRACT(MONTH FROM sh.change_time) " +
             "ORDER BY \"year\", \"month\"", nativeQuery = true)
-    List<MonthlyStatDto> getMonthlyDiscardStats(@Param("startDate") LocalDateTime startDate);
+    List<MonthlyStatDto> getMonthlyDiscardStats(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
 
-    @Query("SELECT sh FROM StatusHistory sh JOIN FETCH sh.barcode b ORDER BY sh.changeTime DESC")
-    List<StatusHistory> findRecentWithBarcode(Pageable pageable);
+    // Для архівації: історія штрих-кодів, що переносяться у frozen-базу
+    @Modifying
+    @Query("DELETE FROM StatusHistory sh WHERE sh.barcode.id IN :ids")
+    int deleteByBarcodeIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT COUNT(sh) FROM StatusHistory sh WHERE sh.barcode.status = :status AND sh.barcode.lastUpdated < :cutoff")
+    long countForArchive(@Param("status") String status, @Param("cutoff") LocalDateTime cutoff);
 }
@@ -0,0 +1,98 @@
+package ua.karpaty.barcodetracker.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ua.karpaty.barcodetracker.Dto.ActivityLogDto;
+import ua.karpaty.barcodetracker.Entity.ActivityEvent;
+import ua.karpaty.barcodetracker.Entity.ActivityType;
+import ua.karpaty.barcodetracker.Repository.ActivityEventRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.List;
+
+/**
+ * Стрічка активності (журнал дій на дашборді).
+ * <p>
+ * Кожна дія записує одну подію ActivityEvent у транзакції самої дії (подія відкочується
+ * разом з нею): імпорт, переміщення чи зміна статусу окремого коду, а масові переміщення і
+ * списання - одну підсумкову подію на операцію. Останні bct.activity.buffer-size подій тримаються в пам'яті (новіші - на
+ * початку); нова подія потрапляє туди лише після коміту. Буфер заповнюється з бази під час
+ * першого читання, більший ліміт читається з бази напряму.
+ */
+@Slf4j
+@Service
+public class ActivityFeedService {
+
+    private final ActivityEventRepository activityEventRepository;
+    private final int bufferSize;
+
+    private final ArrayDeque<ActivityEvent> buffer = new ArrayDeque<>();
+    private boolean loaded;
+
+    @Autowired
+    public ActivityFeedService(ActivityEventRepository activityEventRepository,
+                               @Value("${bct.activity.buffer-size:50}") int bufferSize) {
+        this.activityEventRepository = activityEventRepository;
+        this.bufferSize = Math.max(1, bufferSize);
+    }
+
+    public void record(ActivityType type, String description, String linkUrl) {
+        ActivityEvent event = activityEventRepository.save(new ActivityEvent(type, description, linkUrl, LocalDateTime.now()));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    push(event);
+                }
+            });
+        } else {
+            push(event);
+        }
+    }
+
+    public List<ActivityLogDto> getRecent(int limit) {
+        if (limit > bufferSize) {
+            return activityEventRepository.findAllByOrderByEventTimeDescIdDesc(PageRequest.of(0, limit)).stream()
+                    .map(ActivityFeedService::toDto)
+                    .toList();
+        }
+        synchronized (buffer) {
+            if (!loaded) {
+                buffer.addAll(activityEventRepository.findAllByOrderByEventTimeDescIdDesc(PageRequest.of(0, bufferSize)));
+                loaded = true;
+                log.debug("Activity feed buffer loaded with {} events", buffer.size());
+            }
+            return buffer.stream().limit(limit).map(ActivityFeedService::toDto).toList();
+        }
+    }
+
+    private void push(ActivityEvent event) {
+        synchronized (buffer) {
+            // До першого читання буфер порожній: подію підхопить завантаження з бази.
+            // Подія, закомічена перед завантаженням, могла вже потрапити туди - не дублюємо
+            if (!loaded || buffer.stream().anyMatch(e -> e.getId().equals(event.getId()))) {
+                return;
+            }
+            buffer.addFirst(event);
+            if (buffer.size() > bufferSize) {
+                buffer.removeLast();
+            }
+        }
+    }
+
+    private static ActivityLogDto toDto(ActivityEvent event) {
+        return new ActivityLogDto(
+                event.getEventTime(),
+                event.getType().name(),
+                event.getDescription(),
+                event.getType().getIconClass(),
+                event.getLinkUrl()
+        );
+    }
+}
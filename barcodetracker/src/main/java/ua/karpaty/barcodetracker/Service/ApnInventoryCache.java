@@ -0,0 +1,186 @@
+package ua.karpaty.barcodetracker.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ua.karpaty.barcodetracker.Dto.ApnCacheStatsDto;
+import ua.karpaty.barcodetracker.Dto.ApnInventoryItemDto;
+import ua.karpaty.barcodetracker.Dto.LocationDTO;
+import ua.karpaty.barcodetracker.Repository.BarcodeRepository;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кеш складу по APN: APN -> штрих-коди не в статусі 'out', згруповані за локацією.
+ * Обмежений bct.apn-cache.max-entries записами (витісняється найдавніше використаний)
+ * і bct.apn-cache.ttl-ms як страховка від пропущеної інвалідації.
+ * <p>
+ * Імпорти, переміщення, зміни статусу та списання передають сюди змінені APN через
+ * invalidate(...), який спрацьовує після коміту. Завантаження, під час якого
+ * відбулась будь-яка інвалідація, не кладеться в кеш - інакше туди могли б
+ * потрапити дані, прочитані до коміту.
+ */
+@Slf4j
+@Service
+public class ApnInventoryCache {
+
+    // Більші інвалідації (масовий імпорт) дешевше обробити повним очищенням
+    private static final int CLEAR_ALL_THRESHOLD = 1000;
+
+    private final BarcodeRepository barcodeRepository;
+    private final LocationLayoutService locationLayoutService;
+    private final int maxEntries;
+    private final long ttlMs;
+
+    private final LinkedHashMap<String, CachedInventory> entries;
+    private final AtomicLong invalidationEpoch = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong hitNanos = new AtomicLong();
+    private final AtomicLong loadNanos = new AtomicLong();
+
+    private record CachedInventory(Map<LocationDTO, List<ApnInventoryItemDto>> inventory, long loadedAtMs) {
+    }
+
+    @Autowired
+    public ApnInventoryCache(BarcodeRepository barcodeRepository, LocationLayoutService locationLayoutService,
+                             @Value("${bct.apn-cache.max-entries:500}") int maxEntries,
+                             @Value("${bct.apn-cache.ttl-ms:300000}") long ttlMs) {
+        this.barcodeRepository = barcodeRepository;
+        this.locationLayoutService = locationLayoutService;
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedInventory> eldest) {
+                if (size() > ApnInventoryCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Незмінна мапа локація -> штрих-коди (від найстаріших), у порядку першої появи локації.
+     */
+    public Map<LocationDTO, List<ApnInventoryItemDto>> get(String apn) {
+        long startNanos = System.nanoTime();
+        String key = apn.trim();
+
+        synchronized (entries) {
+            CachedInventory cached = entries.get(key);
+            if (cached != null) {
+                if (System.currentTimeMillis() - cached.loadedAtMs() < ttlMs) {
+                    hits.incrementAndGet();
+                    hitNanos.addAndGet(System.nanoTime() - startNanos);
+                    return cached.inventory();
+                }
+                entries.remove(key);
+            }
+        }
+
+        misses.incrementAndGet();
+        long epoch = invalidationEpoch.get();
+        Map<LocationDTO, List<ApnInventoryItemDto>> inventory = load(key);
+
+        synchronized (entries) {
+            if (invalidationEpoch.get() == epoch) {
+                entries.put(key, new CachedInventory(inventory, System.currentTimeMillis()));
+            }
+        }
+        loadNanos.addAndGet(System.nanoTime() - startNanos);
+        return inventory;
+    }
+
+    /**
+     * Скидає записи для APN після коміту поточної транзакції (або одразу, якщо транзакції немає).
+     */
+    public void invalidate(Collection<String> apns) {
+        Set<String> keys = new HashSet<>();
+        for (String apn : apns) {
+            if (apn != null) {
+                keys.add(apn.trim());
+            }
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateNow(keys);
+                }
+            });
+        } else {
+            invalidateNow(keys);
+        }
+    }
+
+    public void invalidate(String apn) {
+        invalidate(Collections.singleton(apn));
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            invalidationEpoch.incrementAndGet();
+            entries.clear();
+        }
+        invalidations.incrementAndGet();
+    }
+
+    public ApnCacheStatsDto getStats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long lookups = hitCount + missCount;
+        return new ApnCacheStatsDto(
+                size,
+                maxEntries,
+                ttlMs,
+                hitCount,
+                missCount,
+                lookups > 0 ? (double) hitCount / lookups : 0,
+                evictions.get(),
+                invalidations.get(),
+                hitCount > 0 ? (double) hitNanos.get() / hitCount : 0,
+                missCount > 0 ? loadNanos.get() / 1_000_000.0 / missCount : 0);
+    }
+
+    private void invalidateNow(Set<String> apns) {
+        if (apns.size() > CLEAR_ALL_THRESHOLD) {
+            clear();
+            return;
+        }
+        synchronized (entries) {
+            invalidationEpoch.incrementAndGet();
+            entries.keySet().removeAll(apns);
+        }
+        invalidations.incrementAndGet();
+    }
+
+    private Map<LocationDTO, List<ApnInventoryItemDto>> load(String apn) {
+        List<ApnInventoryItemDto> items = barcodeRepository.findInventoryByApn(apn);
+
+        LocationRegistry layout = locationLayoutService.current();
+        Map<LocationDTO, List<ApnInventoryItemDto>> grouped = new LinkedHashMap<>();
+        for (ApnInventoryItemDto item : items) {
+            grouped.computeIfAbsent(layout.toLocationDto(item.getLocation()), location -> new ArrayList<>()).add(item);
+        }
+        grouped.replaceAll((location, list) -> List.copyOf(list));
+        log.debug("APN inventory for '{}' loaded: {} barcodes in {} locations", apn, items.size(), grouped.size());
+        return Collections.unmodifiableMap(grouped);
+    }
+}
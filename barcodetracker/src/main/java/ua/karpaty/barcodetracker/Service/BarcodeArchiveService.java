@@ -0,0 +1,258 @@
+package ua.karpaty.barcodetracker.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.karpaty.barcodetracker.Dto.ArchiveReportDto;
+import ua.karpaty.barcodetracker.Entity.ArchiveRun;
+import ua.karpaty.barcodetracker.Entity.Barcode;
+import ua.karpaty.barcodetracker.Entity.BarcodeStatus;
+import ua.karpaty.barcodetracker.Entity.Frozen.FrozenBarcode;
+import ua.karpaty.barcodetracker.Entity.ImportJobState;
+import ua.karpaty.barcodetracker.Repository.ArchiveRunRepository;
+import ua.karpaty.barcodetracker.Repository.BarcodeRepository;
+import ua.karpaty.barcodetracker.Repository.Frozen.FrozenBarcodeJdbcWriter;
+import ua.karpaty.barcodetracker.Repository.LocationHistoryRepository;
+import ua.karpaty.barcodetracker.Repository.StatusHistoryRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Архівація: штрих-коди зі статусом 'out', які не змінювались понад
+ * bct.archive.older-than-days днів, переносяться у frozen-базу і видаляються
+ * з основної разом з LocationHistory/StatusHistory.
+ * <p>
+ * Робота йде пачками по id, кожна - в одній транзакції основної бази: кандидати, що досі
+ * в статусі 'out', вибираються з блокуванням рядків (SELECT ... FOR UPDATE), саме ці рядки
+ * записуються у frozen-базу (окрема транзакція, комітиться першою), потім видаляються з
+ * основної разом з історією, і зберігається контрольна точка ArchiveRun. Штрих-код, який
+ * повертають зі списання паралельно, або вже не потрапить у пачку, або чекатиме її коміту -
+ * в архів він не переноситься.
+ * <p>
+ * Запис у frozen-базу - upsert по code: якщо основна транзакція впаде після запису в архів,
+ * повтор пачки перезапише ті самі рядки актуальними значеннями. Тому перерваний запуск
+ * можна безпечно продовжити або повторити.
+ */
+@Slf4j
+@Service
+public class BarcodeArchiveService {
+
+    private static final String STATUS_OUT = BarcodeStatus.OUT.getCode();
+
+    private final BarcodeRepository barcodeRepository;
+    private final LocationHistoryRepository locationHistoryRepository;
+    private final StatusHistoryRepository statusHistoryRepository;
+    private final FrozenBarcodeJdbcWriter frozenBarcodeJdbcWriter;
+    private final ArchiveRunRepository archiveRunRepository;
+    private final DashboardCounterService dashboardCounterService;
+    private final BarcodeLookupService barcodeLookupService;
+    private final ThreadPoolTaskExecutor importJobExecutor;
+    private final TransactionTemplate primaryTransaction;
+    private final TransactionTemplate frozenTransaction;
+
+    private final boolean enabled;
+    private final int olderThanDays;
+    private final int batchSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Autowired
+    public BarcodeArchiveService(BarcodeRepository barcodeRepository,
+                                 LocationHistoryRepository locationHistoryRepository,
+                                 StatusHistoryRepository statusHistoryRepository,
+                                 FrozenBarcodeJdbcWriter frozenBarcodeJdbcWriter,
+                                 ArchiveRunRepository archiveRunRepository,
+                                 DashboardCounterService dashboardCounterService,
+                                 BarcodeLookupService barcodeLookupService,
+                                 @Qualifier("importJobExecutor") ThreadPoolTaskExecutor importJobExecutor,
+                                 @Qualifier("primaryTransactionManager") PlatformTransactionManager primaryTransactionManager,
+                                 @Qualifier("frozenTransactionManager") PlatformTransactionManager frozenTransactionManager,
+                                 @Value("${bct.archive.enabled:false}") boolean enabled,
+                                 @Value("${bct.archive.older-than-days:365}") int olderThanDays,
+                                 @Value("${bct.archive.batch-size:1000}") int batchSize) {
+        this.barcodeRepository = barcodeRepository;
+        this.locationHistoryRepository = locationHistoryRepository;
+        this.statusHistoryRepository = statusHistoryRepository;
+        this.frozenBarcodeJdbcWriter = frozenBarcodeJdbcWriter;
+        this.archiveRunRepository = archiveRunRepository;
+        this.dashboardCounterService = dashboardCounterService;
+        this.barcodeLookupService = barcodeLookupService;
+        this.importJobExecutor = importJobExecutor;
+        this.enabled = enabled;
+        this.olderThanDays = olderThanDays;
+        this.batchSize = batchSize;
+
+        this.primaryTransaction = new TransactionTemplate(primaryTransactionManager);
+        this.frozenTransaction = new TransactionTemplate(frozenTransactionManager);
+        this.frozenTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getOlderThanDays() {
+        return olderThanDays;
+    }
+
+    /**
+     * "Сухий" прогін: скільки рядків буде перенесено і видалено, без змін у базах.
+     */
+    public ArchiveReportDto dryRun() {
+        ArchiveRun resumable = archiveRunRepository.findFirstByStateOrderByIdDesc(ImportJobState.RUNNING).orElse(null);
+        LocalDateTime cutoff = resumable != null ? resumable.getCutoff() : currentCutoff();
+
+        long candidates = barcodeRepository.countByStatusAndLastUpdatedBefore(STATUS_OUT, cutoff);
+        return new ArchiveReportDto(
+                cutoff,
+                olderThanDays,
+                candidates,
+                locationHistoryRepository.countForArchive(STATUS_OUT, cutoff),
+                statusHistoryRepository.countForArchive(STATUS_OUT, cutoff),
+                batchSize,
+                (candidates + batchSize - 1) / batchSize,
+                barcodeRepository.findOldestLastUpdated(STATUS_OUT, cutoff),
+                resumable != null ? resumable.getId() : null);
+    }
+
+    public List<ArchiveRun> getRecentRuns() {
+        return archiveRunRepository.findAllByOrderByIdDesc(PageRequest.of(0, 20));
+    }
+
+    // Лише ставить запуск у пул importJobExecutor: потік планувальника один на всі @Scheduled-задачі
+    @Scheduled(cron = "${bct.archive.cron:0 30 2 * * *}")
+    public void scheduledRun() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (!submit()) {
+                log.info("Scheduled archive run skipped: another run is in progress");
+            }
+        } catch (IllegalStateException e) {
+            log.warn("Scheduled archive run not started: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Ручний запуск у фоні (пул importJobExecutor). Повертає false, якщо архівація вже йде.
+     */
+    public boolean submit() {
+        if (running.get()) {
+            return false;
+        }
+        try {
+            importJobExecutor.execute(this::run);
+        } catch (TaskRejectedException e) {
+            throw new IllegalStateException("Черга фонових задач заповнена, спробуйте пізніше.", e);
+        }
+        return true;
+    }
+
+    /**
+     * Продовжує перерваний запуск (стан RUNNING) або починає новий.
+     */
+    public void run() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Archive run skipped: another run is in progress");
+            return;
+        }
+        ArchiveRun run = null;
+        try {
+            run = archiveRunRepository.findFirstByStateOrderByIdDesc(ImportJobState.RUNNING)
+                    .orElseGet(() -> archiveRunRepository.save(new ArchiveRun(currentCutoff())));
+            log.info("Archive run {} started (cutoff {}, checkpoint id {})", run.getId(), run.getCutoff(), run.getLastArchivedId());
+
+            long startNanos = System.nanoTime();
+            while (archiveBatch(run)) {
+                // продовжуємо, поки є кандидати
+            }
+
+            run.setState(ImportJobState.COMPLETED);
+            run.setFinishedAt(LocalDateTime.now());
+            run.setMessage(String.format("Перенесено у frozen-базу: %d, оновлено вже наявних там: %d, видалено рядків історії: %d.",
+                    run.getArchivedCount(), run.getAlreadyFrozenCount(), run.getHistoryRowsDeleted()));
+            archiveRunRepository.save(run);
+            log.info("Archive run {} completed in {} ms: {}", run.getId(), (System.nanoTime() - startNanos) / 1_000_000, run.getMessage());
+        } catch (Exception e) {
+            log.error("Archive run failed: {}", e.getMessage(), e);
+            if (run != null && run.getId() != null) {
+                // Контрольна точка вже збережена; наступний запуск почне новий прохід з актуальною датою
+                run.setState(ImportJobState.FAILED);
+                run.setFinishedAt(LocalDateTime.now());
+                run.setMessage("Помилка архівації: " + e.getMessage());
+                archiveRunRepository.save(run);
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Одна пачка. Повертає false, коли кандидатів після контрольної точки більше немає.
+     */
+    private boolean archiveBatch(ArchiveRun run) {
+        long afterId = run.getLastArchivedId() != null ? run.getLastArchivedId() : 0L;
+        Integer size = primaryTransaction.execute(status -> {
+            // 1. Блокування до кінця транзакції: змінити ці рядки до видалення вже не вийде
+            List<Barcode> batch = barcodeRepository.findByStatusAndLastUpdatedBeforeAndIdGreaterThanOrderByIdAsc(
+                    STATUS_OUT, run.getCutoff(), afterId, Limit.of(batchSize));
+            if (batch.isEmpty()) {
+                return 0;
+            }
+
+            // 2. Запис саме заблокованих рядків у frozen-базу
+            List<FrozenBarcode> frozen = batch.stream().map(this::toFrozen).toList();
+            int inserted = frozenTransaction.execute(frozenStatus -> frozenBarcodeJdbcWriter.upsert(frozen).size());
+            dashboardCounterService.addFrozen(inserted);
+
+            // 3. Видалення з основної бази і контрольна точка
+            List<Long> ids = batch.stream().map(Barcode::getId).toList();
+            int historyRows = locationHistoryRepository.deleteByBarcodeIds(ids)
+                    + statusHistoryRepository.deleteByBarcodeIds(ids);
+            int deleted = barcodeRepository.deleteOutByIds(ids);
+            // Після коміту ці коди шукаються вже в архіві
+            barcodeLookupService.invalidate(batch.stream().map(Barcode::getCode).toList());
+
+            run.setLastArchivedId(ids.get(ids.size() - 1));
+            run.setArchivedCount(run.getArchivedCount() + inserted);
+            run.setAlreadyFrozenCount(run.getAlreadyFrozenCount() + (batch.size() - inserted));
+            run.setHistoryRowsDeleted(run.getHistoryRowsDeleted() + historyRows);
+            run.setBatches(run.getBatches() + 1);
+            archiveRunRepository.save(run);
+
+            dashboardCounterService.apply(new DashboardCounterService.Delta().archived(deleted));
+            log.debug("Archive run {}: batch up to id {} done ({} new in frozen, {} deleted)",
+                    run.getId(), run.getLastArchivedId(), inserted, deleted);
+            return batch.size();
+        });
+        return size != null && size == batchSize;
+    }
+
+    private FrozenBarcode toFrozen(Barcode barcode) {
+        LocalDate added = barcode.getCreationDate() != null ? barcode.getCreationDate().toLocalDate() : null;
+        LocalDate discarded = barcode.getLastUpdated() != null ? barcode.getLastUpdated().toLocalDate() : null;
+        return new FrozenBarcode(barcode.getCode(), barcode.getApn(), barcode.getQuantity(), added, discarded);
+    }
+
+    private LocalDateTime currentCutoff() {
+        return LocalDate.now().minusDays(olderThanDays).atStartOfDay();
+    }
+}
@@ -0,0 +1,97 @@
+package ua.karpaty.barcodetracker.Service;
+
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import ua.karpaty.barcodetracker.Dto.ImportJobResultDto;
+import ua.karpaty.barcodetracker.Entity.ActivityType;
+import ua.karpaty.barcodetracker.Entity.BarcodeStatus;
+import ua.karpaty.barcodetracker.Repository.BarcodeDiscardJdbcWriter;
+import ua.karpaty.barcodetracker.Repository.BarcodeDiscardJdbcWriter.DiscardCounts;
+import ua.karpaty.barcodetracker.Repository.BarcodeDiscardJdbcWriter.DiscardedGroup;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Масове списання штрих-кодів з Excel-файлу (/discarded/upload).
+ * Коди читаються потоково пачками по STAGE_CHUNK_SIZE і відразу йдуть у тимчасову
+ * таблицю, тож розмір файлу не обмежений пам'яттю. Дублікати й відсутні коди
+ * визначаються в базі (GROUP BY / LEFT JOIN), списання - набором запитів
+ * BarcodeDiscardJdbcWriter в одній транзакції.
+ */
+@Slf4j
+@Service
+public class BarcodeDiscardService {
+
+    private static final int STAGE_CHUNK_SIZE = 5_000;
+
+    private final BarcodeService barcodeService;
+    private final BarcodeDiscardJdbcWriter discardWriter;
+    private final DashboardCounterService dashboardCounterService;
+    private final ApnInventoryCache apnInventoryCache;
+    private final ActivityFeedService activityFeedService;
+
+    @Autowired
+    public BarcodeDiscardService(BarcodeService barcodeService, BarcodeDiscardJdbcWriter discardWriter,
+                                 DashboardCounterService dashboardCounterService,
+                                 ApnInventoryCache apnInventoryCache,
+                                 ActivityFeedService activityFeedService) {
+        this.barcodeService = barcodeService;
+        this.discardWriter = discardWriter;
+        this.dashboardCounterService = dashboardCounterService;
+        this.apnInventoryCache = apnInventoryCache;
+        this.activityFeedService = activityFeedService;
+    }
+
+    @Transactional
+    public ImportJobResultDto discardFromExcel(MultipartFile file, ImportJobProgress progress) throws IOException {
+        long startNanos = System.nanoTime();
+        discardWriter.createStage();
+        long totalCodes = barcodeService.readFirstColumnCodes(file, STAGE_CHUNK_SIZE, chunk -> {
+            discardWriter.stage(chunk);
+            progress.addProcessed(chunk.size());
+        });
+
+        if (totalCodes == 0) {
+            throw new IllegalArgumentException("У файлі не знайдено цифрових штрих-кодів у першій колонці.");
+        }
+
+        DiscardCounts counts = discardWriter.prepare();
+        List<String> problemCodes = discardWriter.findProblemCodes();
+        apnInventoryCache.invalidate(discardWriter.findApnsToDiscard());
+
+        List<DiscardedGroup> discarded = discardWriter.applyDiscard(LocalDateTime.now());
+        DashboardCounterService.Delta counters = new DashboardCounterService.Delta();
+        long updatedCount = 0;
+        for (DiscardedGroup group : discarded) {
+            counters.statusChanged(group.location(), group.oldStatus(), BarcodeStatus.OUT, group.count());
+            updatedCount += group.count();
+        }
+        dashboardCounterService.apply(counters);
+        if (updatedCount > 0) {
+            // Одна подія на файл, а не на кожен код - інакше стрічку заповнить одне списання
+            activityFeedService.record(ActivityType.DISCARD, "Масово списано " + updatedCount + " кодів", "/discarded");
+        }
+
+        long elapsedMs = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+        log.info("Bulk discard: {} codes read ({} unique), {} discarded in {} ms, {} codes/sec",
+                totalCodes, counts.uniqueCodes(), updatedCount, elapsedMs, totalCodes * 1000 / elapsedMs);
+
+        String message = String.format(
+                "Обробку завершено: Списано: %d. Вже були списані: %d.",
+                updatedCount, counts.alreadyOut()
+        );
+
+        String details = null;
+        if (!problemCodes.isEmpty()) {
+            details = "Не оброблено (" + problemCodes.size() + " шт) - не знайдено або дублікати:\n"
+                    + String.join("\n", problemCodes);
+        }
+
+        return new ImportJobResultDto(message, details, totalCodes, updatedCount, counts.alreadyOut(), problemCodes.size());
+    }
+}
@@ -0,0 +1,165 @@
+package ua.karpaty.barcodetracker.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import ua.karpaty.barcodetracker.Dto.ImportChunkReportDto;
+import ua.karpaty.barcodetracker.Dto.ImportJobResultDto;
+import ua.karpaty.barcodetracker.Dto.ImportReportDto;
+import ua.karpaty.barcodetracker.Entity.ActivityType;
+import ua.karpaty.barcodetracker.Entity.Barcode;
+import ua.karpaty.barcodetracker.Entity.ImportBatch;
+import ua.karpaty.barcodetracker.Repository.BarcodeRepository;
+import ua.karpaty.barcodetracker.Repository.Frozen.FrozenBarcodeRepository;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Імпорт нових штрих-кодів з Excel пачками: читання -> дедуплікація -> перевірка
+ * наявності в "гарячій" та "замороженій" базах -> вставка. У пам'яті одночасно
+ * тримається лише одна пачка, кожна пачка зберігається в окремій транзакції.
+ */
+@Slf4j
+@Service
+public class BarcodeImportService {
+
+    private static final int CHUNK_SIZE = 1000;
+    private static final int MAX_REPORTED_SKIPPED_CODES = 1000;
+
+    private final ExcelService excelService;
+    private final BarcodeService barcodeService;
+    private final BarcodeRepository barcodeRepository;
+    private final FrozenBarcodeRepository frozenBarcodeRepository;
+    private final KnownCodeFilter knownCodeFilter;
+    private final ActivityFeedService activityFeedService;
+
+    @Autowired
+    public BarcodeImportService(ExcelService excelService, BarcodeService barcodeService,
+                                BarcodeRepository barcodeRepository,
+                                FrozenBarcodeRepository frozenBarcodeRepository,
+                                KnownCodeFilter knownCodeFilter,
+                                ActivityFeedService activityFeedService) {
+        this.excelService = excelService;
+        this.barcodeService = barcodeService;
+        this.barcodeRepository = barcodeRepository;
+        this.frozenBarcodeRepository = frozenBarcodeRepository;
+        this.knownCodeFilter = knownCodeFilter;
+        this.activityFeedService = activityFeedService;
+    }
+
+    /**
+     * Виконується як фонова задача: штрих-коди прив'язуються до запису batch,
+     * створеного під час постановки файлу в чергу.
+     */
+    public ImportJobResultDto importNewBarcodes(MultipartFile file, ImportBatch batch, ImportJobProgress progress) throws IOException {
+        long startNanos = System.nanoTime();
+        ImportReportDto report = new ImportReportDto(MAX_REPORTED_SKIPPED_CODES);
+
+        excelService.parseExcelInChunks(file, CHUNK_SIZE, chunk -> {
+            ImportChunkReportDto chunkReport = processChunk(chunk, report, batch);
+            progress.addProcessed(chunkReport.getRowCount());
+            progress.addAdded(chunkReport.getAddedCount());
+            progress.addSkipped(chunkReport.getSkippedCount());
+            if (chunkReport.isFailed()) {
+                progress.addFailed(chunkReport.getRowCount());
+            }
+        });
+
+        barcodeService.updateImportBatchCount(batch.getId(), (int) report.getAddedCount());
+        if (report.getAddedCount() > 0) {
+            activityFeedService.record(ActivityType.IMPORT,
+                    "Створено " + batch.getName() + ": додано " + report.getAddedCount() + " кодів", "/import/" + batch.getId());
+        }
+
+        log.info("Import of '{}' finished in {} ms: rows {}, added {}, skipped {}, failed chunks {}",
+                file.getOriginalFilename(), (System.nanoTime() - startNanos) / 1_000_000,
+                report.getTotalRows(), report.getAddedCount(), report.getSkippedCount(), report.getFailedChunks());
+
+        return toJobResult(report);
+    }
+
+    private ImportJobResultDto toJobResult(ImportReportDto report) {
+        if (report.getTotalRows() == 0) {
+            return new ImportJobResultDto("Файл порожній або не містить коректних даних.", null, 0, 0, 0, 0);
+        }
+
+        StringBuilder message = new StringBuilder("Файл оброблено. Рядків: ").append(report.getTotalRows())
+                .append(", додано нових: ").append(report.getAddedCount())
+                .append(", пропущено: ").append(report.getSkippedCount()).append(".");
+        if (report.getFailedChunks() > 0) {
+            message.append(" Не вдалося зберегти пачок: ").append(report.getFailedChunks())
+                    .append(" з ").append(report.getChunks().size()).append(".");
+        }
+
+        StringJoiner details = new StringJoiner("\n");
+        long failedRows = 0;
+        for (ImportChunkReportDto chunk : report.getChunks()) {
+            if (chunk.isFailed()) {
+                failedRows += chunk.getRowCount();
+                details.add("Пачка " + chunk.getChunkNumber() + " (" + chunk.getRowCount() + " рядків) не збережена: " + chunk.getError());
+            }
+        }
+        if (!report.getSkippedCodes().isEmpty()) {
+            details.add("Пропущено (вже існують у базі або дублюються у файлі):");
+            report.getSkippedCodes().forEach(details::add);
+            if (report.getOmittedSkippedCodes() > 0) {
+                details.add("... та ще " + report.getOmittedSkippedCodes() + " шт.");
+            }
+        }
+
+        return new ImportJobResultDto(message.toString(), details.length() > 0 ? details.toString() : null,
+                report.getTotalRows(), report.getAddedCount(), report.getSkippedCount(), failedRows);
+    }
+
+    private ImportChunkReportDto processChunk(List<Barcode> chunk, ImportReportDto report, ImportBatch batch) {
+        int chunkNumber = report.getChunks().size() + 1;
+        try {
+            // 1. Дублікати всередині пачки. Дублікати з попередніх пачок вже збережені
+            //    і будуть знайдені перевіркою в БД на кроці 2.
+            Map<String, Barcode> uniqueBarcodes = new LinkedHashMap<>();
+            List<String> skippedCodes = new ArrayList<>();
+            for (Barcode barcode : chunk) {
+                if (uniqueBarcodes.putIfAbsent(barcode.getCode(), barcode) != null) {
+                    skippedCodes.add(barcode.getCode() + " (дублікат у файлі)");
+                }
+            }
+
+            // 2. Коди, які вже є в "гарячій" (PostgreSQL) або "замороженій" (SQLite) базі.
+            //    У БД перевіряються лише коди, які фільтр не може відкинути.
+            List<String> codes = knownCodeFilter.filterPossiblyKnown(uniqueBarcodes.keySet());
+            Set<String> existingCodes = new HashSet<>();
+            if (!codes.isEmpty()) {
+                existingCodes.addAll(barcodeRepository.findExistingCodes(codes));
+                existingCodes.addAll(frozenBarcodeRepository.findExistingCodes(codes));
+                knownCodeFilter.recordVerified(existingCodes.size());
+            }
+
+            List<Barcode> newBarcodes = new ArrayList<>(uniqueBarcodes.size());
+            for (Barcode barcode : uniqueBarcodes.values()) {
+                if (existingCodes.contains(barcode.getCode())) {
+                    skippedCodes.add(barcode.getCode());
+                } else {
+                    newBarcodes.add(barcode);
+                }
+            }
+
+            // 3. Вставка
+            if (!newBarcodes.isEmpty()) {
+                barcodeService.insertImportChunk(batch, newBarcodes);
+            }
+
+            ImportChunkReportDto chunkReport = new ImportChunkReportDto(chunkNumber, chunk.size(), newBarcodes.size(), skippedCodes.size(), null);
+            report.addChunk(chunkReport);
+            skippedCodes.forEach(report::addSkippedCode);
+            return chunkReport;
+
+        } catch (Exception e) {
+            log.error("Import chunk {} failed: {}", chunkNumber, e.getMessage(), e);
+            ImportChunkReportDto chunkReport = new ImportChunkReportDto(chunkNumber, chunk.size(), 0, 0, e.getMessage());
+            report.addChunk(chunkReport);
+            return chunkReport;
+        }
+    }
+}
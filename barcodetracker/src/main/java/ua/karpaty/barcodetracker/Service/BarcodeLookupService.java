@@ -0,0 +1,235 @@
+package ua.karpaty.barcodetracker.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ua.karpaty.barcodetracker.Dto.LookupStatsDto;
+import ua.karpaty.barcodetracker.Entity.Barcode;
+import ua.karpaty.barcodetracker.Entity.Frozen.FrozenBarcode;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Пошук штрих-коду за точним значенням в обох базах (/barcodes/search).
+ * <p>
+ * Спершу перевіряється кеш нещодавно знайдених кодів. Основна база перевіряється завжди:
+ * код, записаний щойно, потрапляє в KnownCodeFilter лише після коміту. Фільтр вирішує тільки,
+ * чи потрібен запит до frozen-бази (SQLite): для коду, якого фільтр точно не бачив, його немає.
+ * Інакше запит до frozen-бази запускається в frozenLookupExecutor одночасно із запитом до
+ * основної, тож промах в основній базі не додає послідовного очікування.
+ * Збіг в основній базі має перевагу, як і раніше.
+ * <p>
+ * У кеші лише знайдені коди: id в основній базі або запис архіву. Змінити це може
+ * тільки архівація (код переходить у frozen-базу), тому BarcodeArchiveService
+ * передає перенесені коди в invalidate(...), який спрацьовує після коміту.
+ */
+@Slf4j
+@Service
+public class BarcodeLookupService {
+
+    private final BarcodeService barcodeService;
+    private final FrozenDataService frozenDataService;
+    private final KnownCodeFilter knownCodeFilter;
+    private final ThreadPoolTaskExecutor frozenLookupExecutor;
+    private final int maxEntries;
+    private final long ttlMs;
+
+    private final LinkedHashMap<String, CachedResult> entries;
+    private final AtomicLong invalidationEpoch = new AtomicLong();
+
+    // Кільцевий буфер тривалостей останніх запитів для p50/p99
+    private final long[] latencyNanos;
+    private long latencyCount;
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong hotHits = new AtomicLong();
+    private final AtomicLong frozenHits = new AtomicLong();
+    private final AtomicLong notFound = new AtomicLong();
+    // Пошуки, для яких фільтр дозволив не питати frozen-базу
+    private final AtomicLong filterSkips = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Результат пошуку: hotId - id в основній базі, frozen - запис архіву; обидва null - не знайдено.
+     */
+    public record Result(Long hotId, FrozenBarcode frozen) {
+
+        static final Result NOT_FOUND = new Result(null, null);
+
+        public boolean isFound() {
+            return hotId != null || frozen != null;
+        }
+    }
+
+    private record CachedResult(Result result, long loadedAtMs) {
+    }
+
+    @Autowired
+    public BarcodeLookupService(BarcodeService barcodeService, FrozenDataService frozenDataService,
+                                KnownCodeFilter knownCodeFilter,
+                                @Qualifier("frozenLookupExecutor") ThreadPoolTaskExecutor frozenLookupExecutor,
+                                @Value("${bct.lookup.cache.max-entries:10000}") int maxEntries,
+                                @Value("${bct.lookup.cache.ttl-ms:600000}") long ttlMs,
+                                @Value("${bct.lookup.latency-samples:1024}") int latencySamples) {
+        this.barcodeService = barcodeService;
+        this.frozenDataService = frozenDataService;
+        this.knownCodeFilter = knownCodeFilter;
+        this.frozenLookupExecutor = frozenLookupExecutor;
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+        this.latencyNanos = new long[Math.max(1, latencySamples)];
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                return size() > BarcodeLookupService.this.maxEntries;
+            }
+        };
+    }
+
+    public Result lookup(String code) {
+        long startNanos = System.nanoTime();
+        lookups.incrementAndGet();
+        try {
+            return find(code.trim());
+        } finally {
+            recordLatency(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Скидає записи для кодів після коміту поточної транзакції (або одразу, якщо транзакції немає).
+     */
+    public void invalidate(Collection<String> codes) {
+        Set<String> keys = new HashSet<>(codes);
+        if (keys.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateNow(keys);
+                }
+            });
+        } else {
+            invalidateNow(keys);
+        }
+    }
+
+    public LookupStatsDto getStats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        long[] samples;
+        synchronized (latencyNanos) {
+            samples = Arrays.copyOf(latencyNanos, (int) Math.min(latencyCount, latencyNanos.length));
+        }
+        Arrays.sort(samples);
+        return new LookupStatsDto(
+                size,
+                maxEntries,
+                ttlMs,
+                lookups.get(),
+                cacheHits.get(),
+                hotHits.get(),
+                frozenHits.get(),
+                notFound.get(),
+                filterSkips.get(),
+                invalidations.get(),
+                samples.length,
+                percentileMs(samples, 0.50),
+                percentileMs(samples, 0.99));
+    }
+
+    private Result find(String code) {
+        synchronized (entries) {
+            CachedResult cached = entries.get(code);
+            if (cached != null) {
+                if (System.currentTimeMillis() - cached.loadedAtMs() < ttlMs) {
+                    cacheHits.incrementAndGet();
+                    return cached.result();
+                }
+                entries.remove(code);
+            }
+        }
+
+        long epoch = invalidationEpoch.get();
+        CompletableFuture<Optional<FrozenBarcode>> frozenProbe = null;
+        if (knownCodeFilter.mightBeKnown(code)) {
+            frozenProbe = CompletableFuture.supplyAsync(() -> frozenDataService.findByCode(code), frozenLookupExecutor);
+        } else {
+            filterSkips.incrementAndGet();
+        }
+
+        Result result;
+        Optional<Barcode> hot = barcodeService.findByCode(code);
+        if (hot.isPresent()) {
+            // Відповідь архіву вже не потрібна; запит до SQLite просто завершиться у своєму потоці
+            if (frozenProbe != null) {
+                frozenProbe.cancel(false);
+            }
+            hotHits.incrementAndGet();
+            result = new Result(hot.get().getId(), null);
+        } else {
+            Optional<FrozenBarcode> frozen = frozenProbe != null ? awaitFrozen(frozenProbe) : Optional.empty();
+            if (frozen.isEmpty()) {
+                notFound.incrementAndGet();
+                return Result.NOT_FOUND;
+            }
+            frozenHits.incrementAndGet();
+            result = new Result(null, frozen.get());
+        }
+
+        synchronized (entries) {
+            if (invalidationEpoch.get() == epoch) {
+                entries.put(code, new CachedResult(result, System.currentTimeMillis()));
+            }
+        }
+        return result;
+    }
+
+    private static Optional<FrozenBarcode> awaitFrozen(CompletableFuture<Optional<FrozenBarcode>> frozenProbe) {
+        try {
+            return frozenProbe.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void invalidateNow(Set<String> codes) {
+        synchronized (entries) {
+            invalidationEpoch.incrementAndGet();
+            entries.keySet().removeAll(codes);
+        }
+        invalidations.incrementAndGet();
+        log.debug("Lookup cache: {} codes invalidated", codes.size());
+    }
+
+    private void recordLatency(long nanos) {
+        synchronized (latencyNanos) {
+            latencyNanos[(int) (latencyCount % latencyNanos.length)] = nanos;
+            latencyCount++;
+        }
+    }
+
+    private static double percentileMs(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+}
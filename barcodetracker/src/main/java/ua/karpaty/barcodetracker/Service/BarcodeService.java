@@ -1,20 +1,28 @@
 package ua.karpaty.barcodetracker.Service;
 
 import com.github.pjfanning.xlsx.StreamingReader;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.*;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import ua.karpaty.barcodetracker.Dto.*;
+import ua.karpaty.barcodetracker.Entity.ActivityType;
 import ua.karpaty.barcodetracker.Entity.Barcode;
+import ua.karpaty.barcodetracker.Entity.BarcodeStatus;
 import ua.karpaty.barcodetracker.Entity.ImportBatch;
+import ua.karpaty.barcodetracker.Entity.ImportJobType;
 import ua.karpaty.barcodetracker.Entity.LocationHistory;
+import ua.karpaty.barcodetracker.Entity.MonthlyStatMetric;
 import ua.karpaty.barcodetracker.Entity.StatusHistory;
 import ua.karpaty.barcodetracker.Repository.BarcodeRepository;
 import ua.karpaty.barcodetracker.Repository.ImportBatchRepository;
@@ -24,13 +32,13 @@ import ua.karpaty.barcodetracker.Repository.StatusHistoryRepository;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.LocalTime;
+import java.time.YearMonth;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 @Slf4j
@@ -41,20 +49,39 @@ public class BarcodeService {
     private final ImportBatchRepository importBatchRepository;
     private final LocationHistoryRepository locationHistoryRepository;
     private final StatusHistoryRepository statusHistoryRepository;
-    private final Map<String, Integer> locationMap;
+    private final LocationLayoutService locationLayoutService;
 
     private final FrozenDataService frozenDataService;
+    private final KnownCodeFilter knownCodeFilter;
+    private final DashboardCounterService dashboardCounterService;
+    private final MonthlyStatsService monthlyStatsService;
+    private final ApnInventoryCache apnInventoryCache;
+    private final ActivityFeedService activityFeedService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private static final String STATUS_OUT = BarcodeStatus.OUT.getCode();
 
     @Autowired
     public BarcodeService(BarcodeRepository barcodeRepository, ImportBatchRepository importBatchRepository,
                           LocationHistoryRepository locationHistoryRepository,
-                          StatusHistoryRepository statusHistoryRepository, Map<String, Integer> locationMap, FrozenDataService frozenDataService) {
+                          StatusHistoryRepository statusHistoryRepository, LocationLayoutService locationLayoutService,
+                          FrozenDataService frozenDataService,
+                          KnownCodeFilter knownCodeFilter, DashboardCounterService dashboardCounterService,
+                          MonthlyStatsService monthlyStatsService, ApnInventoryCache apnInventoryCache,
+                          ActivityFeedService activityFeedService) {
         this.barcodeRepository = barcodeRepository;
         this.importBatchRepository = importBatchRepository;
         this.locationHistoryRepository = locationHistoryRepository;
         this.statusHistoryRepository = statusHistoryRepository;
-        this.locationMap = locationMap;
+        this.locationLayoutService = locationLayoutService;
         this.frozenDataService = frozenDataService;
+        this.knownCodeFilter = knownCodeFilter;
+        this.dashboardCounterService = dashboardCounterService;
+        this.monthlyStatsService = monthlyStatsService;
+        this.apnInventoryCache = apnInventoryCache;
+        this.activityFeedService = activityFeedService;
     }
 
     public Optional<Barcode> findByCode(String code) {
@@ -67,104 +94,153 @@ public class BarcodeService {
     }
 
     @Transactional
-    public void saveAll(List<Barcode> barcodes) {
-        if (barcodes == null || barcodes.isEmpty()) return;
+    public ImportBatch createImportBatch(int barcodeCount) {
+        ImportBatch batch = new ImportBatch(null, LocalDateTime.now());
+        batch.setBarcodeCount(barcodeCount);
+        batch = importBatchRepository.save(batch);
+        // Назва з id збереженого запису: два одночасні імпорти не отримають однакову
+        batch.setName(importName(batch.getId()));
+        return batch;
+    }
 
-        long nextId = importBatchRepository.findTopByOrderByIdDesc()
-                .map(lastBatch -> lastBatch.getId() + 1)
-                .orElse(1L);
-        ImportBatch batch = new ImportBatch("Import - " + nextId, LocalDateTime.now());
-        importBatchRepository.save(batch);
+    @Transactional
+    public void updateImportBatchCount(Long batchId, int barcodeCount) {
+        importBatchRepository.findById(batchId).ifPresent(batch -> batch.setBarcodeCount(barcodeCount));
+    }
 
-        for (Barcode b : barcodes) {
+    /**
+     * Записує пачку нових штрих-кодів разом з початковою історією.
+     * Пачка йде JDBC-батчем (hibernate.jdbc.batch_size), після чого контекст
+     * очищується, щоб не тримати в пам'яті весь імпорт.
+     */
+    @Transactional
+    public void insertImportChunk(ImportBatch batch, List<Barcode> chunk) {
+        for (Barcode b : chunk) {
             b.setImportBatch(batch);
             LocalDateTime initialDate = b.getParsedDate() != null ? b.getParsedDate() : LocalDateTime.now();
             b.setCreationDate(initialDate);
             b.setLastUpdated(initialDate);
         }
 
-        List<Barcode> savedBarcodes = barcodeRepository.saveAll(barcodes);
+        List<Barcode> savedBarcodes = barcodeRepository.saveAll(chunk);
 
-        List<LocationHistory> locHistories = new ArrayList<>();
-        List<StatusHistory> statHistories = new ArrayList<>();
+        List<LocationHistory> locHistories = new ArrayList<>(savedBarcodes.size());
+        List<StatusHistory> statHistories = new ArrayList<>(savedBarcodes.size());
+        DashboardCounterService.Delta counters = new DashboardCounterService.Delta();
+        Set<YearMonth> createdMonths = new HashSet<>();
 
         for (Barcode b : savedBarcodes) {
             LocalDateTime changeTime = b.getLastUpdated();
+            counters.barcodeAdded(b.getStatus(), b.getLocation());
+            createdMonths.add(YearMonth.from(b.getCreationDate()));
 
             locHistories.add(createLocationHistory(b, null, b.getLocation(), changeTime));
-            statHistories.add(createStatusHistory(b, null, b.getStatus(), changeTime));
+            statHistories.add(createStatusHistory(b, null, BarcodeStatus.codeOf(b.getStatus()), changeTime));
         }
 
         locationHistoryRepository.saveAll(locHistories);
         statusHistoryRepository.saveAll(statHistories);
+
+        entityManager.flush();
+        entityManager.clear();
+        dashboardCounterService.apply(counters);
+        // Дата з файлу може належати вже закритому місяцю - його підсумок треба перерахувати
+        monthlyStatsService.invalidate(MonthlyStatMetric.ADDED, createdMonths);
+        apnInventoryCache.invalidate(chunk.stream().map(Barcode::getApn).toList());
+
+        // У фільтр коди потраплять після коміту цієї транзакції
+        knownCodeFilter.addAll(chunk.stream().map(Barcode::getCode).toList());
     }
 
+    public static String importName(Long batchId) {
+        return "Import - " + batchId;
+    }
+
+    // Лише підказка для форми завантаження: справжню назву імпорт отримує з id свого запису
     public String getNextImportName() {
-        return importBatchRepository.findTopByOrderByIdDesc()
-                .map(lastBatch -> "Import - " + (lastBatch.getId() + 1))
-                .orElse("Import - 1");
+        return importBatchRepository.findTopByJobTypeOrderByIdDesc(ImportJobType.NEW_BARCODES)
+                .map(lastBatch -> importName(lastBatch.getId() + 1))
+                .orElse(importName(1L));
     }
 
     public List<ImportBatch> findAllImportBatches() {
-        return importBatchRepository.findAllByOrderByIdDesc();
+        return importBatchRepository.findAllByJobTypeOrderByIdDesc(ImportJobType.NEW_BARCODES);
     }
 
-    public Page<Barcode> findBarcodesByImportId(Long batchId, Pageable pageable) {
-        return barcodeRepository.findByImportBatchId(batchId, pageable);
+    public CursorPageDto<BarcodeListView> findBarcodesByImportId(Long batchId, String cursor, int page, int size) {
+        KeysetScrollPosition position = KeysetCursors.decode(cursor);
+        KeysetCursors.KeyRange<LocalDateTime> range = KeysetCursors.leadingKeyRange(position, "creationDate", false);
+        Window<BarcodeListView> window = barcodeRepository.findByImportBatchIdAndCreationDateBetweenOrderByCreationDateDescIdDesc(
+                batchId, range.from(), range.to(), position, Limit.of(size));
+        Long total = importBatchRepository.findById(batchId)
+                .map(ImportBatch::getBarcodeCount)
+                .map(Integer::longValue)
+                .orElse(null);
+        return KeysetCursors.toPage(window, position, page, size, total);
     }
 
     @Transactional
-    public void updateStatus(Long id, String newStatus) {
+    public void updateStatus(Long id, BarcodeStatus newStatus) {
         Barcode barcode = barcodeRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Barcode not found with ID: " + id));
 
-        String oldStatus = barcode.getStatus();
+        BarcodeStatus oldStatus = barcode.getStatus();
 
         barcode.setStatus(newStatus);
         barcode.setLastUpdated(LocalDateTime.now());
 
         StatusHistory history = new StatusHistory(
                 barcode,
-                oldStatus,
-                newStatus,
+                BarcodeStatus.codeOf(oldStatus),
+                newStatus.getCode(),
                 LocalDateTime.now()
         );
 
         barcode.getStatusHistory().add(history);
 
         barcodeRepository.save(barcode);
+        dashboardCounterService.apply(new DashboardCounterService.Delta()
+                .statusChanged(barcode.getLocation(), oldStatus, newStatus));
+        apnInventoryCache.invalidate(barcode.getApn());
+        if (newStatus.isOut()) {
+            activityFeedService.record(ActivityType.DISCARD, "Код " + barcode.getCode() + " списано", "/barcodes/" + id);
+        } else {
+            activityFeedService.record(ActivityType.STATUS,
+                    "Статус коду " + barcode.getCode() + " змінено на " + newStatus.getCode(), "/barcodes/" + id);
+        }
     }
 
-    public List<Barcode> findAllOutSortedByDate() {
-        return barcodeRepository.findByStatusOrderByLastUpdatedDesc("out");
-    }
-
-    public List<Barcode> findOutByDateRange(LocalDateTime start, LocalDateTime end) {
-        return barcodeRepository.findByStatusAndLastUpdatedBetweenOrderByLastUpdatedDesc("out", start, end);
-    }
-
-    public List<Barcode> findOutByDateAndApn(LocalDateTime from, LocalDateTime to, String apn) {
-        return barcodeRepository.findByStatusAndDateRangeAndApn("out", from, to, apn);
-    }
-
-    public List<Barcode> findOutByApn(String apn) {
-        return barcodeRepository.findByStatusAndApnOrderByLastUpdatedDesc("out", apn);
-    }
-
-    public Page<Barcode> findAllOutSortedByDate(Pageable pageable) {
-        return barcodeRepository.findByStatusOrderByLastUpdatedDesc("out", pageable);
+    public CursorPageDto<BarcodeListView> findAllOutSortedByDate(String cursor, int page, int size) {
+        KeysetScrollPosition position = KeysetCursors.decode(cursor);
+        KeysetCursors.KeyRange<LocalDateTime> range = KeysetCursors.leadingKeyRange(position, "lastUpdated", false);
+        Window<BarcodeListView> window = barcodeRepository.findByStatusAndLastUpdatedBetweenOrderByLastUpdatedDescIdDesc(
+                STATUS_OUT, range.from(), range.to(), position, Limit.of(size));
+        Long total = dashboardCounterService.isInitialized() ? dashboardCounterService.getDiscardedHot() : null;
+        return KeysetCursors.toPage(window, position, page, size, total);
     }
 
-    public Page<Barcode> findOutByDateRange(LocalDateTime start, LocalDateTime end, Pageable pageable) {
-        return barcodeRepository.findByStatusAndLastUpdatedBetweenOrderByLastUpdatedDesc("out", start, end, pageable);
+    public CursorPageDto<BarcodeListView> findOutByDateRange(LocalDateTime start, LocalDateTime end, String cursor, int page, int size) {
+        KeysetScrollPosition position = KeysetCursors.decode(cursor);
+        KeysetCursors.KeyRange<LocalDateTime> range = KeysetCursors.leadingKeyRange(position, "lastUpdated", false).within(start, end);
+        Window<BarcodeListView> window = barcodeRepository.findByStatusAndLastUpdatedBetweenOrderByLastUpdatedDescIdDesc(
+                STATUS_OUT, range.from(), range.to(), position, Limit.of(size));
+        return KeysetCursors.toPage(window, position, page, size, null);
     }
 
-    public Page<Barcode> findOutByDateAndApn(LocalDateTime from, LocalDateTime to, String apn, Pageable pageable) {
-        return barcodeRepository.findByStatusAndDateRangeAndApn("out", from, to, apn, pageable);
+    public CursorPageDto<BarcodeListView> findOutByDateAndApn(LocalDateTime from, LocalDateTime to, String apn, String cursor, int page, int size) {
+        KeysetScrollPosition position = KeysetCursors.decode(cursor);
+        KeysetCursors.KeyRange<LocalDateTime> range = KeysetCursors.leadingKeyRange(position, "lastUpdated", false).within(from, to);
+        Window<BarcodeListView> window = barcodeRepository.findByStatusAndLastUpdatedBetweenAndApnOrderByLastUpdatedDescIdDesc(
+                STATUS_OUT, range.from(), range.to(), apn, position, Limit.of(size));
+        return KeysetCursors.toPage(window, position, page, size, null);
     }
 
-    public Page<Barcode> findOutByApn(String apn, Pageable pageable) {
-        return barcodeRepository.findByStatusAndApnOrderByLastUpdatedDesc("out", apn, pageable);
+    public CursorPageDto<BarcodeListView> findOutByApn(String apn, String cursor, int page, int size) {
+        KeysetScrollPosition position = KeysetCursors.decode(cursor);
+        KeysetCursors.KeyRange<LocalDateTime> range = KeysetCursors.leadingKeyRange(position, "lastUpdated", false);
+        Window<BarcodeListView> window = barcodeRepository.findByStatusAndLastUpdatedBetweenAndApnOrderByLastUpdatedDescIdDesc(
+                STATUS_OUT, range.from(), range.to(), apn, position, Limit.of(size));
+        return KeysetCursors.toPage(window, position, page, size, null);
     }
 
     @Transactional
@@ -189,20 +265,20 @@ public class BarcodeService {
         return new ChartDataDto(labels, data);
     }
 
-    public Map<String, List<String>> readFirstColumnBarcodes(MultipartFile file, int maxRows) throws IOException {
-        List<String> codesFromFile = new ArrayList<>();
+    /**
+     * Потоково читає цифрові коди з першої колонки і віддає їх пачками по chunkSize,
+     * не тримаючи весь файл у пам'яті. Повертає кількість прочитаних кодів.
+     */
+    public long readFirstColumnCodes(MultipartFile file, int chunkSize, Consumer<List<String>> consumer) throws IOException {
+        long total = 0;
+        List<String> chunk = new ArrayList<>(chunkSize);
         try (InputStream is = file.getInputStream();
              Workbook workbook = StreamingReader.builder()
                      .rowCacheSize(100)
                      .bufferSize(4096)
                      .open(is)) {
             Sheet sheet = workbook.getSheetAt(0);
-            int rowCount = 0;
             for (Row row : sheet) {
-                if (rowCount++ > maxRows) {
-                    return null;
-                }
-
                 Cell codeCell = row.getCell(0);
                 if (codeCell == null) continue;
 
@@ -213,39 +289,41 @@ public class BarcodeService {
                     code = String.valueOf((long) codeCell.getNumericCellValue()).trim();
                 }
 
-                if (code != null && !code.isEmpty() && code.matches("\\d+")) {
-                    codesFromFile.add(code);
+                if (code != null && isDigits(code)) {
+                    chunk.add(code);
+                    total++;
+                    if (chunk.size() == chunkSize) {
+                        consumer.accept(chunk);
+                        chunk = new ArrayList<>(chunkSize);
+                    }
                 }
             }
         } catch (Exception e) {
             throw new IOException("Помилка читання Excel файлу: " + e.getMessage(), e);
         }
+        if (!chunk.isEmpty()) {
+            consumer.accept(chunk);
+        }
+        return total;
+    }
 
-        Set<String> uniqueCodes = new HashSet<>();
-        Set<String> duplicateCodes = new HashSet<>();
-
-        for (String code : codesFromFile) {
-            if (!uniqueCodes.add(code)) {
-                duplicateCodes.add(code);
+    private static boolean isDigits(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
             }
         }
-
-        Map<String, List<String>> result = new HashMap<>();
-        result.put("codesToProcess", new ArrayList<>(uniqueCodes));
-        result.put("duplicateCodes", new ArrayList<>(duplicateCodes));
-
-        return result;
+        return true;
     }
 
-    public List<Barcode> findTopOutdatedBarcodes(int limit) {
+    public List<BarcodeListView> findTopOutdatedBarcodes(int limit) {
         LocalDateTime oneYearAgo = LocalDateTime.now().minusYears(1);
         Pageable pageable = PageRequest.of(0, limit, Sort.by("creationDate").ascending());
-        return barcodeRepository.findByCreationDateBeforeAndStatusNot(oneYearAgo, "out", pageable).getContent();
-    }
-
-    public List<Barcode> findAllOutdatedBarcodes() {
-        LocalDateTime oneYearAgo = LocalDateTime.now().minusYears(1);
-        return barcodeRepository.findByCreationDateBeforeAndStatusNot(oneYearAgo, "out");
+        return barcodeRepository.findByCreationDateBeforeAndActiveTrue(oneYearAgo, pageable);
     }
 
     private LocationHistory createLocationHistory(Barcode barcode, String oldLoc, String newLoc, LocalDateTime time) {
@@ -278,28 +356,53 @@ public class BarcodeService {
         barcodeRepository.save(barcode);
 
         locationHistoryRepository.save(new LocationHistory(barcode, oldLocation, fullLocation, LocalDateTime.now()));
+        dashboardCounterService.apply(new DashboardCounterService.Delta()
+                .locationChanged(barcode.getStatus(), oldLocation, fullLocation));
+        apnInventoryCache.invalidate(barcode.getApn());
+        activityFeedService.record(ActivityType.MOVE,
+                "Код " + barcode.getCode() + " переміщено на " + fullLocation, "/barcodes/" + id);
     }
 
-    public Page<Barcode> findAllByStatusNot(String status, int page, int size) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by("creationDate").ascending());
-        return barcodeRepository.findAllByStatusNot(status, pageable);
+    // Штрих-коди на складі (не 'out')
+    public CursorPageDto<BarcodeListView> findAllActive(String cursor, int page, int size) {
+        KeysetScrollPosition position = KeysetCursors.decode(cursor);
+        KeysetCursors.KeyRange<LocalDateTime> range = KeysetCursors.leadingKeyRange(position, "creationDate", true);
+        Window<BarcodeListView> window = barcodeRepository.findByActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc(
+                range.from(), range.to(), position, Limit.of(size));
+        Long total = dashboardCounterService.isInitialized() ? dashboardCounterService.getTotalInDb() : null;
+        return KeysetCursors.toPage(window, position, page, size, total);
     }
 
-    public Page<Barcode> findByApnContainingAndStatusNot(String apn, String status, int page, int size) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by("creationDate").ascending());
-        return barcodeRepository.findByApnContainingAndStatusNot(apn, status, pageable);
+    public CursorPageDto<BarcodeListView> findActiveByApnContaining(String apn, String cursor, int page, int size) {
+        KeysetScrollPosition position = KeysetCursors.decode(cursor);
+        KeysetCursors.KeyRange<LocalDateTime> range = KeysetCursors.leadingKeyRange(position, "creationDate", true);
+        Window<BarcodeListView> window = barcodeRepository.findByApnContainingAndActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc(
+                apn, range.from(), range.to(), position, Limit.of(size));
+        return KeysetCursors.toPage(window, position, page, size, null);
     }
 
     @Transactional
     public DashboardStatsDto getDashboardStats() {
-        // 1. Отримуємо перші 4 показники
-        DashboardStatsInterface stats = barcodeRepository.getCombinedDashboardStats();
-
-        // 2. Отримуємо загальну кількість з "замороженої" бази
-        long frozenCount = frozenDataService.countTotalFrozenBarcodes();
+        // 1-2. Лічильники з пам'яті; поки перша звірка не завершилась - прямі запити до обох баз
+        long totalInDb, totalHot, discardedHot, frozenCount;
+        String mostPopularLocation;
+        if (dashboardCounterService.isInitialized()) {
+            totalInDb = dashboardCounterService.getTotalInDb();
+            totalHot = dashboardCounterService.getTotalHot();
+            discardedHot = dashboardCounterService.getDiscardedHot();
+            frozenCount = dashboardCounterService.getFrozenTotal();
+            mostPopularLocation = dashboardCounterService.getMostPopularLocation();
+        } else {
+            DashboardStatsInterface stats = barcodeRepository.getCombinedDashboardStats();
+            totalInDb = stats.getTotalInDb();
+            totalHot = stats.getTotalAdded();
+            discardedHot = stats.getTotalDiscarded();
+            mostPopularLocation = stats.getMostPopularLocation();
+            frozenCount = frozenDataService.countTotalFrozenBarcodes();
+        }
 
         // 3. Отримуємо 5-й показник (lastImportCount)
-        Optional<ImportBatch> lastImportOpt = importBatchRepository.findTopByOrderByIdDesc();
+        Optional<ImportBatch> lastImportOpt = importBatchRepository.findTopByJobTypeOrderByIdDesc(ImportJobType.NEW_BARCODES);
         long lastImportCount = 0;
         if (lastImportOpt.isPresent()) {
             // === ОСЬ ВИПРАВЛЕННЯ ДЛЯ ЧИТАННЯ ===
@@ -312,219 +415,148 @@ public class BarcodeService {
 
         // 4. Створюємо DTO через конструктор
         return new DashboardStatsDto(
-                stats.getTotalInDb(),
-                stats.getTotalAdded() + frozenCount,
-                stats.getTotalDiscarded() + frozenCount,
-                stats.getMostPopularLocation() != null ? stats.getMostPopularLocation() : "-",
+                totalInDb,
+                totalHot + frozenCount,
+                discardedHot + frozenCount,
+                mostPopularLocation != null ? mostPopularLocation : "-",
                 lastImportCount
         );
     }
 
     public ChartDataDto getMonthlyAddedStats() {
-        LocalDateTime startDate = LocalDateTime.now().minusYears(1).withDayOfMonth(1);
-        List<MonthlyStatDto> stats = barcodeRepository.getMonthlyAddedStats(startDate);
-        return formatChartData(stats, startDate);
+        return monthlyStatsService.getChart(MonthlyStatMetric.ADDED);
     }
 
     public ChartDataDto getMonthlyDiscardStats() {
-        LocalDateTime startDate = LocalDateTime.now().minusYears(1).withDayOfMonth(1);
-        List<MonthlyStatDto> stats = statusHistoryRepository.getMonthlyDiscardStats(startDate);
-        return formatChartData(stats, startDate);
+        return monthlyStatsService.getChart(MonthlyStatMetric.DISCARDED);
     }
 
-    private ChartDataDto formatChartData(List<MonthlyStatDto> stats, LocalDateTime startDate) {
-        List<String> labels = new ArrayList<>();
-        List<Long> data = new ArrayList<>();
-
-        Map<String, Long> statsMap = stats.stream()
-                .collect(Collectors.toMap(
-                        s -> s.getYear() + "-" + s.getMonth(),
-                        MonthlyStatDto::getCount
-                ));
-
-        LocalDateTime end = LocalDateTime.now().withDayOfMonth(1);
-        LocalDateTime current = startDate;
-
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM yyyy", new Locale("uk"));
-
-        while (!current.isAfter(end)) {
-            labels.add(current.format(formatter));
-            String key = current.getYear() + "-" + current.getMonthValue();
-            data.add(statsMap.getOrDefault(key, 0L));
-            current = current.plusMonths(1);
-        }
-
-        return new ChartDataDto(labels, data);
-    }
-
-    public Page<Barcode> findWarehouseView(String rack, String bay, Pageable pageable) {
+    public CursorPageDto<BarcodeListView> findWarehouseView(String rack, String bay, String cursor, int page, int size) {
         String trimRack = (rack != null) ? rack.trim() : null;
         String trimBay = (bay != null) ? bay.trim() : null;
         boolean rackPresent = trimRack != null && !trimRack.isBlank();
         boolean bayPresent = trimBay != null && !trimBay.isBlank();
 
-        Pageable dateSortPageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by("creationDate").ascending());
-        Pageable locationSortPageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by("creationDate").ascending());
-
+        KeysetScrollPosition position = KeysetCursors.decode(cursor);
+        KeysetCursors.KeyRange<LocalDateTime> range = KeysetCursors.leadingKeyRange(position, "creationDate", true);
+        Limit limit = Limit.of(size);
+        Window<BarcodeListView> window;
+        Long total = null;
 
         if (rackPresent && bayPresent) {
             log.info("Filtering warehouse view by EXACT rack '{}' and bay '{}', sorting by date.", trimRack, trimBay);
-            return barcodeRepository.findByRackAndBayExactOrderByCreationDateAsc(trimRack, trimBay, dateSortPageable);
+            window = barcodeRepository.findByRackAndBayAndActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc(
+                    trimRack.toLowerCase(), trimBay.toLowerCase(), range.from(), range.to(), position, limit);
 
         } else if (rackPresent) {
             log.info("Filtering warehouse view by rack '{}' (starts with), sorting by date.", trimRack);
-            String canonicalRackKey = findCanonicalKey(trimRack, locationMap);
-            if (canonicalRackKey == null) {
+            LocationRegistry.Rack layoutRack = locationLayoutService.current().findRack(trimRack);
+            if (layoutRack == null) {
                 log.warn("Canonical key not found for rack '{}'", trimRack);
-                return Page.empty(pageable);
+                return KeysetCursors.toPage(Window.from(List.of(), i -> position), position, page, size, 0L);
             }
+            String canonicalRackKey = layoutRack.getName();
 
-            Integer bayCount = locationMap.getOrDefault(canonicalRackKey, -1);
-
-            if (bayCount == 0) {
+            if (layoutRack.getBayCount() == 0) {
                 log.info("Rack '{}' has no bays, performing exact search, sorting by date.", canonicalRackKey);
-                return barcodeRepository.findByRackExactOrderByCreationDateAsc(canonicalRackKey, dateSortPageable);
+                window = barcodeRepository.findByRackAndBayIsNullAndExcessFalseAndActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc(
+                        canonicalRackKey.toLowerCase(), range.from(), range.to(), position, limit);
             } else {
                 log.info("Rack '{}' has bays, performing starts-with search, sorting by date.", canonicalRackKey);
-                return barcodeRepository.findByRackStartsWithOrderByCreationDateAsc(canonicalRackKey, dateSortPageable);
+                window = barcodeRepository.findByRackAndBayIsNotNullAndActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc(
+                        canonicalRackKey.toLowerCase(), range.from(), range.to(), position, limit);
             }
 
         } else if (bayPresent) {
             log.info("Filtering warehouse view by bay '{}' (ends with), sorting by date.", trimBay);
-            return barcodeRepository.findByBayEndsWithOrderByCreationDateAsc(trimBay, dateSortPageable);
+            window = barcodeRepository.findByBayAndRackNotAndActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc(
+                    trimBay.toLowerCase(), "wires", range.from(), range.to(), position, limit);
 
         } else {
             log.info("No filters applied to warehouse view, sorting by creation date.");
-            return barcodeRepository.findWarehouseViewAllOrderByCreationDateAsc(locationSortPageable); // Сортування за датою
+            window = barcodeRepository.findByRackNotAndActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc(
+                    "wires", range.from(), range.to(), position, limit);
+            if (dashboardCounterService.isInitialized()) {
+                total = dashboardCounterService.getTotalInDb() - dashboardCounterService.getActiveInLocation("wires");
+            }
         }
+        return KeysetCursors.toPage(window, position, page, size, total);
     }
 
-    public Map<LocationDTO, List<Barcode>> findMaterialByApnGroupedByLocation(String apn) {
-
-        List<Barcode> barcodes = barcodeRepository.findByApnAndStatusNotOrderByCreationDateAsc(apn.trim(), "out");
-
-        return barcodes.stream()
-                .collect(Collectors.groupingBy(
-                        barcode -> parseLocationToDTO(barcode.getLocation()),
-                        LinkedHashMap::new,
-                        Collectors.toList()
-                ));
-    }
-
-    private LocationDTO parseLocationToDTO(String location) {
-        if (location == null || location.isBlank()) {
-            return new LocationDTO("N/A", "");
-        }
-        location = location.trim();
-
-        Matcher matcher = Pattern.compile("\\d").matcher(location);
-        if (matcher.find()) {
-            int index = matcher.start();
-            if (index > 0) {
-                String rackPart = location.substring(0, index);
-                String bayPart = location.substring(index);
-                return new LocationDTO(rackPart, bayPart);
-            } else {
-                return new LocationDTO("", location);
-            }
-        } else {
-            return new LocationDTO(location, "");
-        }
+    public Map<LocationDTO, List<ApnInventoryItemDto>> findMaterialByApnGroupedByLocation(String apn) {
+        return apnInventoryCache.get(apn);
     }
 
-    public List<String> getAllRacks() {
-        return new ArrayList<>(locationMap.keySet());
+    // Журнал дій дашборду - стрічка ActivityFeedService (останні події тримаються в пам'яті)
+    public List<ActivityLogDto> getRecentActivities(int limit) {
+        return activityFeedService.getRecent(limit);
     }
 
-    public List<String> getAllBays() {
-        int maxBay = locationMap.values().stream()
-                .max(Integer::compare)
-                .orElse(1);
+    // Вивантаження читають БД потоком і пишуть XLSX (SXSSF) або CSV, тож пам'ять
+    // не залежить від кількості рядків. Транзакція потрібна, щоб курсор лишався відкритим.
 
-        return IntStream.rangeClosed(1, maxBay)
-                .mapToObj(String::valueOf)
-                .collect(Collectors.toList());
+    @Transactional
+    public void exportAllBarcodes(ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<BarcodeExportDto> rows = barcodeRepository.streamActiveExport()) {
+            writeBarcodeRows(rows, format, false, out);
+        }
     }
 
-    private String findCanonicalKey(String key, Map<String, Integer> map) {
-        if (key == null) return null;
-        for (String mapKey : map.keySet()) {
-            if (mapKey.equalsIgnoreCase(key)) {
-                return mapKey;
-            }
+    @Transactional
+    public void exportBarcodesByApn(String apn, ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<BarcodeExportDto> rows = barcodeRepository.streamActiveExportByApnContainingIgnoreCase(apn)) {
+            writeBarcodeRows(rows, format, false, out);
         }
-        return null;
     }
 
-    public List<ActivityLogDto> getRecentActivities(int limit) {
-        List<ActivityLogDto> combinedList = new ArrayList<>();
-        Pageable pageable = PageRequest.of(0, limit);
-
-        List<ImportBatch> imports = importBatchRepository.findAllByOrderByIdDesc();
-        for (ImportBatch batch : imports.stream().limit(limit).toList()) {
-            combinedList.add(new ActivityLogDto(
-                    batch.getImportDate(),
-                    "IMPORT",
-                    "Створено " + batch.getName(),
-                    "bi bi-file-earmark-plus text-success",
-                    "/import/" + batch.getId()
-            ));
+    @Transactional
+    public void exportOutdatedBarcodes(ExportFormat format, OutputStream out) throws IOException {
+        LocalDateTime oneYearAgo = LocalDateTime.now().minusYears(1);
+        try (Stream<BarcodeExportDto> rows = barcodeRepository.streamActiveExportByCreationDateBefore(oneYearAgo)) {
+            writeBarcodeRows(rows, format, false, out);
         }
+    }
 
-        List<LocationHistory> moves = locationHistoryRepository.findRecentWithBarcode(pageable);
-        for (LocationHistory move : moves) {
-            if (move.getOldLocation() != null) {
-                combinedList.add(new ActivityLogDto(
-                        move.getChangeTime(),
-                        "MOVE",
-                        "Код " + move.getBarcode().getCode() + " переміщено на " + move.getNewLocation(),
-                        "bi bi-geo-alt text-primary",
-                        "/barcodes/" + move.getBarcode().getId()
-                ));
-            }
+    @Transactional
+    public void exportDiscarded(LocalDate date, String apn, ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<BarcodeExportDto> rows = streamDiscarded(date, apn)) {
+            writeBarcodeRows(rows, format, true, out);
         }
+    }
 
-        List<StatusHistory> statuses = statusHistoryRepository.findRecentWithBarcode(pageable);
-        for (StatusHistory status : statuses) {
-            if (status.getOldStatus() != null) {
-                String desc = "Статус коду " + status.getBarcode().getCode() + " змінено на " + status.getNewStatus();
-                String icon = "bi bi-toggles text-warning";
-
-                if ("out".equals(status.getNewStatus())) {
-                    desc = "Код " + status.getBarcode().getCode() + " списано";
-                    icon = "bi bi-file-earmark-minus text-danger";
-                }
-
-                combinedList.add(new ActivityLogDto(
-                        status.getChangeTime(),
-                        "STATUS",
-                        desc,
-                        icon,
-                        "/barcodes/" + status.getBarcode().getId()
-                ));
+    @Transactional
+    public void exportApnSummary(ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<ApnSummaryDto> rows = barcodeRepository.streamActiveApnSummary()) {
+            if (format.isCsv()) {
+                CsvExporter.exportApnSummary(rows, format.isGzip(), out);
+            } else {
+                ExcelService.exportApnSummaryToExcelStreaming(rows, out);
             }
         }
-
-        combinedList.sort(Comparator.comparing(ActivityLogDto::getTimestamp).reversed());
-        return combinedList.stream().limit(limit).collect(Collectors.toList());
     }
 
-    public List<ApnSummaryDto> getApnSummary() {
-        return barcodeRepository.getApnSummaryByStatusNot("out");
-    }
-
-    @Transactional
-    public void streamAllBarcodesToExcel(OutputStream out) throws IOException {
-        try (Stream<Barcode> barcodeStream = barcodeRepository.streamByStatusNotOrderByCreationDateAsc("out")) {
-            ExcelService.exportToExcelStreaming(barcodeStream, out);
+    private static void writeBarcodeRows(Stream<BarcodeExportDto> rows, ExportFormat format, boolean discarded,
+                                         OutputStream out) throws IOException {
+        if (format.isCsv()) {
+            String[] headers = discarded ? CsvExporter.DISCARDED_HEADERS : CsvExporter.BARCODE_HEADERS;
+            CsvExporter.exportBarcodes(rows, headers, format.isGzip(), out);
+        } else if (discarded) {
+            ExcelService.exportDiscardedToExcelStreaming(rows, out);
+        } else {
+            ExcelService.exportToExcelStreaming(rows, out);
         }
     }
 
-    @Transactional
-    public void streamBarcodesByApnToExcel(String apn, OutputStream out) throws IOException {
-        try (Stream<Barcode> barcodeStream = barcodeRepository.streamByApnContainingIgnoreCaseAndStatusNotOrderByCreationDateAsc(apn, "out")) {
-            ExcelService.exportToExcelStreaming(barcodeStream, out);
+    private Stream<BarcodeExportDto> streamDiscarded(LocalDate date, String apn) {
+        boolean hasApn = apn != null && !apn.isBlank();
+        if (date != null && hasApn) {
+            return barcodeRepository.streamExportByStatusAndLastUpdatedBetweenAndApn(STATUS_OUT, date.atStartOfDay(), date.atTime(LocalTime.MAX), apn);
+        } else if (date != null) {
+            return barcodeRepository.streamExportByStatusAndLastUpdatedBetween(STATUS_OUT, date.atStartOfDay(), date.atTime(LocalTime.MAX));
+        } else if (hasApn) {
+            return barcodeRepository.streamExportByStatusAndApn(STATUS_OUT, apn);
         }
+        return barcodeRepository.streamExportByStatus(STATUS_OUT);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,174 @@
+package ua.karpaty.barcodetracker.Service;
+
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import ua.karpaty.barcodetracker.Dto.BarcodeTransferDto;
+import ua.karpaty.barcodetracker.Dto.ImportJobResultDto;
+import ua.karpaty.barcodetracker.Entity.ActivityType;
+import ua.karpaty.barcodetracker.Entity.Barcode;
+import ua.karpaty.barcodetracker.Repository.BarcodeTransferJdbcWriter;
+import ua.karpaty.barcodetracker.Repository.BarcodeTransferJdbcWriter.MovedGroup;
+import ua.karpaty.barcodetracker.Repository.BarcodeTransferJdbcWriter.StagedTransfer;
+import ua.karpaty.barcodetracker.Repository.BarcodeTransferJdbcWriter.TransferCounts;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Масове переміщення штрих-кодів з файлу (/transfer та /transfer-detailed).
+ * Рядки перевіряються в пам'яті (LocationRegistry), а зміни в базі робляться
+ * набором запитів через BarcodeTransferJdbcWriter в одній транзакції, без
+ * завантаження сутностей.
+ */
+@Slf4j
+@Service
+public class BarcodeTransferService {
+
+    private final ExcelService excelService;
+    private final BarcodeTransferJdbcWriter transferWriter;
+    private final LocationLayoutService locationLayoutService;
+    private final DashboardCounterService dashboardCounterService;
+    private final ApnInventoryCache apnInventoryCache;
+    private final ActivityFeedService activityFeedService;
+
+    @Autowired
+    public BarcodeTransferService(ExcelService excelService, BarcodeTransferJdbcWriter transferWriter,
+                                  LocationLayoutService locationLayoutService,
+                                  DashboardCounterService dashboardCounterService,
+                                  ApnInventoryCache apnInventoryCache,
+                                  ActivityFeedService activityFeedService) {
+        this.excelService = excelService;
+        this.transferWriter = transferWriter;
+        this.locationLayoutService = locationLayoutService;
+        this.dashboardCounterService = dashboardCounterService;
+        this.apnInventoryCache = apnInventoryCache;
+        this.activityFeedService = activityFeedService;
+    }
+
+    @Transactional
+    public ImportJobResultDto transferToLocation(MultipartFile file, String fullNewLocation, ImportJobProgress progress) throws IOException {
+        List<String> codes = excelService.extractCodes(file);
+        long startNanos = System.nanoTime();
+
+        // Код, що повторюється у файлі, рахується один раз
+        StagedTransfer target = target(fullNewLocation);
+        List<StagedTransfer> rows = new ArrayList<>(codes.size());
+        for (String code : new LinkedHashSet<>(codes)) {
+            rows.add(new StagedTransfer(code, target.location(), target.rack(), target.bay(), target.excess(),
+                    BarcodeTransferJdbcWriter.PROBLEM_NONE));
+        }
+
+        TransferCounts counts = stage(rows, progress);
+        long transferred = applyMoves();
+        logDuration("transfer", rows.size(), transferred, startNanos);
+
+        String message = String.format("Перенесено: %d. Пропущено (статус 'out'): %d. Пропущено (локація 'wires'): %d.",
+                transferred, counts.skippedOut(), counts.skippedWires());
+        return new ImportJobResultDto(message, null, codes.size(), transferred,
+                counts.skippedOut() + counts.skippedWires(), 0);
+    }
+
+    @Transactional
+    public ImportJobResultDto transferDetailed(MultipartFile file, ImportJobProgress progress) throws IOException {
+        List<BarcodeTransferDto> transfers = excelService.parseTransfers(file);
+        if (transfers.isEmpty()) {
+            return new ImportJobResultDto("Файл порожній або не містить даних для обробки.", null, 0, 0, 0, 0);
+        }
+        long startNanos = System.nanoTime();
+
+        // Перевірка рядка - пошук у LocationRegistry без перебору стелажів; частини локації
+        // рахуються один раз на кожну різну локацію
+        LocationRegistry layout = locationLayoutService.current();
+        Map<String, StagedTransfer> targets = new HashMap<>();
+        List<StagedTransfer> rows = new ArrayList<>(transfers.size());
+
+        for (BarcodeTransferDto transfer : transfers) {
+            String rawLocation = transfer.getLocationName();
+            LocationRegistry.Rack rack = layout.findTransferRack(rawLocation);
+            if (rack == null) {
+                rows.add(invalid(transfer.getCode(), BarcodeTransferJdbcWriter.PROBLEM_INVALID_LOCATION));
+                continue;
+            }
+            int bay = rack.parseBay(transfer.getLocationNumber());
+            if (bay < 0) {
+                rows.add(invalid(transfer.getCode(), BarcodeTransferJdbcWriter.PROBLEM_INVALID_NUMBER));
+                continue;
+            }
+            String newLocation = rack.location(bay, LocationRegistry.isExcess(rawLocation));
+            StagedTransfer target = targets.computeIfAbsent(newLocation, BarcodeTransferService::target);
+            rows.add(new StagedTransfer(transfer.getCode(), target.location(), target.rack(), target.bay(),
+                    target.excess(), BarcodeTransferJdbcWriter.PROBLEM_NONE));
+        }
+
+        TransferCounts counts = stage(rows, progress);
+        long transferred = applyMoves();
+        logDuration("transfer-detailed", rows.size(), transferred, startNanos);
+
+        long skipped = counts.notFound() + counts.skippedOut() + counts.skippedWires();
+        long invalid = counts.invalidLocation() + counts.invalidNumber();
+        String message = String.format("Обробку завершено. Перенесено: %d, Не знайдено: %d, Пропущено ('out'): %d, " +
+                        "Пропущено ('wires'): %d, Невірний стелаж: %d, Невірний прольот: %d.",
+                transferred, counts.notFound(), counts.skippedOut(), counts.skippedWires(),
+                counts.invalidLocation(), counts.invalidNumber());
+        return new ImportJobResultDto(message, null, transfers.size(), transferred, skipped, invalid);
+    }
+
+    private TransferCounts stage(List<StagedTransfer> rows, ImportJobProgress progress) {
+        transferWriter.createStage();
+        transferWriter.stage(rows, 0);
+        progress.addProcessed(rows.size());
+        transferWriter.lockStaged();
+        return transferWriter.countSkipped();
+    }
+
+    private long applyMoves() {
+        apnInventoryCache.invalidate(transferWriter.findApnsToMove());
+
+        List<MovedGroup> moved = transferWriter.applyMoves(LocalDateTime.now());
+        DashboardCounterService.Delta counters = new DashboardCounterService.Delta();
+        Set<String> newLocations = new HashSet<>();
+        long transferred = 0;
+        for (MovedGroup group : moved) {
+            counters.locationChanged(group.status(), group.oldLocation(), group.newLocation(), group.count());
+            newLocations.add(group.newLocation());
+            transferred += group.count();
+        }
+        dashboardCounterService.apply(counters);
+        if (transferred > 0) {
+            // Одна подія на файл, а не на кожен код - інакше стрічку заповнить одне переміщення
+            String target = newLocations.size() == 1
+                    ? newLocations.iterator().next()
+                    : newLocations.size() + " локацій";
+            activityFeedService.record(ActivityType.MOVE, "Масово переміщено " + transferred + " кодів на " + target, "/warehouse");
+        }
+        return transferred;
+    }
+
+    // Нормалізовані rack/bay/excess рахує сама сутність (Barcode.syncLocationParts), щоб правило було одне
+    private static StagedTransfer target(String location) {
+        Barcode parts = new Barcode();
+        parts.setLocation(location);
+        return new StagedTransfer(null, location, parts.getRack(), parts.getBay(), parts.isExcess(),
+                BarcodeTransferJdbcWriter.PROBLEM_NONE);
+    }
+
+    private static StagedTransfer invalid(String code, int problem) {
+        return new StagedTransfer(code, null, null, null, false, problem);
+    }
+
+    private static void logDuration(String operation, int rows, long transferred, long startNanos) {
+        long elapsedMs = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+        log.info("Bulk {}: {} rows staged, {} barcodes moved in {} ms, {} rows/sec",
+                operation, rows, transferred, elapsedMs, rows * 1000L / elapsedMs);
+    }
+}
@@ -0,0 +1,229 @@
+package ua.karpaty.barcodetracker.Service;
+
+import ua.karpaty.barcodetracker.Dto.ApnSummaryDto;
+import ua.karpaty.barcodetracker.Dto.BarcodeExportDto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * CSV-вивантаження (UTF-8, кома як роздільник, лапки за RFC 4180) для скриптів.
+ * Рядки з потоку БД пишуться одразу в один байтовий буфер, який скидається
+ * у вихідний потік по BUFFER_SIZE байт: без POI, тимчасових файлів і без
+ * проміжних String на кожен рядок (дати записуються цифрами напряму).
+ * Дата - у форматі dd.MM.yyyy, як у Excel-вивантаженнях та CSV для frozen-бази.
+ */
+public final class CsvExporter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public static final String[] BARCODE_HEADERS = {"code", "apn", "quantity", "location", "date_added"};
+    public static final String[] DISCARDED_HEADERS = {"code", "apn", "quantity", "location", "date_discarded"};
+    private static final String[] APN_SUMMARY_HEADERS = {"apn", "total_quantity", "box_count"};
+
+    private CsvExporter() {
+    }
+
+    public static void exportBarcodes(Stream<BarcodeExportDto> rows, String[] headers, boolean gzip,
+                                      OutputStream out) throws IOException {
+        write(out, gzip, headers, writer -> rows.forEachOrdered(b -> {
+            writer.text(b.getCode());
+            writer.text(b.getApn());
+            writer.number(b.getQuantity());
+            writer.text(b.getLocation());
+            writer.date(b.getDate());
+            writer.endRow();
+        }));
+    }
+
+    public static void exportApnSummary(Stream<ApnSummaryDto> rows, boolean gzip, OutputStream out) throws IOException {
+        write(out, gzip, APN_SUMMARY_HEADERS, writer -> rows.forEachOrdered(summary -> {
+            writer.text(summary.getApn());
+            writer.number(summary.getTotalQuantity());
+            writer.number(summary.getBoxCount());
+            writer.endRow();
+        }));
+    }
+
+    /**
+     * Рядки довільної таблиці як є (вивантаження старих секцій історії): значення - через
+     * toString, дати - у форматі ISO з часом, а не dd.MM.yyyy.
+     */
+    public static void exportRows(Stream<Object[]> rows, String[] headers, boolean gzip, OutputStream out) throws IOException {
+        write(out, gzip, headers, writer -> rows.forEachOrdered(values -> {
+            for (Object value : values) {
+                writer.text(value != null ? value.toString() : null);
+            }
+            writer.endRow();
+        }));
+    }
+
+    private interface RowSource {
+        void writeTo(RowWriter writer);
+    }
+
+    private static void write(OutputStream out, boolean gzip, String[] headers, RowSource source) throws IOException {
+        // Сервлетний потік не закриваємо, лише завершуємо gzip
+        OutputStream target = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : out;
+        RowWriter writer = new RowWriter(target);
+        try {
+            for (String header : headers) {
+                writer.text(header);
+            }
+            writer.endRow();
+            source.writeTo(writer);
+            writer.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (target instanceof GZIPOutputStream gzipStream) {
+            gzipStream.finish();
+        }
+        out.flush();
+    }
+
+    private static final class RowWriter {
+        private final OutputStream out;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+        private boolean rowStart = true;
+
+        RowWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        void text(String value) {
+            separator();
+            if (value == null || value.isEmpty()) {
+                return;
+            }
+            boolean quote = needsQuoting(value);
+            if (quote) {
+                put('"');
+            }
+            int length = value.length();
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    if (c == '"') {
+                        put('"');
+                    }
+                    put(c);
+                } else if (c < 0x800) {
+                    ensure(2);
+                    buffer[position++] = (byte) (0xC0 | (c >> 6));
+                    buffer[position++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    ensure(4);
+                    buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    put('?');
+                } else {
+                    ensure(3);
+                    buffer[position++] = (byte) (0xE0 | (c >> 12));
+                    buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            if (quote) {
+                put('"');
+            }
+        }
+
+        void number(long value) {
+            if (value < 0) {
+                // від'ємні значення тут рідкість, для них - звичайний рядок
+                text(Long.toString(value));
+                return;
+            }
+            separator();
+            ensure(19);
+            int start = position;
+            do {
+                buffer[position++] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value > 0);
+            // цифри записані у зворотному порядку
+            for (int i = start, j = position - 1; i < j; i++, j--) {
+                byte tmp = buffer[i];
+                buffer[i] = buffer[j];
+                buffer[j] = tmp;
+            }
+        }
+
+        void date(LocalDateTime value) {
+            separator();
+            if (value == null) {
+                return;
+            }
+            ensure(10);
+            twoDigits(value.getDayOfMonth());
+            buffer[position++] = '.';
+            twoDigits(value.getMonthValue());
+            buffer[position++] = '.';
+            int year = value.getYear();
+            buffer[position++] = (byte) ('0' + year / 1000 % 10);
+            buffer[position++] = (byte) ('0' + year / 100 % 10);
+            buffer[position++] = (byte) ('0' + year / 10 % 10);
+            buffer[position++] = (byte) ('0' + year % 10);
+        }
+
+        void endRow() {
+            put('\n');
+            rowStart = true;
+        }
+
+        void flush() {
+            if (position > 0) {
+                try {
+                    out.write(buffer, 0, position);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                position = 0;
+            }
+        }
+
+        private void separator() {
+            if (rowStart) {
+                rowStart = false;
+            } else {
+                put(',');
+            }
+        }
+
+        private void twoDigits(int value) {
+            buffer[position++] = (byte) ('0' + value / 10);
+            buffer[position++] = (byte) ('0' + value % 10);
+        }
+
+        private void put(char c) {
+            ensure(1);
+            buffer[position++] = (byte) c;
+        }
+
+        private void ensure(int bytes) {
+            if (position + bytes > buffer.length) {
+                flush();
+            }
+        }
+
+        private static boolean needsQuoting(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package ua.karpaty.barcodetracker.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ua.karpaty.barcodetracker.Dto.DashboardStatsInterface;
+import ua.karpaty.barcodetracker.Dto.LocationCountDto;
+import ua.karpaty.barcodetracker.Entity.BarcodeStatus;
+import ua.karpaty.barcodetracker.Repository.BarcodeRepository;
+import ua.karpaty.barcodetracker.Repository.Frozen.FrozenBarcodeRepository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Лічильники для дашборду в пам'яті. Імпорти, зміни статусу та переміщення
+ * передають сюди зміни (Delta), які застосовуються лише після коміту їхньої
+ * транзакції. Раз на bct.dashboard.reconcile-interval-ms лічильники звіряються
+ * з реальними COUNT-запитами, тож можливий дрейф обмежений цим інтервалом.
+ */
+@Slf4j
+@Service
+public class DashboardCounterService {
+
+    private final BarcodeRepository barcodeRepository;
+    private final FrozenBarcodeRepository frozenBarcodeRepository;
+
+    private final AtomicLong totalHot = new AtomicLong();
+    private final AtomicLong discardedHot = new AtomicLong();
+    private final AtomicLong frozenTotal = new AtomicLong();
+    // Кількість штрих-кодів не в статусі 'out' по локаціях (для "найпопулярнішої локації")
+    private final Map<String, AtomicLong> activeByLocation = new ConcurrentHashMap<>();
+    private volatile boolean initialized;
+
+    @Autowired
+    public DashboardCounterService(BarcodeRepository barcodeRepository, FrozenBarcodeRepository frozenBarcodeRepository) {
+        this.barcodeRepository = barcodeRepository;
+        this.frozenBarcodeRepository = frozenBarcodeRepository;
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    public long getTotalInDb() {
+        return totalHot.get() - discardedHot.get();
+    }
+
+    public long getTotalHot() {
+        return totalHot.get();
+    }
+
+    public long getDiscardedHot() {
+        return discardedHot.get();
+    }
+
+    public long getFrozenTotal() {
+        return frozenTotal.get();
+    }
+
+    public long getActiveInLocation(String location) {
+        AtomicLong count = activeByLocation.get(location);
+        return count != null ? count.get() : 0;
+    }
+
+    public String getMostPopularLocation() {
+        String best = null;
+        long bestCount = 0;
+        for (Map.Entry<String, AtomicLong> entry : activeByLocation.entrySet()) {
+            long count = entry.getValue().get();
+            if (count > bestCount) {
+                best = entry.getKey();
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Застосовує зміни після коміту поточної транзакції (або одразу, якщо транзакції немає).
+     * Якщо транзакція відкотиться, лічильники не змінюються.
+     */
+    public void apply(Delta delta) {
+        if (delta.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applyNow(delta);
+                }
+            });
+        } else {
+            applyNow(delta);
+        }
+    }
+
+    public void addFrozen(long count) {
+        apply(new Delta().addFrozen(count));
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${bct.dashboard.reconcile-interval-ms:900000}")
+    public void reconcile() {
+        long startNanos = System.nanoTime();
+        try {
+            DashboardStatsInterface stats = barcodeRepository.getCombinedDashboardStats();
+            List<LocationCountDto> locations = barcodeRepository.countActiveByLocation();
+            long frozen = frozenBarcodeRepository.count();
+
+            Map<String, AtomicLong> freshLocations = new HashMap<>();
+            for (LocationCountDto location : locations) {
+                freshLocations.put(location.getLocation(), new AtomicLong(location.getCount()));
+            }
+
+            long driftInDb = stats.getTotalInDb() - getTotalInDb();
+            totalHot.set(stats.getTotalAdded());
+            discardedHot.set(stats.getTotalDiscarded());
+            frozenTotal.set(frozen);
+            activeByLocation.keySet().retainAll(freshLocations.keySet());
+            activeByLocation.putAll(freshLocations);
+
+            if (initialized && driftInDb != 0) {
+                log.info("Dashboard counters corrected by reconciliation: totalInDb drift {}", driftInDb);
+            }
+            initialized = true;
+            log.debug("Dashboard counters reconciled in {} ms", (System.nanoTime() - startNanos) / 1_000_000);
+        } catch (Exception e) {
+            log.warn("Could not reconcile dashboard counters: {}", e.getMessage());
+        }
+    }
+
+    private void applyNow(Delta delta) {
+        totalHot.addAndGet(delta.addedHot);
+        discardedHot.addAndGet(delta.discardedHot);
+        frozenTotal.addAndGet(delta.addedFrozen);
+        delta.locationChanges.forEach((location, change) ->
+                activeByLocation.computeIfAbsent(location, key -> new AtomicLong()).addAndGet(change));
+    }
+
+    private static boolean isOut(BarcodeStatus status) {
+        return status == BarcodeStatus.OUT;
+    }
+
+    private static boolean hasLocation(String location) {
+        return location != null && !location.isEmpty();
+    }
+
+    /**
+     * Накопичує зміни в межах однієї операції, щоб зареєструвати їх одним колбеком.
+     */
+    public static class Delta {
+        private long addedHot;
+        private long discardedHot;
+        private long addedFrozen;
+        private final Map<String, Long> locationChanges = new HashMap<>();
+
+        public Delta barcodeAdded(BarcodeStatus status, String location) {
+            addedHot++;
+            if (isOut(status)) {
+                discardedHot++;
+            } else {
+                location(location, 1);
+            }
+            return this;
+        }
+
+        public Delta statusChanged(String location, BarcodeStatus oldStatus, BarcodeStatus newStatus) {
+            return statusChanged(location, oldStatus, newStatus, 1);
+        }
+
+        // Для масового списання: count штрих-кодів з однаковими локацією і статусами
+        public Delta statusChanged(String location, BarcodeStatus oldStatus, BarcodeStatus newStatus, long count) {
+            boolean wasOut = isOut(oldStatus);
+            boolean nowOut = isOut(newStatus);
+            if (!wasOut && nowOut) {
+                discardedHot += count;
+                location(location, -count);
+            } else if (wasOut && !nowOut) {
+                discardedHot -= count;
+                location(location, count);
+            }
+            return this;
+        }
+
+        public Delta locationChanged(BarcodeStatus status, String oldLocation, String newLocation) {
+            return locationChanged(status, oldLocation, newLocation, 1);
+        }
+
+        // Для масових переміщень: count штрих-кодів з однаковими статусом і парою локацій
+        public Delta locationChanged(BarcodeStatus status, String oldLocation, String newLocation, long count) {
+            if (!isOut(status)) {
+                location(oldLocation, -count);
+                location(newLocation, count);
+            }
+            return this;
+        }
+
+        // Архівовані штрих-коди завжди в статусі 'out', тож локацій це не стосується
+        public Delta archived(long removedFromHot) {
+            addedHot -= removedFromHot;
+            discardedHot -= removedFromHot;
+            return this;
+        }
+
+        public Delta addFrozen(long count) {
+            addedFrozen += count;
+            return this;
+        }
+
+        boolean isEmpty() {
+            return addedHot == 0 && discardedHot == 0 && addedFrozen == 0 && locationChanges.isEmpty();
+        }
+
+        private void location(String location, long change) {
+            if (hasLocation(location)) {
+                locationChanges.merge(location, change, Long::sum);
+            }
+        }
+    }
+}
@@ -7,8 +7,10 @@ import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import ua.karpaty.barcodetracker.Dto.ApnSummaryDto;
+import ua.karpaty.barcodetracker.Dto.BarcodeExportDto;
 import ua.karpaty.barcodetracker.Dto.BarcodeTransferDto;
 import ua.karpaty.barcodetracker.Entity.Barcode;
+import ua.karpaty.barcodetracker.Entity.BarcodeStatus;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -17,6 +19,7 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 @Service
@@ -26,6 +29,19 @@ public class ExcelService {
 
     public List<Barcode> parseExcel(MultipartFile file) throws IOException {
         List<Barcode> barcodes = new ArrayList<>();
+        parseExcelInChunks(file, Integer.MAX_VALUE, barcodes::addAll);
+        return barcodes;
+    }
+
+    /**
+     * Читає аркуш потоково і віддає штрих-коди пачками по chunkSize,
+     * не тримаючи в пам'яті весь файл. Повертає кількість коректних рядків.
+     */
+    public long parseExcelInChunks(MultipartFile file, int chunkSize, Consumer<List<Barcode>> chunkConsumer) throws IOException {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+        List<Barcode> chunk = new ArrayList<>(Math.min(chunkSize, 10_000));
+        long total = 0;
+
         try (InputStream is = file.getInputStream();
              Workbook workbook = StreamingReader.builder()
                      .rowCacheSize(100)
@@ -35,112 +51,97 @@ public class ExcelService {
             Sheet sheet = workbook.getSheetAt(0);
             for (Row row : sheet) {
                 if (row.getRowNum() == 0) continue;
+                Barcode barcode;
                 try {
-                    Barcode barcode = new Barcode();
-                    Cell codeCell = row.getCell(0);
-                    if (codeCell == null || codeCell.getCellType() == CellType.BLANK) continue;
-
-                    String code;
-                    if (codeCell.getCellType() == CellType.STRING) {
-                        code = codeCell.getStringCellValue().trim();
-                    } else if (codeCell.getCellType() == CellType.NUMERIC) {
-                        code = String.valueOf((long) codeCell.getNumericCellValue());
-                    } else {
-                        continue;
-                    }
-
-                    if (code.isEmpty() || !code.matches("^\\d{9}$")) {
-                        System.err.println("Помилка на рядку " + row.getRowNum() + ": Некоректний формат штрих-коду: " + code);
-                        continue;
-                    }
-
-                    if (code.isEmpty()) continue;
-                    barcode.setCode(code);
-                    Cell apnCell = row.getCell(1);
-                    String apn = "";
-                    if (apnCell != null) {
-                        if (apnCell.getCellType() == CellType.STRING) {
-                            apn = apnCell.getStringCellValue().trim();
-                        } else if (apnCell.getCellType() == CellType.NUMERIC) {
-                            apn = String.valueOf((long) apnCell.getNumericCellValue());
-                        }
-                    }
-                    barcode.setApn(apn);
-                    Cell qtyCell = row.getCell(2);
-                    if (qtyCell != null && qtyCell.getCellType() == CellType.NUMERIC) {
-                        barcode.setQuantity((int) qtyCell.getNumericCellValue());
-                    } else {
-                        barcode.setQuantity(1);
-                    }
-                    Cell dateCell = row.getCell(3);
-                    if (dateCell != null) {
-                        LocalDate parsedDate = null;
-                        if (dateCell.getCellType() == CellType.STRING) {
-                            String dateStr = dateCell.getStringCellValue().trim();
-                            try {
-                                DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy");
-                                parsedDate = LocalDate.parse(dateStr, formatter);
-                            } catch (DateTimeParseException e) {
-                                parsedDate = null;
-                            }
-                        } else if (dateCell.getCellType() == CellType.NUMERIC && DateUtil.isCellDateFormatted(dateCell)) {
-                            parsedDate = dateCell.getLocalDateTimeCellValue().toLocalDate();
-                        }
-                        if (parsedDate != null) {
-                            barcode.setParsedDate(parsedDate.atStartOfDay());
-                        }
-                    }
-                    if (isWiresApn(apn)) {
-                        barcode.setLocation("wires");
-                    } else {
-                        barcode.setLocation("prestock");
-                    }
-                    barcode.setStatus("stock");
-
-                    barcodes.add(barcode);
+                    barcode = parseBarcodeRow(row, formatter);
                 } catch (Exception e) {
                     System.err.println("Помилка на рядку " + row.getRowNum() + ": " + e.getMessage());
                     continue;
                 }
+                if (barcode == null) continue;
+
+                chunk.add(barcode);
+                total++;
+                if (chunk.size() >= chunkSize) {
+                    chunkConsumer.accept(chunk);
+                    chunk = new ArrayList<>(Math.min(chunkSize, 10_000));
+                }
             }
         }
-        return barcodes;
-    }
 
-    private boolean isWiresApn(String apn) {
-        if (apn == null || apn.isEmpty()) {
-            return false;
+        if (!chunk.isEmpty()) {
+            chunkConsumer.accept(chunk);
         }
-        return WIRES_APN_PREFIXES.stream().anyMatch(apn::startsWith);
+        return total;
     }
 
-    public static void exportToExcel(List<Barcode> barcodes, OutputStream out) throws IOException {
-        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
-            Sheet sheet = workbook.createSheet("Barcodes");
-            String[] headers = {"Serial Number", "APN", "Кількість", "Локація", "Дата Додавання"};
-            Row header = sheet.createRow(0);
-            for (int i = 0; i < headers.length; i++) {
-                header.createCell(i).setCellValue(headers[i]);
-            }
+    private Barcode parseBarcodeRow(Row row, DateTimeFormatter formatter) {
+        Barcode barcode = new Barcode();
+        Cell codeCell = row.getCell(0);
+        if (codeCell == null || codeCell.getCellType() == CellType.BLANK) return null;
+
+        String code;
+        if (codeCell.getCellType() == CellType.STRING) {
+            code = codeCell.getStringCellValue().trim();
+        } else if (codeCell.getCellType() == CellType.NUMERIC) {
+            code = String.valueOf((long) codeCell.getNumericCellValue());
+        } else {
+            return null;
+        }
 
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+        if (code.isEmpty() || !code.matches("^\\d{9}$")) {
+            System.err.println("Помилка на рядку " + row.getRowNum() + ": Некоректний формат штрих-коду: " + code);
+            return null;
+        }
 
-            int rowIndex = 1;
-            for (Barcode b : barcodes) {
-                Row row = sheet.createRow(rowIndex++);
-                row.createCell(0).setCellValue(b.getCode());
-                row.createCell(1).setCellValue(b.getApn());
-                row.createCell(2).setCellValue(b.getQuantity());
-                row.createCell(3).setCellValue(b.getLocation());
-                row.createCell(4).setCellValue(
-                        b.getCreationDate() != null ? b.getCreationDate().format(formatter) : "");
+        barcode.setCode(code);
+        Cell apnCell = row.getCell(1);
+        String apn = "";
+        if (apnCell != null) {
+            if (apnCell.getCellType() == CellType.STRING) {
+                apn = apnCell.getStringCellValue().trim();
+            } else if (apnCell.getCellType() == CellType.NUMERIC) {
+                apn = String.valueOf((long) apnCell.getNumericCellValue());
             }
-
-            for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
+        }
+        barcode.setApn(apn);
+        Cell qtyCell = row.getCell(2);
+        if (qtyCell != null && qtyCell.getCellType() == CellType.NUMERIC) {
+            barcode.setQuantity((int) qtyCell.getNumericCellValue());
+        } else {
+            barcode.setQuantity(1);
+        }
+        Cell dateCell = row.getCell(3);
+        if (dateCell != null) {
+            LocalDate parsedDate = null;
+            if (dateCell.getCellType() == CellType.STRING) {
+                String dateStr = dateCell.getStringCellValue().trim();
+                try {
+                    parsedDate = LocalDate.parse(dateStr, formatter);
+                } catch (DateTimeParseException e) {
+                    parsedDate = null;
+                }
+            } else if (dateCell.getCellType() == CellType.NUMERIC && DateUtil.isCellDateFormatted(dateCell)) {
+                parsedDate = dateCell.getLocalDateTimeCellValue().toLocalDate();
+            }
+            if (parsedDate != null) {
+                barcode.setParsedDate(parsedDate.atStartOfDay());
             }
-            workbook.write(out);
         }
+        if (isWiresApn(apn)) {
+            barcode.setLocation("wires");
+        } else {
+            barcode.setLocation("prestock");
+        }
+        barcode.setStatus(BarcodeStatus.STOCK);
+        return barcode;
+    }
+
+    private boolean isWiresApn(String apn) {
+        if (apn == null || apn.isEmpty()) {
+            return false;
+        }
+        return WIRES_APN_PREFIXES.stream().anyMatch(apn::startsWith);
     }
 
     public List<String> extractCodes(MultipartFile file) throws IOException {
@@ -197,35 +198,6 @@ public class ExcelService {
         return transfers;
     }
 
-    public static void exportDiscardedToExcel(List<Barcode> barcodes, OutputStream out) throws IOException {
-        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
-            Sheet sheet = workbook.createSheet("Discarded Barcodes");
-            String[] headers = {"Serial Number", "APN", "Кількість", "Локація", "Дата списання"};
-            Row header = sheet.createRow(0);
-            for (int i = 0; i < headers.length; i++) {
-                header.createCell(i).setCellValue(headers[i]);
-            }
-
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy");
-
-            int rowIndex = 1;
-            for (Barcode b : barcodes) {
-                Row row = sheet.createRow(rowIndex++);
-                row.createCell(0).setCellValue(b.getCode());
-                row.createCell(1).setCellValue(b.getApn());
-                row.createCell(2).setCellValue(b.getQuantity());
-                row.createCell(3).setCellValue(b.getLocation());
-                row.createCell(4).setCellValue(
-                        b.getLastUpdated() != null ? b.getLastUpdated().format(formatter) : "");
-            }
-
-            for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
-            }
-            workbook.write(out);
-        }
-    }
-
     private String getStringCellValue(Cell cell) {
         if (cell == null) return null;
         return switch (cell.getCellType()) {
@@ -235,66 +207,85 @@ public class ExcelService {
         };
     }
 
-    public static void exportApnSummaryToExcel(List<ApnSummaryDto> summaryList, OutputStream out) throws IOException {
-        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
-            Sheet sheet = workbook.createSheet("APN Summary");
-            String[] headers = {"APN", "Кількість загальна", "Кількість ящиків"};
+    // --- Вивантаження ---
+    // Усі вивантаження пишуться через SXSSF: у пам'яті тримається лише вікно
+    // з STREAMING_WINDOW рядків, решта скидається у стиснутий тимчасовий файл.
+    // Ширини колонок фіксовані: autoSizeColumn перечитує кожну клітинку колонки,
+    // а в SXSSF бачив би лише рядки, що ще не скинуті на диск.
+
+    private static final int STREAMING_WINDOW = 200;
+    private static final String[] BARCODE_HEADERS = {"Serial Number", "APN", "Кількість", "Локація", "Дата Додавання"};
+    private static final String[] DISCARDED_HEADERS = {"Serial Number", "APN", "Кількість", "Локація", "Дата списання"};
+    private static final int[] BARCODE_COLUMN_WIDTHS = {24, 18, 10, 20, 16};
+    private static final String[] APN_SUMMARY_HEADERS = {"APN", "Кількість загальна", "Кількість ящиків"};
+    private static final int[] APN_SUMMARY_COLUMN_WIDTHS = {20, 20, 18};
+
+    public static void exportToExcelStreaming(Stream<BarcodeExportDto> rows, OutputStream out) throws IOException {
+        exportBarcodeRows("Barcodes", BARCODE_HEADERS, rows, out);
+    }
 
-            // Створюємо заголовок
-            Row header = sheet.createRow(0);
-            for (int i = 0; i < headers.length; i++) {
-                header.createCell(i).setCellValue(headers[i]);
-            }
+    public static void exportDiscardedToExcelStreaming(Stream<BarcodeExportDto> rows, OutputStream out) throws IOException {
+        exportBarcodeRows("Discarded Barcodes", DISCARDED_HEADERS, rows, out);
+    }
+
+    public static void exportApnSummaryToExcelStreaming(Stream<ApnSummaryDto> rows, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = newStreamingWorkbook();
+        try {
+            Sheet sheet = createSheet(workbook, "APN Summary", APN_SUMMARY_HEADERS, APN_SUMMARY_COLUMN_WIDTHS);
 
-            int rowIndex = 1;
-            for (ApnSummaryDto summary : summaryList) {
-                Row row = sheet.createRow(rowIndex++);
+            final int[] rowIndex = {1};
+            rows.forEachOrdered(summary -> {
+                Row row = sheet.createRow(rowIndex[0]++);
                 row.createCell(0).setCellValue(summary.getApn());
                 row.createCell(1).setCellValue(summary.getTotalQuantity());
                 row.createCell(2).setCellValue(summary.getBoxCount());
-            }
+            });
 
-            for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
-            }
             workbook.write(out);
+        } finally {
+            workbook.close();
+            workbook.dispose();
         }
     }
 
-    public static void exportToExcelStreaming(Stream<Barcode> barcodes, OutputStream out) throws IOException {
-        SXSSFWorkbook workbook = new SXSSFWorkbook(100);
-
+    private static void exportBarcodeRows(String sheetName, String[] headers, Stream<BarcodeExportDto> rows,
+                                          OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = newStreamingWorkbook();
         try {
-            Sheet sheet = workbook.createSheet("Barcodes");
-            String[] headers = {"Serial Number", "APN", "Кількість", "Локація", "Дата Додавання"};
-            Row header = sheet.createRow(0);
-            for (int i = 0; i < headers.length; i++) {
-                header.createCell(i).setCellValue(headers[i]);
-            }
-
+            Sheet sheet = createSheet(workbook, sheetName, headers, BARCODE_COLUMN_WIDTHS);
             DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy");
 
             final int[] rowIndex = {1};
-
-            barcodes.forEachOrdered(b -> {
+            rows.forEachOrdered(b -> {
                 Row row = sheet.createRow(rowIndex[0]++);
                 row.createCell(0).setCellValue(b.getCode());
                 row.createCell(1).setCellValue(b.getApn());
                 row.createCell(2).setCellValue(b.getQuantity());
                 row.createCell(3).setCellValue(b.getLocation());
-                row.createCell(4).setCellValue(
-                        b.getCreationDate() != null ? b.getCreationDate().format(formatter) : "");
+                row.createCell(4).setCellValue(b.getDate() != null ? b.getDate().format(formatter) : "");
             });
 
             workbook.write(out);
-
         } finally {
             workbook.close();
             workbook.dispose();
         }
-
     }
 
+    private static SXSSFWorkbook newStreamingWorkbook() {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(STREAMING_WINDOW);
+        workbook.setCompressTempFiles(true);
+        return workbook;
+    }
 
+    private static Sheet createSheet(SXSSFWorkbook workbook, String name, String[] headers, int[] widthsInChars) {
+        Sheet sheet = workbook.createSheet(name);
+        Row header = sheet.createRow(0);
+        for (int i = 0; i < headers.length; i++) {
+            header.createCell(i).setCellValue(headers[i]);
+            sheet.setColumnWidth(i, widthsInChars[i] * 256);
+        }
+        return sheet;
+    }
 }
 
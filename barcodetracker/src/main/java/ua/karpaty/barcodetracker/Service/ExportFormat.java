@@ -0,0 +1,48 @@
+package ua.karpaty.barcodetracker.Service;
+
+/**
+ * Формат вивантаження (параметр format у запитах /barcodes/download, /discarded/export тощо).
+ */
+public enum ExportFormat {
+    XLSX("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"),
+    CSV("csv", "text/csv; charset=UTF-8"),
+    CSV_GZIP("csv.gz", "application/gzip");
+
+    private final String extension;
+    private final String contentType;
+
+    ExportFormat(String extension, String contentType) {
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    // Порожнє або невідоме значення - XLSX, як було до появи CSV
+    public static ExportFormat fromParam(String value) {
+        if (value == null || value.isBlank()) {
+            return XLSX;
+        }
+        String normalized = value.trim().toLowerCase();
+        for (ExportFormat format : values()) {
+            if (format.extension.equals(normalized)) {
+                return format;
+            }
+        }
+        return normalized.equals("gz") || normalized.equals("csv-gz") ? CSV_GZIP : XLSX;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String fileName(String baseName) {
+        return baseName + "." + extension;
+    }
+
+    public boolean isCsv() {
+        return this != XLSX;
+    }
+
+    public boolean isGzip() {
+        return this == CSV_GZIP;
+    }
+}
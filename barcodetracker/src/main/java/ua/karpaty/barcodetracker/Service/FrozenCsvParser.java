@@ -0,0 +1,264 @@
+package ua.karpaty.barcodetracker.Service;
+
+import org.springframework.core.task.AsyncTaskExecutor;
+import ua.karpaty.barcodetracker.Entity.Frozen.FrozenBarcode;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Парсер CSV архіву (code,apn,quantity,dd.MM.yyyy,dd.MM.yyyy) для frozen-бази.
+ * <p>
+ * Файл читається через FileChannel шматками по chunkSize байт, обрізаними по
+ * кінцю рядка. Шматки розбираються паралельно в пулі parseExecutor прямо з байтів,
+ * без split/regex; дати кешуються. Результати віддаються споживачу (єдиному
+ * записувачу в SQLite) у порядку файлу. Одночасно в роботі не більше
+ * maxInFlight шматків, тож пам'ять обмежена незалежно від розміру файлу.
+ */
+public class FrozenCsvParser {
+
+    private static final int MIN_COLUMNS = 5;
+
+    private final AsyncTaskExecutor parseExecutor;
+    private final int chunkSize;
+    private final int maxInFlight;
+
+    // dd.MM.yyyy -> LocalDate; ключ - yyyyMMdd як число
+    private final Map<Integer, LocalDate> dateCache = new ConcurrentHashMap<>();
+
+    /**
+     * Результат розбору одного шматка. totalRows включає рядки з помилками формату.
+     */
+    public record ParsedChunk(List<FrozenBarcode> rows, int totalRows, int failedRows) {
+    }
+
+    public FrozenCsvParser(AsyncTaskExecutor parseExecutor, int parallelism, int chunkSize) {
+        this.parseExecutor = parseExecutor;
+        this.chunkSize = chunkSize;
+        this.maxInFlight = Math.max(2, parallelism * 2);
+    }
+
+    /**
+     * Розбирає файл (перший рядок - заголовок) і передає шматки споживачу в порядку файлу.
+     */
+    public void parse(Path file, Consumer<ParsedChunk> consumer) throws IOException {
+        Deque<Future<ParsedChunk>> inFlight = new ArrayDeque<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            byte[] carry = new byte[0];
+            boolean first = true;
+            boolean eof = false;
+
+            while (!eof) {
+                byte[] chunk = Arrays.copyOf(carry, carry.length + chunkSize);
+                ByteBuffer buffer = ByteBuffer.wrap(chunk, carry.length, chunkSize);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        eof = true;
+                        break;
+                    }
+                }
+                int length = buffer.position();
+                int cut = eof ? length : lastLineEnd(chunk, length);
+                if (cut == 0 && !eof) {
+                    // Рядок довший за шматок - дочитуємо далі
+                    carry = Arrays.copyOf(chunk, length);
+                    continue;
+                }
+                carry = Arrays.copyOfRange(chunk, cut, length);
+                if (cut == 0) {
+                    continue;
+                }
+
+                boolean skipHeader = first;
+                first = false;
+                inFlight.add(parseExecutor.submit(() -> parseChunk(chunk, cut, skipHeader)));
+                if (inFlight.size() >= maxInFlight) {
+                    consumer.accept(await(inFlight.poll()));
+                }
+            }
+
+            while (!inFlight.isEmpty()) {
+                consumer.accept(await(inFlight.poll()));
+            }
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+        }
+    }
+
+    ParsedChunk parseChunk(byte[] data, int end, boolean skipHeader) {
+        int position = 0;
+        if (skipHeader) {
+            int headerEnd = indexOf(data, (byte) '\n', 0, end);
+            position = headerEnd < 0 ? end : headerEnd + 1;
+        }
+
+        List<FrozenBarcode> rows = new ArrayList<>(end / 48 + 1);
+        int[] commas = new int[MIN_COLUMNS - 1];
+        int totalRows = 0;
+        int failedRows = 0;
+
+        while (position < end) {
+            int lineEnd = indexOf(data, (byte) '\n', position, end);
+            if (lineEnd < 0) {
+                lineEnd = end;
+            }
+            totalRows++;
+
+            FrozenBarcode row = parseLine(data, position, lineEnd, commas);
+            if (row != null) {
+                rows.add(row);
+            } else {
+                failedRows++;
+            }
+            position = lineEnd + 1;
+        }
+        return new ParsedChunk(rows, totalRows, failedRows);
+    }
+
+    // null - помилка формату (мало колонок, порожній код, некоректна кількість або дата)
+    private FrozenBarcode parseLine(byte[] data, int start, int end, int[] commas) {
+        int found = 0;
+        for (int i = start; i < end && found < commas.length; i++) {
+            if (data[i] == ',') {
+                commas[found++] = i;
+            }
+        }
+        if (found < commas.length) {
+            return null;
+        }
+        // П'ята колонка - до наступної коми або кінця рядка
+        int fifthEnd = indexOf(data, (byte) ',', commas[3] + 1, end);
+        if (fifthEnd < 0) {
+            fifthEnd = end;
+        }
+
+        String code = text(data, start, commas[0]);
+        if (code.isEmpty()) {
+            return null;
+        }
+        String apn = text(data, commas[0] + 1, commas[1]);
+        Integer quantity = quantity(data, commas[1] + 1, commas[2]);
+        LocalDate dateAdded = date(data, commas[2] + 1, commas[3]);
+        LocalDate dateDiscarded = date(data, commas[3] + 1, fifthEnd);
+        if (quantity == null || dateAdded == null || dateDiscarded == null) {
+            return null;
+        }
+        return new FrozenBarcode(code, apn, quantity, dateAdded, dateDiscarded);
+    }
+
+    private static String text(byte[] data, int start, int end) {
+        while (start < end && (data[start] & 0xFF) <= ' ') start++;
+        while (end > start && (data[end - 1] & 0xFF) <= ' ') end--;
+        return new String(data, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    // Пробіли всередині числа ігноруються ("1 000"), порожнє значення - 0
+    private static Integer quantity(byte[] data, int start, int end) {
+        long value = 0;
+        boolean negative = false;
+        boolean signAllowed = true;
+        for (int i = start; i < end; i++) {
+            int b = data[i] & 0xFF;
+            if (b <= ' ') {
+                continue;
+            }
+            if (signAllowed && (b == '-' || b == '+')) {
+                negative = b == '-';
+                signAllowed = false;
+                continue;
+            }
+            if (b < '0' || b > '9') {
+                return null;
+            }
+            signAllowed = false;
+            value = value * 10 + (b - '0');
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return null;
+            }
+        }
+        value = negative ? -value : value;
+        return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? null : (int) value;
+    }
+
+    private LocalDate date(byte[] data, int start, int end) {
+        while (start < end && (data[start] & 0xFF) <= ' ') start++;
+        while (end > start && (data[end - 1] & 0xFF) <= ' ') end--;
+        if (end - start != 10 || data[start + 2] != '.' || data[start + 5] != '.') {
+            return null;
+        }
+        int day = digits(data, start, 2);
+        int month = digits(data, start + 3, 2);
+        int year = digits(data, start + 6, 4);
+        if (day < 1 || day > 31 || month < 1 || month > 12 || year < 0) {
+            return null;
+        }
+        int key = year * 10000 + month * 100 + day;
+        LocalDate cached = dateCache.get(key);
+        if (cached == null) {
+            // Як LocalDate.parse у режимі SMART: 31.04 -> 30.04
+            YearMonth yearMonth = YearMonth.of(year, month);
+            cached = yearMonth.atDay(Math.min(day, yearMonth.lengthOfMonth()));
+            dateCache.put(key, cached);
+        }
+        return cached;
+    }
+
+    // -1, якщо серед count байтів є не цифра
+    private static int digits(byte[] data, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = data[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int lastLineEnd(byte[] data, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (data[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    private static int indexOf(byte[] data, byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static ParsedChunk await(Future<ParsedChunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Розбір файлу перервано");
+        } catch (ExecutionException e) {
+            throw new IOException("Помилка розбору файлу: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+}
@@ -1,42 +1,58 @@
 package ua.karpaty.barcodetracker.Service;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Window;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionDefinition;
-import org.springframework.transaction.TransactionStatus; // <--- ДОДАНО
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.transaction.support.TransactionCallback; // <--- ДОДАНО
 import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
+import ua.karpaty.barcodetracker.Dto.CursorPageDto;
+import ua.karpaty.barcodetracker.Dto.ImportJobResultDto;
 import ua.karpaty.barcodetracker.Entity.Frozen.FrozenBarcode;
+import ua.karpaty.barcodetracker.Repository.Frozen.FrozenBarcodeJdbcWriter;
 import ua.karpaty.barcodetracker.Repository.Frozen.FrozenBarcodeRepository;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
-import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 public class FrozenDataService {
 
     private final FrozenBarcodeRepository frozenBarcodeRepository;
+    private final FrozenBarcodeJdbcWriter frozenBarcodeJdbcWriter;
     private final TransactionTemplate transactionTemplate;
+    private final KnownCodeFilter knownCodeFilter;
+    private final DashboardCounterService dashboardCounterService;
+    private final FrozenCsvParser csvParser;
     private static final int BATCH_SIZE = 2000;
 
     @Autowired
     public FrozenDataService(FrozenBarcodeRepository frozenBarcodeRepository,
-                             @Qualifier("frozenTransactionManager") PlatformTransactionManager transactionManager) {
+                             FrozenBarcodeJdbcWriter frozenBarcodeJdbcWriter,
+                             @Qualifier("frozenTransactionManager") PlatformTransactionManager transactionManager,
+                             KnownCodeFilter knownCodeFilter,
+                             DashboardCounterService dashboardCounterService,
+                             @Qualifier("frozenParseExecutor") ThreadPoolTaskExecutor frozenParseExecutor,
+                             @Value("${bct.frozen-import.chunk-size-kb:4096}") int chunkSizeKb) {
         this.frozenBarcodeRepository = frozenBarcodeRepository;
+        this.frozenBarcodeJdbcWriter = frozenBarcodeJdbcWriter;
+        this.knownCodeFilter = knownCodeFilter;
+        this.dashboardCounterService = dashboardCounterService;
+        this.csvParser = new FrozenCsvParser(frozenParseExecutor, frozenParseExecutor.getMaxPoolSize(), chunkSizeKb * 1024);
 
         this.transactionTemplate = new TransactionTemplate(transactionManager);
         this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
@@ -46,108 +62,98 @@ public class FrozenDataService {
      * Головний метод імпорту.
      */
     public String importFromCsv(MultipartFile file) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy");
-        List<FrozenBarcode> batch = new ArrayList<>(BATCH_SIZE);
-        long totalSaved = 0;
-        long skippedRows = 0;
-        long duplicateRows = 0;
-
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
-            String line;
-            boolean isFirstLine = true;
-
-            while ((line = reader.readLine()) != null) {
-                if (isFirstLine) {
-                    isFirstLine = false;
-                    continue;
-                }
-
-                String[] columns = line.split(",", -1);
-                if (columns.length < 5) {
-                    skippedRows++;
-                    continue;
-                }
-
-                try {
-                    String code = columns[0].trim();
-                    String apn = columns[1].trim();
-                    String cleanQuantity = columns[2].replaceAll("\\s+", "");
+        try {
+            return importFromCsv(file, new ImportJobProgress()).getMessage();
+        } catch (Exception e) {
+            return "Помилка під час читання файлу " + file.getOriginalFilename() + ": " + e.getMessage();
+        }
+    }
 
-                    Integer quantity = cleanQuantity.isEmpty() ? 0 : Integer.parseInt(cleanQuantity);
-                    LocalDate dateAdded = LocalDate.parse(columns[3].trim(), formatter);
-                    LocalDate dateDiscarded = LocalDate.parse(columns[4].trim(), formatter);
+    /**
+     * Те саме, але з оновленням прогресу фонової задачі після кожного пакета.
+     */
+    public ImportJobResultDto importFromCsv(MultipartFile file, ImportJobProgress progress) throws IOException {
+        // Фонова задача вже має копію на диску; інакше зберігаємо тимчасову
+        Path path;
+        Path tempCopy = null;
+        if (file instanceof StoredMultipartFile stored) {
+            path = stored.getPath();
+        } else {
+            tempCopy = Files.createTempFile("bct-frozen-", ".csv");
+            file.transferTo(tempCopy);
+            path = tempCopy;
+        }
 
-                    if (code.isEmpty()) {
-                        skippedRows++;
-                        continue;
-                    }
+        long startNanos = System.nanoTime();
+        long[] totals = new long[4]; // рядків, збережено, дублікатів, помилок формату
+        List<FrozenBarcode> batch = new ArrayList<>(BATCH_SIZE);
 
-                    batch.add(new FrozenBarcode(code, apn, quantity, dateAdded, dateDiscarded));
+        try {
+            // Розбір іде паралельно, а запис - лише тут, в одному потоці, пакетами по BATCH_SIZE
+            csvParser.parse(path, chunk -> {
+                totals[0] += chunk.totalRows();
+                totals[3] += chunk.failedRows();
+                progress.addFailed(chunk.failedRows());
+                progress.addProcessed(chunk.failedRows());
 
+                for (FrozenBarcode row : chunk.rows()) {
+                    batch.add(row);
                     if (batch.size() >= BATCH_SIZE) {
-                        long saved = processBatchInTransaction(batch);
-                        totalSaved += saved;
-                        duplicateRows += (batch.size() - saved);
-                        batch.clear();
+                        saveBatch(batch, totals, progress);
                     }
-                } catch (DateTimeParseException | NumberFormatException e) {
-                    skippedRows++;
                 }
-            }
-
+            });
             if (!batch.isEmpty()) {
-                long saved = processBatchInTransaction(batch);
-                totalSaved += saved;
-                duplicateRows += (batch.size() - saved);
-                batch.clear();
+                saveBatch(batch, totals, progress);
+            }
+        } finally {
+            if (tempCopy != null) {
+                Files.deleteIfExists(tempCopy);
             }
-
-        } catch (Exception e) {
-            return "Помилка під час читання файлу " + file.getOriginalFilename() + ": " + e.getMessage();
         }
 
-        return "Файл " + file.getOriginalFilename() + " оброблено. Збережено: " + totalSaved +
-                ", дублікатів: " + duplicateRows + ", помилок формату: " + skippedRows + ".";
+        long elapsedMs = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+        long rowsPerSecond = totals[0] * 1000 / elapsedMs;
+        log.info("Frozen CSV '{}': {} rows in {} ms ({} rows/s), saved {}, duplicates {}, format errors {}",
+                file.getOriginalFilename(), totals[0], elapsedMs, rowsPerSecond, totals[1], totals[2], totals[3]);
+
+        String message = "Файл " + file.getOriginalFilename() + " оброблено. Збережено: " + totals[1] +
+                ", дублікатів: " + totals[2] + ", помилок формату: " + totals[3] +
+                ". Швидкість: " + rowsPerSecond + " рядків/с.";
+        return new ImportJobResultDto(message, null, totals[0], totals[1], totals[2], totals[3]);
+    }
+
+    private void saveBatch(List<FrozenBarcode> batch, long[] totals, ImportJobProgress progress) {
+        long saved = processBatchInTransaction(batch);
+        totals[1] += saved;
+        totals[2] += batch.size() - saved;
+        reportBatch(progress, batch.size(), saved);
+        batch.clear();
+    }
+
+    private void reportBatch(ImportJobProgress progress, int batchSize, long saved) {
+        progress.addProcessed(batchSize);
+        progress.addAdded(saved);
+        progress.addSkipped(batchSize - saved);
     }
 
     /**
-     * Виконує збереження пакета в окремій транзакції.
-     * Використовуємо явний тип TransactionCallback<Long> для уникнення помилок компіляції.
+     * Виконує збереження пакета в окремій транзакції. Дублікати відкидає сам
+     * INSERT OR IGNORE (FrozenBarcodeJdbcWriter), без попереднього запиту.
      */
     private long processBatchInTransaction(List<FrozenBarcode> batch) {
-        Long result = transactionTemplate.execute(new TransactionCallback<Long>() {
-            @Override
-            public Long doInTransaction(TransactionStatus status) {
-                try {
-                    List<String> codesInBatch = batch.stream()
-                            .map(FrozenBarcode::getCode)
-                            .collect(Collectors.toList());
-
-                    // 1. Знаходимо існуючі
-                    Set<String> existingCodes = frozenBarcodeRepository.findExistingCodes(codesInBatch);
-
-                    // 2. Фільтруємо
-                    List<FrozenBarcode> newBarcodes = new ArrayList<>();
-                    Set<String> uniqueInBatch = new HashSet<>();
-
-                    for (FrozenBarcode fb : batch) {
-                        if (!existingCodes.contains(fb.getCode()) && uniqueInBatch.add(fb.getCode())) {
-                            newBarcodes.add(fb);
-                        }
-                    }
-
-                    // 3. Зберігаємо
-                    if (!newBarcodes.isEmpty()) {
-                        frozenBarcodeRepository.saveAllAndFlush(newBarcodes);
-                    }
-
-                    return (long) newBarcodes.size();
-
-                } catch (Exception e) {
-                    status.setRollbackOnly();
-                    System.err.println("Помилка під час збереження пакету: " + e.getMessage());
-                    return 0L;
+        Long result = transactionTemplate.execute(status -> {
+            try {
+                List<String> inserted = frozenBarcodeJdbcWriter.insertIgnoringDuplicates(batch);
+                if (!inserted.isEmpty()) {
+                    knownCodeFilter.addAll(inserted);
+                    dashboardCounterService.addFrozen(inserted.size());
                 }
+                return (long) inserted.size();
+            } catch (Exception e) {
+                status.setRollbackOnly();
+                log.error("Помилка під час збереження пакету: {}", e.getMessage());
+                return 0L;
             }
         });
 
@@ -159,6 +165,24 @@ public class FrozenDataService {
         return frozenBarcodeRepository.findByCode(code);
     }
 
+    // Архів списаних для /discarded?searchArchive=true, від найновіших списань
+    @Transactional(readOnly = true, transactionManager = "frozenTransactionManager")
+    public CursorPageDto<FrozenBarcode> findDiscarded(LocalDate date, String apn, String cursor, int page, int size) {
+        KeysetScrollPosition position = KeysetCursors.decode(cursor);
+        KeysetCursors.KeyRange<LocalDate> range = KeysetCursors.leadingDateRange(position, "dateDiscarded", false);
+        if (date != null) {
+            range = range.within(date, date);
+        }
+        Limit limit = Limit.of(size);
+        Window<FrozenBarcode> window = apn != null
+                ? frozenBarcodeRepository.findByApnContainingIgnoreCaseAndDateDiscardedBetweenOrderByDateDiscardedDescIdDesc(
+                        apn, range.from(), range.to(), position, limit)
+                : frozenBarcodeRepository.findByDateDiscardedBetweenOrderByDateDiscardedDescIdDesc(range.from(), range.to(), position, limit);
+        Long total = date == null && apn == null && dashboardCounterService.isInitialized()
+                ? dashboardCounterService.getFrozenTotal() : null;
+        return KeysetCursors.toPage(window, position, page, size, total);
+    }
+
     @Transactional(readOnly = true, transactionManager = "frozenTransactionManager")
     public long countTotalFrozenBarcodes() {
         return frozenBarcodeRepository.count();
@@ -0,0 +1,228 @@
+package ua.karpaty.barcodetracker.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Місячні секції location_history і status_history (секціонування - міграція V4).
+ * <p>
+ * Під час старту і щодня за bct.history.partitions.cron створює секції на поточний і
+ * bct.history.partitions.months-ahead наступних місяців. Рядки, що вже встигли потрапити
+ * в секцію DEFAULT за цей місяць, переносяться в нову секцію в тій самій транзакції.
+ * <p>
+ * Якщо bct.history.partitions.retention-months більше 0, секції, що цілком старші за цей
+ * строк, вивантажуються в bct.history.partitions.export-dir (CSV у gzip) і лише після
+ * цього від'єднуються та видаляються. Закриті місяці графіків уже збережені в MonthlyStat,
+ * тому на дашборд це не впливає; історія окремого штрих-коду за ті місяці буде лише у файлі.
+ */
+@Slf4j
+@Service
+public class HistoryPartitionManager implements ApplicationRunner {
+
+    private static final List<String> TABLES = List.of("location_history", "status_history");
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final DateTimeFormatter BOUND = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    // pg_get_expr(relpartbound): FOR VALUES FROM ('2026-11-01 00:00:00') TO ('2026-12-01 00:00:00') або DEFAULT
+    private static final Pattern RANGE = Pattern.compile("FROM \\((.+?)\\) TO \\((.+?)\\)");
+
+    private static final int EXPORT_FETCH_SIZE = 5_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate primaryTransaction;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final Path exportDir;
+
+    private record Partition(String name, LocalDateTime from, LocalDateTime to) {
+
+        boolean isDefault() {
+            return from == null && to == null;
+        }
+
+        boolean overlaps(LocalDateTime start, LocalDateTime end) {
+            return !isDefault() && (from == null || from.isBefore(end)) && (to == null || to.isAfter(start));
+        }
+    }
+
+    @Autowired
+    public HistoryPartitionManager(@Qualifier("primaryDataSource") DataSource dataSource,
+                                   @Qualifier("primaryTransactionManager") PlatformTransactionManager primaryTransactionManager,
+                                   @Value("${bct.history.partitions.months-ahead:3}") int monthsAhead,
+                                   @Value("${bct.history.partitions.retention-months:0}") int retentionMonths,
+                                   @Value("${bct.history.partitions.export-dir:history-export}") String exportDir) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.primaryTransaction = new TransactionTemplate(primaryTransactionManager);
+        this.monthsAhead = Math.max(0, monthsAhead);
+        this.retentionMonths = retentionMonths;
+        this.exportDir = Paths.get(exportDir);
+    }
+
+    // Після PrimarySchemaMigrations: до міграції V4 таблиці ще не секціоновані
+    @Override
+    public void run(ApplicationArguments args) {
+        maintain();
+    }
+
+    @Scheduled(cron = "${bct.history.partitions.cron:0 15 2 * * *}")
+    public void scheduledRun() {
+        maintain();
+    }
+
+    public synchronized void maintain() {
+        for (String table : TABLES) {
+            try {
+                if (!isPartitioned(table)) {
+                    log.warn("Table '{}' is not partitioned yet (migration V4), partition maintenance skipped", table);
+                    continue;
+                }
+                createUpcoming(table);
+                if (retentionMonths > 0) {
+                    dropExpired(table);
+                }
+            } catch (Exception e) {
+                log.error("Partition maintenance for '{}' failed: {}", table, e.getMessage(), e);
+            }
+        }
+    }
+
+    private void createUpcoming(String table) {
+        YearMonth current = YearMonth.now();
+        for (YearMonth month = current; !month.isAfter(current.plusMonths(monthsAhead)); month = month.plusMonths(1)) {
+            LocalDateTime start = month.atDay(1).atStartOfDay();
+            LocalDateTime end = month.plusMonths(1).atDay(1).atStartOfDay();
+            List<Partition> partitions = listPartitions(table);
+            if (partitions.stream().anyMatch(p -> p.overlaps(start, end))) {
+                continue;
+            }
+            String name = table + "_p" + month.format(SUFFIX);
+            String defaultPartition = partitions.stream().filter(Partition::isDefault).map(Partition::name).findFirst().orElse(null);
+
+            Integer moved = primaryTransaction.execute(status -> {
+                jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE " + table + " INCLUDING DEFAULTS)");
+                jdbcTemplate.execute("ALTER TABLE " + name + " ADD PRIMARY KEY (id)");
+                int rows = 0;
+                if (defaultPartition != null) {
+                    // Інакше ATTACH відмовить: ці рядки вже лежать у DEFAULT
+                    rows = jdbcTemplate.update("WITH moved AS (DELETE FROM " + defaultPartition +
+                            " WHERE change_time >= ? AND change_time < ? RETURNING *) INSERT INTO " + name +
+                            " SELECT * FROM moved", start, end);
+                }
+                jdbcTemplate.execute("ALTER TABLE " + table + " ATTACH PARTITION " + name +
+                        " FOR VALUES FROM ('" + start.format(BOUND) + "') TO ('" + end.format(BOUND) + "')");
+                return rows;
+            });
+            log.info("Created partition '{}' for {} ({} rows moved from default)", name, month, moved);
+        }
+    }
+
+    private void dropExpired(String table) throws IOException {
+        LocalDateTime cutoff = YearMonth.now().minusMonths(retentionMonths).atDay(1).atStartOfDay();
+        for (Partition partition : listPartitions(table)) {
+            if (partition.isDefault() || partition.to() == null || partition.to().isAfter(cutoff)) {
+                continue;
+            }
+            long startNanos = System.nanoTime();
+            Path file = export(partition.name());
+            // Спершу файл, потім видалення: якщо вивантаження впало, секція лишається на місці
+            primaryTransaction.executeWithoutResult(status -> {
+                jdbcTemplate.execute("ALTER TABLE " + table + " DETACH PARTITION " + partition.name());
+                jdbcTemplate.execute("DROP TABLE " + partition.name());
+            });
+            log.info("Partition '{}' (until {}) exported to {} and dropped in {} ms",
+                    partition.name(), partition.to(), file, (System.nanoTime() - startNanos) / 1_000_000);
+        }
+    }
+
+    private Path export(String partition) throws IOException {
+        Files.createDirectories(exportDir);
+        Path file = exportDir.resolve(partition + ".csv.gz");
+        Path temp = exportDir.resolve(partition + ".csv.gz.part");
+        String[] headers = jdbcTemplate.query("SELECT * FROM " + partition + " LIMIT 0", rs -> {
+            ResultSetMetaData meta = rs.getMetaData();
+            String[] names = new String[meta.getColumnCount()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = meta.getColumnName(i + 1);
+            }
+            return names;
+        });
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            primaryTransaction.executeWithoutResult(status -> {
+                // Курсор PostgreSQL (fetch size) працює лише всередині транзакції
+                JdbcTemplate reader = new JdbcTemplate(jdbcTemplate.getDataSource());
+                reader.setFetchSize(EXPORT_FETCH_SIZE);
+                try (Stream<Object[]> rows = reader.queryForStream("SELECT * FROM " + partition + " ORDER BY change_time, id",
+                        (rs, rowNum) -> {
+                            Object[] values = new Object[headers.length];
+                            for (int i = 0; i < values.length; i++) {
+                                Object value = rs.getObject(i + 1);
+                                values[i] = value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : value;
+                            }
+                            return values;
+                        })) {
+                    CsvExporter.exportRows(rows, headers, true, out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private boolean isPartitioned(String table) {
+        String kind = jdbcTemplate.queryForObject(
+                "SELECT relkind::text FROM pg_class WHERE oid = to_regclass(?)", String.class, table);
+        return "p".equals(kind);
+    }
+
+    private List<Partition> listPartitions(String table) {
+        return jdbcTemplate.query(
+                "SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) FROM pg_inherits i " +
+                        "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = to_regclass(?)",
+                (rs, rowNum) -> {
+                    Matcher range = RANGE.matcher(rs.getString(2));
+                    if (!range.find()) {
+                        return new Partition(rs.getString(1), null, null);
+                    }
+                    return new Partition(rs.getString(1), parseBound(range.group(1)), parseBound(range.group(2)));
+                },
+                table);
+    }
+
+    // MINVALUE/MAXVALUE -> null, інакше '2026-11-01 00:00:00'
+    private static LocalDateTime parseBound(String bound) {
+        if (!bound.startsWith("'")) {
+            return null;
+        }
+        return Timestamp.valueOf(bound.substring(1, bound.length() - 1)).toLocalDateTime();
+    }
+}
@@ -0,0 +1,47 @@
+package ua.karpaty.barcodetracker.Service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Живі лічильники задачі, що виконується. Оновлюються робочим потоком,
+ * читаються ендпоінтом /jobs/{id} без звернення до БД.
+ */
+public class ImportJobProgress {
+
+    private final AtomicLong processedRows = new AtomicLong();
+    private final AtomicLong addedRows = new AtomicLong();
+    private final AtomicLong skippedRows = new AtomicLong();
+    private final AtomicLong failedRows = new AtomicLong();
+
+    public void addProcessed(long count) {
+        processedRows.addAndGet(count);
+    }
+
+    public void addAdded(long count) {
+        addedRows.addAndGet(count);
+    }
+
+    public void addSkipped(long count) {
+        skippedRows.addAndGet(count);
+    }
+
+    public void addFailed(long count) {
+        failedRows.addAndGet(count);
+    }
+
+    public long getProcessedRows() {
+        return processedRows.get();
+    }
+
+    public long getAddedRows() {
+        return addedRows.get();
+    }
+
+    public long getSkippedRows() {
+        return skippedRows.get();
+    }
+
+    public long getFailedRows() {
+        return failedRows.get();
+    }
+}
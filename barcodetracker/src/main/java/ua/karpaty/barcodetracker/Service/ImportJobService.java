@@ -0,0 +1,209 @@
+package ua.karpaty.barcodetracker.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import ua.karpaty.barcodetracker.Dto.ImportJobResultDto;
+import ua.karpaty.barcodetracker.Dto.ImportJobStatusDto;
+import ua.karpaty.barcodetracker.Entity.ImportBatch;
+import ua.karpaty.barcodetracker.Entity.ImportJobState;
+import ua.karpaty.barcodetracker.Entity.ImportJobType;
+import ua.karpaty.barcodetracker.Repository.ImportBatchRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Фонові задачі імпорту. Запит лише зберігає копію файлу, створює запис
+ * ImportBatch у стані QUEUED і одразу повертає його id; обробка йде
+ * в обмеженому пулі importJobExecutor.
+ */
+@Slf4j
+@Service
+public class ImportJobService {
+
+    private final ImportBatchRepository importBatchRepository;
+    private final ThreadPoolTaskExecutor importJobExecutor;
+
+    // Прогрес задач, що ще не завершились (id ImportBatch -> лічильники)
+    private final Map<Long, ImportJobProgress> activeJobs = new ConcurrentHashMap<>();
+
+    // Момент створення сервісу - ще до старту веб-сервера, тож до першої задачі цього екземпляра
+    private final LocalDateTime instanceStartedAt = LocalDateTime.now();
+
+    @Autowired
+    public ImportJobService(ImportBatchRepository importBatchRepository,
+                            @Qualifier("importJobExecutor") ThreadPoolTaskExecutor importJobExecutor) {
+        this.importBatchRepository = importBatchRepository;
+        this.importJobExecutor = importJobExecutor;
+    }
+
+    /**
+     * Ставить файл у чергу. Кидає IllegalStateException, якщо черга заповнена.
+     * Без назви (name == null) задача називається за id свого запису, як імпорт нових кодів.
+     */
+    public ImportBatch submit(ImportJobType type, String name, MultipartFile file, ImportJobTask task) throws IOException {
+        String originalName = file.getOriginalFilename();
+        Path storedPath = Files.createTempFile("bct-import-", suffixOf(originalName));
+        try {
+            file.transferTo(storedPath);
+            StoredMultipartFile storedFile = new StoredMultipartFile(storedPath, originalName, file.getContentType());
+
+            ImportBatch job = importBatchRepository.save(new ImportBatch(name, LocalDateTime.now(), type, originalName));
+            if (name == null) {
+                job.setName(BarcodeService.importName(job.getId()));
+                importBatchRepository.save(job);
+            }
+            ImportJobProgress progress = new ImportJobProgress();
+            activeJobs.put(job.getId(), progress);
+
+            try {
+                importJobExecutor.execute(() -> runJob(job, storedFile, task, progress));
+            } catch (TaskRejectedException e) {
+                activeJobs.remove(job.getId());
+                finishJob(job.getId(), ImportJobState.FAILED, progress, "Черга імпорту заповнена, спробуйте пізніше.", null, null);
+                throw new IllegalStateException("Черга імпорту заповнена, спробуйте пізніше.", e);
+            }
+
+            log.info("Import job {} ({}) queued for file '{}'", job.getId(), type, originalName);
+            return job;
+        } catch (IOException | RuntimeException e) {
+            // Поки задача не в черзі, файл більше ніхто не видалить (далі це робить runJob)
+            deleteQuietly(storedPath);
+            throw e;
+        }
+    }
+
+    public Optional<ImportJobStatusDto> getStatus(Long jobId) {
+        return importBatchRepository.findById(jobId).map(this::toStatus);
+    }
+
+    public List<ImportJobStatusDto> getRecentJobs() {
+        return importBatchRepository.findTop20ByOrderByIdDesc().stream().map(this::toStatus).toList();
+    }
+
+    // Задачі, що залишились у QUEUED/RUNNING після перезапуску, вже ніхто не виконає.
+    // Лише створені до старту цього екземпляра: веб-сервер уже приймає запити, і задачу,
+    // поставлену в чергу щойно, не можна позначити перерваною.
+    @EventListener(ApplicationReadyEvent.class)
+    public void failInterruptedJobs() {
+        List<ImportBatch> interrupted = importBatchRepository.findByStateInAndImportDateBefore(
+                List.of(ImportJobState.QUEUED, ImportJobState.RUNNING), instanceStartedAt);
+        for (ImportBatch job : interrupted) {
+            job.setState(ImportJobState.FAILED);
+            job.setFinishedAt(LocalDateTime.now());
+            job.setMessage("Задачу перервано перезапуском застосунку.");
+            importBatchRepository.save(job);
+        }
+        if (!interrupted.isEmpty()) {
+            log.warn("Marked {} interrupted import jobs as FAILED", interrupted.size());
+        }
+    }
+
+    private void runJob(ImportBatch job, StoredMultipartFile file, ImportJobTask task, ImportJobProgress progress) {
+        LocalDateTime startedAt = LocalDateTime.now();
+        importBatchRepository.findById(job.getId()).ifPresent(record -> {
+            record.setState(ImportJobState.RUNNING);
+            record.setStartedAt(startedAt);
+            importBatchRepository.save(record);
+        });
+
+        try {
+            ImportJobResultDto result = task.run(file, job, progress);
+            finishJob(job.getId(), ImportJobState.COMPLETED, progress, result.getMessage(), result.getDetails(), result);
+            log.info("Import job {} completed: {}", job.getId(), result.getMessage());
+        } catch (Exception e) {
+            log.error("Import job {} failed: {}", job.getId(), e.getMessage(), e);
+            finishJob(job.getId(), ImportJobState.FAILED, progress, "Помилка під час обробки файлу: " + e.getMessage(), null, null);
+        } finally {
+            activeJobs.remove(job.getId());
+            deleteQuietly(file.getPath());
+        }
+    }
+
+    private void finishJob(Long jobId, ImportJobState state, ImportJobProgress progress,
+                           String message, String details, ImportJobResultDto result) {
+        // Перечитуємо запис: задача могла сама оновити його (наприклад, barcodeCount)
+        importBatchRepository.findById(jobId).ifPresent(record -> {
+            LocalDateTime finishedAt = LocalDateTime.now();
+            record.setState(state);
+            record.setFinishedAt(finishedAt);
+            if (record.getStartedAt() != null) {
+                record.setDurationMs(Duration.between(record.getStartedAt(), finishedAt).toMillis());
+            }
+            record.setProcessedRows(progress.getProcessedRows());
+            if (result != null) {
+                record.setTotalRows(result.getTotalRows());
+                record.setAddedRows(result.getAddedRows());
+                record.setSkippedRows(result.getSkippedRows());
+                record.setFailedRows(result.getFailedRows());
+            } else {
+                record.setAddedRows(progress.getAddedRows());
+                record.setSkippedRows(progress.getSkippedRows());
+                record.setFailedRows(progress.getFailedRows());
+            }
+            record.setMessage(message);
+            record.setDetails(details);
+            importBatchRepository.save(record);
+        });
+    }
+
+    private ImportJobStatusDto toStatus(ImportBatch job) {
+        ImportJobProgress live = activeJobs.get(job.getId());
+        boolean useLive = live != null && !job.getState().isFinished();
+
+        Long durationMs = job.getDurationMs();
+        if (durationMs == null && job.getStartedAt() != null) {
+            durationMs = Duration.between(job.getStartedAt(), LocalDateTime.now()).toMillis();
+        }
+
+        return new ImportJobStatusDto(
+                job.getId(),
+                job.getName(),
+                job.getJobType() != null ? job.getJobType().name() : null,
+                job.getState() != null ? job.getState().name() : null,
+                job.getState() == null || job.getState().isFinished(),
+                job.getFileName(),
+                useLive ? live.getProcessedRows() : valueOf(job.getProcessedRows()),
+                useLive ? live.getAddedRows() : valueOf(job.getAddedRows()),
+                useLive ? live.getSkippedRows() : valueOf(job.getSkippedRows()),
+                useLive ? live.getFailedRows() : valueOf(job.getFailedRows()),
+                job.getTotalRows(),
+                job.getStartedAt(),
+                durationMs,
+                job.getMessage(),
+                job.getDetails()
+        );
+    }
+
+    private static long valueOf(Long value) {
+        return value != null ? value : 0L;
+    }
+
+    private static String suffixOf(String fileName) {
+        if (fileName == null) return null;
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 ? fileName.substring(dot) : null;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete temporary import file {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package ua.karpaty.barcodetracker.Service;
+
+import org.springframework.web.multipart.MultipartFile;
+import ua.karpaty.barcodetracker.Dto.ImportJobResultDto;
+import ua.karpaty.barcodetracker.Entity.ImportBatch;
+
+// Робота, яку виконує фонова задача імпорту над збереженою копією файлу
+@FunctionalInterface
+public interface ImportJobTask {
+    ImportJobResultDto run(MultipartFile file, ImportBatch job, ImportJobProgress progress) throws Exception;
+}
@@ -0,0 +1,141 @@
+package ua.karpaty.barcodetracker.Service;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import ua.karpaty.barcodetracker.Dto.CursorPageDto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Кодування позицій keyset-пагінації в непрозорі курсори для URL і збирання
+ * CursorPageDto з Window. Курсор "last" означає останню сторінку (прокрутка назад від кінця).
+ */
+public final class KeysetCursors {
+
+    public static final String LAST = "last";
+
+    public static final LocalDateTime MIN_DATE_TIME = LocalDateTime.of(1, 1, 1, 0, 0);
+    public static final LocalDateTime MAX_DATE_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    /**
+     * Межі першого ключа сортування, обидві включно.
+     */
+    public record KeyRange<T extends Comparable<? super T>>(T from, T to) {
+
+        public KeyRange<T> within(T start, T end) {
+            return new KeyRange<>(start.compareTo(from) > 0 ? start : from, end.compareTo(to) < 0 ? end : to);
+        }
+    }
+
+    private KeysetCursors() {
+    }
+
+    /**
+     * Некоректний або порожній курсор означає першу сторінку.
+     */
+    public static KeysetScrollPosition decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        if (LAST.equals(cursor)) {
+            return ScrollPosition.keyset().backward();
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            Map<String, Object> keys = new LinkedHashMap<>();
+            for (int i = 1; i < parts.length; i++) {
+                // ім'я=тип:значення
+                int eq = parts[i].indexOf('=');
+                int colon = parts[i].indexOf(':', eq);
+                String name = parts[i].substring(0, eq);
+                String type = parts[i].substring(eq + 1, colon);
+                String value = parts[i].substring(colon + 1);
+                keys.put(name, switch (type) {
+                    case "L" -> Long.valueOf(value);
+                    case "T" -> LocalDateTime.parse(value);
+                    case "D" -> LocalDate.parse(value);
+                    default -> value;
+                });
+            }
+            return "B".equals(parts[0]) ? ScrollPosition.backward(keys) : ScrollPosition.forward(keys);
+        } catch (RuntimeException e) {
+            return ScrollPosition.keyset();
+        }
+    }
+
+    /**
+     * Діапазон першого ключа сортування (дата і час), в якому лежить сторінка за цією позицією.
+     * Умову прокрутки Spring Data "a > ? OR a = ? AND id > ?" ні PostgreSQL, ні SQLite не беруть
+     * межею індексу і перебирають усі рядки попередніх сторінок; з додатковим
+     * "a BETWEEN from AND to" глибока сторінка читає з індексу лише свої рядки.
+     */
+    public static KeyRange<LocalDateTime> leadingKeyRange(KeysetScrollPosition position, String property, boolean ascending) {
+        return leadingKeyRange(position, property, ascending, LocalDateTime.class, MIN_DATE_TIME, MAX_DATE_TIME);
+    }
+
+    // Те саме для ключа-дати
+    public static KeyRange<LocalDate> leadingDateRange(KeysetScrollPosition position, String property, boolean ascending) {
+        return leadingKeyRange(position, property, ascending, LocalDate.class, MIN_DATE_TIME.toLocalDate(), MAX_DATE_TIME.toLocalDate());
+    }
+
+    private static <T extends Comparable<? super T>> KeyRange<T> leadingKeyRange(KeysetScrollPosition position, String property,
+                                                                                 boolean ascending, Class<T> type, T min, T max) {
+        Object key = position.getKeys().get(property);
+        if (!type.isInstance(key)) {
+            return new KeyRange<>(min, max);
+        }
+        // Вперед по зростанню і назад по спаданню - до більших значень
+        return ascending != position.scrollsBackward()
+                ? new KeyRange<>(type.cast(key), max)
+                : new KeyRange<>(min, type.cast(key));
+    }
+
+    public static String encode(KeysetScrollPosition position) {
+        StringBuilder raw = new StringBuilder(position.scrollsBackward() ? "B" : "F");
+        for (Map.Entry<String, ?> key : position.getKeys().entrySet()) {
+            Object value = key.getValue();
+            String type = value instanceof Long || value instanceof Integer ? "L"
+                    : value instanceof LocalDateTime ? "T"
+                    : value instanceof LocalDate ? "D"
+                    : "S";
+            raw.append('|').append(key.getKey()).append('=').append(type).append(':').append(value);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param pageNumber номер сторінки з запиту (лише для відображення), -1 якщо невідомий
+     */
+    public static <T> CursorPageDto<T> toPage(Window<T> window, KeysetScrollPosition position, int pageNumber,
+                                              int pageSize, Long approximateTotal) {
+        boolean initial = position.isInitial();
+        boolean backward = position.scrollsBackward();
+
+        if (backward && initial && approximateTotal != null) {
+            pageNumber = (int) Math.max(0, (approximateTotal - 1) / pageSize);
+        } else if (initial && !backward) {
+            pageNumber = 0;
+        }
+
+        // При прокрутці назад window.hasNext() означає, що є ще попередні сторінки
+        boolean hasPrevious = backward ? window.hasNext() : !initial;
+        boolean hasNext = backward ? !initial : window.hasNext();
+
+        String previousCursor = null;
+        String nextCursor = null;
+        if (!window.isEmpty()) {
+            previousCursor = encode(((KeysetScrollPosition) window.positionAt(0)).backward());
+            nextCursor = encode(((KeysetScrollPosition) window.positionAt(window.size() - 1)).forward());
+        }
+
+        return new CursorPageDto<>(window.getContent(), pageNumber, pageSize, hasPrevious && previousCursor != null,
+                hasNext && nextCursor != null, previousCursor, nextCursor, approximateTotal);
+    }
+}
@@ -0,0 +1,235 @@
+package ua.karpaty.barcodetracker.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.karpaty.barcodetracker.Dto.CodeFilterStatsDto;
+import ua.karpaty.barcodetracker.Repository.BarcodeRepository;
+import ua.karpaty.barcodetracker.Repository.Frozen.FrozenBarcodeRepository;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Фільтр Блума над усіма відомими кодами ("гаряча" + "заморожена" база).
+ * Коди, яких фільтр точно не бачив, не потребують запиту до БД під час імпорту;
+ * перевіряються лише можливі збіги. Поки фільтр будується, усі коди вважаються
+ * можливими збігами, тобто поведінка така сама, як без фільтра.
+ * <p>
+ * Нові коди додаються після коміту транзакції, що їх записала. Перебудова спершу
+ * публікує новий фільтр у building і лише потім читає коди з баз: код, закомічений
+ * раніше, потрапить у знімок, а пізніший - через addAll в обидва фільтри. Раз на
+ * bct.code-filter.rebuild-interval-ms фільтр перебудовується повністю: так він позбувається
+ * кодів, яких у базах уже немає, і відновлюється, якщо попередня побудова впала.
+ */
+@Slf4j
+@Service
+public class KnownCodeFilter {
+
+    // Мінімальний розмір фільтра, щоб не перебудовувати його одразу після старту на порожній базі
+    private static final long MIN_EXPECTED_CODES = 1_000_000;
+
+    private final BarcodeRepository barcodeRepository;
+    private final FrozenBarcodeRepository frozenBarcodeRepository;
+    private final TransactionTemplate primaryTransactionTemplate;
+    private final TransactionTemplate frozenTransactionTemplate;
+    private final boolean enabled;
+    private final double falsePositiveRate;
+
+    private volatile CodeBloomFilter filter;
+    // Фільтр, що зараз будується: нові коди пишуться і в нього, щоб не загубити їх під час перебудови
+    private volatile CodeBloomFilter building;
+    private final AtomicBoolean rebuildInProgress = new AtomicBoolean();
+    private volatile long lastBuildMs;
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong definiteMisses = new AtomicLong();
+    private final AtomicLong possibleHits = new AtomicLong();
+    private final AtomicLong confirmedHits = new AtomicLong();
+    private final AtomicLong lookupNanos = new AtomicLong();
+
+    @Autowired
+    public KnownCodeFilter(BarcodeRepository barcodeRepository, FrozenBarcodeRepository frozenBarcodeRepository,
+                           @Qualifier("primaryTransactionManager") PlatformTransactionManager primaryTransactionManager,
+                           @Qualifier("frozenTransactionManager") PlatformTransactionManager frozenTransactionManager,
+                           @Value("${bct.code-filter.enabled:true}") boolean enabled,
+                           @Value("${bct.code-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.barcodeRepository = barcodeRepository;
+        this.frozenBarcodeRepository = frozenBarcodeRepository;
+        this.primaryTransactionTemplate = readOnlyTemplate(primaryTransactionManager);
+        this.frozenTransactionTemplate = readOnlyTemplate(frozenTransactionManager);
+        this.enabled = enabled;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (enabled) {
+            rebuildAsync();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bct.code-filter.rebuild-interval-ms:21600000}",
+            initialDelayString = "${bct.code-filter.rebuild-interval-ms:21600000}")
+    public void scheduledRebuild() {
+        if (enabled) {
+            rebuildAsync();
+        }
+    }
+
+    /**
+     * Залишає лише коди, які можуть вже існувати. Решта точно нові і не потребують перевірки в БД.
+     */
+    public List<String> filterPossiblyKnown(Collection<String> codes) {
+        CodeBloomFilter current = filter;
+        if (current == null) {
+            return new ArrayList<>(codes);
+        }
+
+        long startNanos = System.nanoTime();
+        List<String> possible = new ArrayList<>();
+        for (String code : codes) {
+            if (current.mightContain(code)) {
+                possible.add(code);
+            }
+        }
+        lookupNanos.addAndGet(System.nanoTime() - startNanos);
+        lookups.addAndGet(codes.size());
+        possibleHits.addAndGet(possible.size());
+        definiteMisses.addAndGet(codes.size() - possible.size());
+        return possible;
+    }
+
+    /**
+     * Перевірка одного коду для пошуку (BarcodeLookupService); false - коду точно немає в жодній базі.
+     * Не враховується в статистиці фільтра, яка описує імпорт.
+     */
+    public boolean mightBeKnown(String code) {
+        CodeBloomFilter current = filter;
+        return current == null || current.mightContain(code);
+    }
+
+    /**
+     * Скільки з можливих збігів БД справді підтвердила; решта - хибнопозитивні відповіді фільтра.
+     */
+    public void recordVerified(int confirmed) {
+        if (filter != null) {
+            confirmedHits.addAndGet(confirmed);
+        }
+    }
+
+    /**
+     * Додає записані коди. Усередині транзакції - після її коміту, щоб перебудова, яка
+     * вже прочитала знімок бази, не пропустила їх.
+     */
+    public void addAll(Collection<String> codes) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<String> committed = List.copyOf(codes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    put(committed);
+                }
+            });
+        } else {
+            put(codes);
+        }
+    }
+
+    private void put(Collection<String> codes) {
+        // Спершу building, потім filter: якщо перебудова саме завершилась, filter уже новий
+        CodeBloomFilter next = building;
+        CodeBloomFilter current = filter;
+        for (String code : codes) {
+            if (current != null) current.put(code);
+            if (next != null) next.put(code);
+        }
+        if (current != null && current.isSaturated()) {
+            log.info("Known code filter is saturated ({} codes), rebuilding", current.getInsertions());
+            rebuildAsync();
+        }
+    }
+
+    public CodeFilterStatsDto getStats() {
+        CodeBloomFilter current = filter;
+        long lookupCount = lookups.get();
+        long possible = possibleHits.get();
+        long confirmed = confirmedHits.get();
+        return new CodeFilterStatsDto(
+                enabled,
+                current != null,
+                rebuildInProgress.get(),
+                current != null ? current.getInsertions() : 0,
+                current != null ? current.getExpectedInsertions() : 0,
+                current != null ? current.getSizeInBytes() : 0,
+                current != null ? current.getHashCount() : 0,
+                current != null ? current.expectedFalsePositiveRate() : 0,
+                possible > 0 ? (double) (possible - confirmed) / possible : 0,
+                lookupCount,
+                definiteMisses.get(),
+                possible,
+                confirmed,
+                lookupCount > 0 ? (double) lookupNanos.get() / lookupCount : 0,
+                lastBuildMs
+        );
+    }
+
+    private void rebuildAsync() {
+        if (!rebuildInProgress.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(this::rebuild, "known-code-filter");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void rebuild() {
+        long startNanos = System.nanoTime();
+        try {
+            long knownCodes = barcodeRepository.count() + frozenBarcodeRepository.count();
+            CodeBloomFilter next = new CodeBloomFilter(Math.max(MIN_EXPECTED_CODES, knownCodes * 2), falsePositiveRate);
+            // До знімків нижче: коди, закомічені після цього моменту, addAll допише і сюди
+            building = next;
+
+            primaryTransactionTemplate.executeWithoutResult(status -> {
+                try (Stream<String> codes = barcodeRepository.streamAllCodes()) {
+                    codes.forEach(next::put);
+                }
+            });
+            frozenTransactionTemplate.executeWithoutResult(status -> {
+                try (Stream<String> codes = frozenBarcodeRepository.streamAllCodes()) {
+                    codes.forEach(next::put);
+                }
+            });
+
+            filter = next;
+            lastBuildMs = (System.nanoTime() - startNanos) / 1_000_000;
+            log.info("Known code filter built in {} ms: {} codes, {} KB, expected false positive rate {}",
+                    lastBuildMs, next.getInsertions(), next.getSizeInBytes() / 1024,
+                    String.format("%.4f", next.expectedFalsePositiveRate()));
+        } catch (Exception e) {
+            // Без фільтра імпорт просто перевіряє всі коди в БД
+            log.error("Could not build known code filter: {}", e.getMessage(), e);
+        } finally {
+            building = null;
+            rebuildInProgress.set(false);
+        }
+    }
+
+    private static TransactionTemplate readOnlyTemplate(PlatformTransactionManager transactionManager) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+}
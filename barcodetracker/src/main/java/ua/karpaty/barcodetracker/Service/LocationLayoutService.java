@@ -0,0 +1,129 @@
+package ua.karpaty.barcodetracker.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Схема складу (стелажі та кількість прольотів) з CSV-файлу bct.layout.file.
+ * Якщо файл не задано або його немає, використовується вбудований
+ * warehouse-layout.csv з classpath.
+ * <p>
+ * Кожне завантаження дає новий незмінний LocationRegistry з наступною версією;
+ * він підміняється однією volatile-змінною, тож запити читають схему без блокувань.
+ * Кожні bct.layout.reload-interval-ms перевіряється час зміни файлу; файл з
+ * помилкою не застосовується, лишається попередня схема.
+ * <p>
+ * Формат: рядок "стелаж,кількість прольотів"; порожні рядки та рядки з # ігноруються.
+ */
+@Slf4j
+@Service
+public class LocationLayoutService {
+
+    private static final String BUILT_IN_LAYOUT = "warehouse-layout.csv";
+
+    private final Path layoutFile;
+
+    private volatile LocationRegistry current;
+    // Час зміни файлу, з якого завантажено поточну схему (null - вбудована схема)
+    private volatile FileTime loadedModifiedTime;
+
+    @Autowired
+    public LocationLayoutService(@Value("${bct.layout.file:}") String layoutFile) throws IOException {
+        this.layoutFile = layoutFile.isBlank() ? null : Path.of(layoutFile.trim());
+
+        if (this.layoutFile != null && Files.isRegularFile(this.layoutFile)) {
+            FileTime modified = Files.getLastModifiedTime(this.layoutFile);
+            this.current = new LocationRegistry(readFile(this.layoutFile), 1, this.layoutFile.toString());
+            this.loadedModifiedTime = modified;
+        } else {
+            if (this.layoutFile != null) {
+                log.warn("Layout file {} not found, using built-in layout", this.layoutFile);
+            }
+            try (Reader reader = new InputStreamReader(new ClassPathResource(BUILT_IN_LAYOUT).getInputStream(), StandardCharsets.UTF_8)) {
+                this.current = new LocationRegistry(parse(reader, BUILT_IN_LAYOUT), 1, "classpath:" + BUILT_IN_LAYOUT);
+            }
+        }
+        log.info("Warehouse layout v{} loaded from {}: {} racks", current.getVersion(), current.getSource(), current.getRackNames().size());
+    }
+
+    /**
+     * Поточна версія схеми. В межах одного запиту варто брати її один раз.
+     */
+    public LocationRegistry current() {
+        return current;
+    }
+
+    @Scheduled(initialDelayString = "${bct.layout.reload-interval-ms:30000}",
+            fixedDelayString = "${bct.layout.reload-interval-ms:30000}")
+    public void reloadIfChanged() {
+        if (layoutFile == null || !Files.isRegularFile(layoutFile)) {
+            return;
+        }
+        try {
+            FileTime modified = Files.getLastModifiedTime(layoutFile);
+            if (modified.equals(loadedModifiedTime)) {
+                return;
+            }
+            LocationRegistry previous = current;
+            LocationRegistry next = new LocationRegistry(readFile(layoutFile), previous.getVersion() + 1, layoutFile.toString());
+            current = next;
+            loadedModifiedTime = modified;
+            log.info("Warehouse layout reloaded from {}: v{} -> v{}, {} racks",
+                    layoutFile, previous.getVersion(), next.getVersion(), next.getRackNames().size());
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Layout file {} not applied, keeping v{}: {}", layoutFile, current.getVersion(), e.getMessage());
+        }
+    }
+
+    private static Map<String, Integer> readFile(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return parse(reader, file.toString());
+        }
+    }
+
+    private static Map<String, Integer> parse(Reader source, String name) throws IOException {
+        Map<String, Integer> bayCounts = new LinkedHashMap<>();
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split(",", -1);
+            if (parts.length != 2 || parts[0].isBlank()) {
+                throw new IllegalArgumentException(name + ", рядок " + lineNumber + ": очікується 'стелаж,кількість прольотів'.");
+            }
+            int bays;
+            try {
+                bays = Integer.parseInt(parts[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(name + ", рядок " + lineNumber + ": некоректна кількість прольотів '" + parts[1].trim() + "'.");
+            }
+            if (bayCounts.put(parts[0].trim(), bays) != null) {
+                throw new IllegalArgumentException(name + ", рядок " + lineNumber + ": стелаж '" + parts[0].trim() + "' вказано двічі.");
+            }
+        }
+        if (bayCounts.isEmpty()) {
+            throw new IllegalArgumentException(name + ": схема складу порожня.");
+        }
+        return bayCounts;
+    }
+}
@@ -0,0 +1,275 @@
+package ua.karpaty.barcodetracker.Service;
+
+import ua.karpaty.barcodetracker.Dto.LocationDTO;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Незмінний довідник складу: стелажі з кількістю прольотів, побудований один раз
+ * з мапи стелаж -> кількість прольотів (0 - стелаж без прольотів). Кожна версія
+ * схеми складу - окремий екземпляр (див. LocationLayoutService).
+ * <p>
+ * Пошук стелажа без урахування регістру йде через власну хеш-таблицю по діапазону
+ * рядка, тож не створює проміжних рядків. Повні назви локацій ("excess SK 3") і
+ * їхні LocationDTO розраховані заздалегідь і повертаються одними й тими самими
+ * об'єктами - перевірка рядка файлу переміщення не виділяє пам'яті.
+ */
+public final class LocationRegistry {
+
+    public static final String PRESTOCK = "prestock";
+    private static final String EXCESS = "excess";
+    // Більший номер прольоту точно невалідний; обмеження захищає від переповнення
+    private static final int MAX_BAY_DIGITS = 6;
+
+    private final long version;
+    private final String source;
+    private final Map<String, Integer> bayCounts;
+    private final List<String> rackNames;
+    private final List<String> bayNumbers;
+    private final Rack[] table;
+    private final int mask;
+    private final Map<String, LocationDTO> locationParts;
+
+    /**
+     * Стелаж довідника. Назви локацій з прольотами розраховані заздалегідь.
+     */
+    public static final class Rack {
+        private final String name;
+        private final int bayCount;
+        private final String[] locations;
+        private final String[] excessLocations;
+
+        private Rack(String name, int bayCount) {
+            this.name = name;
+            this.bayCount = bayCount;
+            this.locations = new String[bayCount + 1];
+            this.excessLocations = new String[bayCount + 1];
+            // prestock не буває надлишком
+            String excessPrefix = PRESTOCK.equals(name) ? "" : EXCESS + " ";
+            for (int bay = 0; bay <= bayCount; bay++) {
+                String suffix = bay > 0 ? " " + bay : "";
+                locations[bay] = name + suffix;
+                excessLocations[bay] = excessPrefix + name + suffix;
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getBayCount() {
+            return bayCount;
+        }
+
+        /**
+         * Номер прольоту з файлу: порожній рядок - 0. Повертає -1, якщо номер
+         * не число або не підходить стелажу (для стелажа без прольотів валідний лише 0).
+         */
+        public int parseBay(String rawNumber) {
+            int start = 0;
+            int end = rawNumber.length();
+            while (start < end && rawNumber.charAt(start) <= ' ') start++;
+            while (end > start && rawNumber.charAt(end - 1) <= ' ') end--;
+            if (end - start > MAX_BAY_DIGITS) {
+                return -1;
+            }
+
+            int bay = 0;
+            for (int i = start; i < end; i++) {
+                int digit = rawNumber.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    return -1;
+                }
+                bay = bay * 10 + digit;
+            }
+            boolean valid = bayCount == 0 ? bay == 0 : bay >= 1 && bay <= bayCount;
+            return valid ? bay : -1;
+        }
+
+        /**
+         * Повна назва локації для перевіреного номера прольоту (0 - без прольоту).
+         */
+        public String location(int bay, boolean excess) {
+            return excess ? excessLocations[bay] : locations[bay];
+        }
+    }
+
+    public LocationRegistry(Map<String, Integer> bayCounts, long version, String source) {
+        this.version = version;
+        this.source = source;
+        this.bayCounts = Collections.unmodifiableMap(new LinkedHashMap<>(bayCounts));
+        this.rackNames = List.copyOf(bayCounts.keySet());
+        int maxBay = bayCounts.values().stream().max(Integer::compare).orElse(1);
+        this.bayNumbers = IntStream.rangeClosed(1, maxBay).mapToObj(String::valueOf).toList();
+
+        int capacity = Integer.highestOneBit(Math.max(4, bayCounts.size() * 4) - 1) << 1;
+        this.table = new Rack[capacity];
+        this.mask = capacity - 1;
+
+        Map<String, LocationDTO> parts = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : this.bayCounts.entrySet()) {
+            if (entry.getValue() < 0) {
+                throw new IllegalArgumentException("Від'ємна кількість прольотів для стелажа '" + entry.getKey() + "'.");
+            }
+            Rack rack = new Rack(entry.getKey(), entry.getValue());
+            if (findRack(rack.name, 0, rack.name.length()) != null) {
+                throw new IllegalArgumentException("Стелаж '" + rack.name + "' вказано двічі (без урахування регістру).");
+            }
+            int slot = hash(rack.name, 0, rack.name.length()) & mask;
+            while (table[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = rack;
+
+            for (int bay = 0; bay <= rack.bayCount; bay++) {
+                parts.computeIfAbsent(rack.locations[bay], LocationRegistry::splitAtFirstDigit);
+                parts.computeIfAbsent(rack.excessLocations[bay], LocationRegistry::splitAtFirstDigit);
+            }
+        }
+        this.locationParts = Map.copyOf(parts);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Незмінна мапа стелаж -> кількість прольотів у порядку довідника (для шаблонів).
+     */
+    public Map<String, Integer> getBayCounts() {
+        return bayCounts;
+    }
+
+    public List<String> getRackNames() {
+        return rackNames;
+    }
+
+    // "1".."N", де N - найбільша кількість прольотів серед стелажів
+    public List<String> getBayNumbers() {
+        return bayNumbers;
+    }
+
+    /**
+     * Стелаж за назвою без урахування регістру та пробілів по краях, або null.
+     */
+    public Rack findRack(String name) {
+        if (name == null) {
+            return null;
+        }
+        int start = 0;
+        int end = name.length();
+        while (start < end && name.charAt(start) <= ' ') start++;
+        while (end > start && name.charAt(end - 1) <= ' ') end--;
+        return findRack(name, start, end);
+    }
+
+    /**
+     * Стелаж з назви локації у файлі переміщення: слово "excess" (будь-який регістр)
+     * відкидається, як і пробіли по краях. Чи була локація надлишком - див. isExcess.
+     */
+    public Rack findTransferRack(String rawLocation) {
+        int excessAt = indexOfExcess(rawLocation, 0);
+        if (excessAt < 0) {
+            return findRack(rawLocation);
+        }
+        int afterExcess = excessAt + EXCESS.length();
+        if (indexOfExcess(rawLocation, afterExcess) < 0) {
+            // Типовий випадок: "excess SK" або "SK excess" - шукаємо по діапазону без копіювання
+            if (isBlank(rawLocation, 0, excessAt)) {
+                return findTrimmed(rawLocation, afterExcess, rawLocation.length());
+            }
+            if (isBlank(rawLocation, afterExcess, rawLocation.length())) {
+                return findTrimmed(rawLocation, 0, excessAt);
+            }
+        }
+        return findRack(rawLocation.toLowerCase().replace(EXCESS, ""));
+    }
+
+    public static boolean isExcess(String rawLocation) {
+        return indexOfExcess(rawLocation, 0) >= 0;
+    }
+
+    /**
+     * Стелаж/проліт для відображення: розділення по першій цифрі ("SK 12" -> "SK ", "12").
+     * Для локацій з довідника повертається заздалегідь створений об'єкт.
+     */
+    public LocationDTO toLocationDto(String location) {
+        if (location == null) {
+            return splitAtFirstDigit(null);
+        }
+        LocationDTO known = locationParts.get(location);
+        return known != null ? known : splitAtFirstDigit(location);
+    }
+
+    private static LocationDTO splitAtFirstDigit(String location) {
+        if (location == null || location.isBlank()) {
+            return new LocationDTO("N/A", "");
+        }
+        location = location.trim();
+
+        for (int i = 0; i < location.length(); i++) {
+            char c = location.charAt(i);
+            if (c >= '0' && c <= '9') {
+                return i == 0
+                        ? new LocationDTO("", location)
+                        : new LocationDTO(location.substring(0, i), location.substring(i));
+            }
+        }
+        return new LocationDTO(location, "");
+    }
+
+    private Rack findTrimmed(String value, int start, int end) {
+        while (start < end && value.charAt(start) <= ' ') start++;
+        while (end > start && value.charAt(end - 1) <= ' ') end--;
+        return findRack(value, start, end);
+    }
+
+    private Rack findRack(String value, int start, int end) {
+        int length = end - start;
+        if (length == 0) {
+            return null;
+        }
+        int slot = hash(value, start, end) & mask;
+        Rack rack;
+        while ((rack = table[slot]) != null) {
+            if (rack.name.length() == length && rack.name.regionMatches(true, 0, value, start, length)) {
+                return rack;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    // Узгоджено з regionMatches(ignoreCase): символ приводиться до верхнього, потім до нижнього регістру
+    private static int hash(String value, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + Character.toLowerCase(Character.toUpperCase(value.charAt(i)));
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static int indexOfExcess(String value, int from) {
+        int last = value.length() - EXCESS.length();
+        for (int i = from; i <= last; i++) {
+            if (value.regionMatches(true, i, EXCESS, 0, EXCESS.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isBlank(String value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (value.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,183 @@
+package ua.karpaty.barcodetracker.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.karpaty.barcodetracker.Dto.ChartDataDto;
+import ua.karpaty.barcodetracker.Dto.MonthlyStatDto;
+import ua.karpaty.barcodetracker.Entity.MonthlyStat;
+import ua.karpaty.barcodetracker.Entity.MonthlyStatMetric;
+import ua.karpaty.barcodetracker.Repository.BarcodeRepository;
+import ua.karpaty.barcodetracker.Repository.MonthlyStatRepository;
+import ua.karpaty.barcodetracker.Repository.StatusHistoryRepository;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Місячні ряди для графіків дашборду (додано / списано за останній рік).
+ * Закриті місяці рахуються один раз і зберігаються в monthly_stat, наживо
+ * рахується лише поточний місяць. Готовий ChartDataDto кешується на
+ * bct.dashboard.chart-cache-ttl-ms.
+ */
+@Slf4j
+@Service
+public class MonthlyStatsService {
+
+    private final BarcodeRepository barcodeRepository;
+    private final StatusHistoryRepository statusHistoryRepository;
+    private final MonthlyStatRepository monthlyStatRepository;
+    private final long cacheTtlMs;
+    private final TransactionTemplate invalidationTransaction;
+
+    private final Map<MonthlyStatMetric, CachedChart> cache = new EnumMap<>(MonthlyStatMetric.class);
+    // Під замком cache: графік, побудований до скидання, не кладемо в кеш
+    private long invalidations;
+
+    private record CachedChart(ChartDataDto data, long expiresAtMs) {
+    }
+
+    @Autowired
+    public MonthlyStatsService(BarcodeRepository barcodeRepository, StatusHistoryRepository statusHistoryRepository,
+                               MonthlyStatRepository monthlyStatRepository,
+                               @Qualifier("primaryTransactionManager") PlatformTransactionManager primaryTransactionManager,
+                               @Value("${bct.dashboard.chart-cache-ttl-ms:60000}") long cacheTtlMs) {
+        this.barcodeRepository = barcodeRepository;
+        this.statusHistoryRepository = statusHistoryRepository;
+        this.monthlyStatRepository = monthlyStatRepository;
+        this.cacheTtlMs = cacheTtlMs;
+        this.invalidationTransaction = new TransactionTemplate(primaryTransactionManager);
+        this.invalidationTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public ChartDataDto getChart(MonthlyStatMetric metric) {
+        long invalidationsBefore;
+        synchronized (cache) {
+            CachedChart cached = cache.get(metric);
+            if (cached != null && cached.expiresAtMs() > System.currentTimeMillis()) {
+                return cached.data();
+            }
+            invalidationsBefore = invalidations;
+        }
+
+        ChartDataDto chart = buildChart(metric);
+        synchronized (cache) {
+            if (invalidations == invalidationsBefore) {
+                cache.put(metric, new CachedChart(chart, System.currentTimeMillis() + cacheTtlMs));
+            }
+        }
+        return chart;
+    }
+
+    /**
+     * Скидає збережені підсумки закритих місяців, у які потрапили нові дані
+     * (наприклад, імпорт з датою з файлу). У транзакції зміни скидання відкладається
+     * до її коміту: при відкаті підсумки залишаються, а buildChart, що йде паралельно,
+     * не може порахувати місяць з даних до коміту і зберегти його вже після скидання.
+     */
+    public void invalidate(MonthlyStatMetric metric, Collection<YearMonth> months) {
+        YearMonth current = YearMonth.now();
+        List<YearMonth> closedMonths = months.stream().filter(month -> month.isBefore(current)).distinct().toList();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateNow(metric, closedMonths);
+                }
+            });
+        } else {
+            invalidateNow(metric, closedMonths);
+        }
+    }
+
+    // Той самий монітор, що й у buildChart: побудова, яка вже йде, спершу збереже свої
+    // підсумки, і скидання їх видалить; наступна читатиме вже закомічені дані
+    private synchronized void invalidateNow(MonthlyStatMetric metric, List<YearMonth> closedMonths) {
+        if (!closedMonths.isEmpty()) {
+            invalidationTransaction.executeWithoutResult(status -> {
+                for (YearMonth month : closedMonths) {
+                    monthlyStatRepository.deletePeriod(metric, month.getYear(), month.getMonthValue());
+                }
+            });
+        }
+        synchronized (cache) {
+            cache.remove(metric);
+            invalidations++;
+        }
+    }
+
+    private synchronized ChartDataDto buildChart(MonthlyStatMetric metric) {
+        YearMonth current = YearMonth.now();
+        YearMonth first = current.minusYears(1);
+
+        Map<YearMonth, Long> counts = new HashMap<>();
+        for (MonthlyStat stat : monthlyStatRepository.findByMetric(metric)) {
+            YearMonth month = YearMonth.of(stat.getPeriodYear(), stat.getPeriodMonth());
+            if (!month.isBefore(first) && month.isBefore(current)) {
+                counts.put(month, stat.getCount());
+            }
+        }
+
+        // Закриті місяці без збереженого підсумку рахуємо одним запитом і зберігаємо
+        YearMonth firstMissing = first;
+        while (firstMissing.isBefore(current) && counts.containsKey(firstMissing)) {
+            firstMissing = firstMissing.plusMonths(1);
+        }
+        if (firstMissing.isBefore(current)) {
+            Map<YearMonth, Long> computed = query(metric, firstMissing, current);
+            LocalDateTime now = LocalDateTime.now();
+            List<MonthlyStat> toSave = new ArrayList<>();
+            for (YearMonth month = firstMissing; month.isBefore(current); month = month.plusMonths(1)) {
+                if (!counts.containsKey(month)) {
+                    long count = computed.getOrDefault(month, 0L);
+                    counts.put(month, count);
+                    toSave.add(new MonthlyStat(metric, month.getYear(), month.getMonthValue(), count, now));
+                }
+            }
+            monthlyStatRepository.saveAll(toSave);
+            log.info("Stored {} closed month totals for {}", toSave.size(), metric);
+        }
+
+        // Поточний місяць - завжди наживо
+        counts.put(current, query(metric, current, current.plusMonths(1)).getOrDefault(current, 0L));
+
+        return formatChartData(counts, first, current);
+    }
+
+    private Map<YearMonth, Long> query(MonthlyStatMetric metric, YearMonth from, YearMonth to) {
+        LocalDateTime start = from.atDay(1).atStartOfDay();
+        LocalDateTime end = to.atDay(1).atStartOfDay();
+        List<MonthlyStatDto> stats = metric == MonthlyStatMetric.ADDED
+                ? barcodeRepository.getMonthlyAddedStats(start, end)
+                : statusHistoryRepository.getMonthlyDiscardStats(start, end);
+
+        Map<YearMonth, Long> result = new HashMap<>();
+        for (MonthlyStatDto stat : stats) {
+            result.put(YearMonth.of(stat.getYear(), stat.getMonth()), stat.getCount());
+        }
+        return result;
+    }
+
+    private ChartDataDto formatChartData(Map<YearMonth, Long> counts, YearMonth first, YearMonth last) {
+        List<String> labels = new ArrayList<>();
+        List<Long> data = new ArrayList<>();
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM yyyy", new Locale("uk"));
+
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+            labels.add(month.format(formatter));
+            data.add(counts.getOrDefault(month, 0L));
+        }
+
+        return new ChartDataDto(labels, data);
+    }
+}
@@ -0,0 +1,15 @@
+-- Індекси, які раніше створював Hibernate (ddl-auto=update) з анотацій @Table.
+-- На існуючих базах вони вже є, тож IF NOT EXISTS робить цю міграцію порожньою;
+-- на новій базі вона створює їх після того, як Hibernate створив таблиці.
+-- CONCURRENTLY - щоб не блокувати запис у великі таблиці під час створення.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_barcode_rack_bay_created ON barcode (rack, bay, creation_date);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_barcode_bay_created ON barcode (bay, creation_date);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_barcode_created ON barcode (creation_date);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_barcode_status_updated ON barcode (status, last_updated);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_barcode_import_created ON barcode (import_batch_id, creation_date);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_barcode_apn_created ON barcode (apn, creation_date);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_location_history_barcode ON location_history (barcode_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_status_history_barcode ON status_history (barcode_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_status_history_new_status_time ON status_history (new_status, change_time);
@@ -0,0 +1,20 @@
+-- Код штрих-коду унікальний: пошук (/barcodes/search), перевірка імпорту (findExistingCodes)
+-- і масові переміщення/списання з'єднуються з barcode саме по code.
+-- Якщо в базі вже є дублікати, унікальний індекс не створиться - міграція зупиняється
+-- з переліком кодів, які треба спершу виправити вручну.
+DO $$
+DECLARE
+    duplicates text;
+BEGIN
+    SELECT string_agg(code, ', ') INTO duplicates
+    FROM (SELECT code FROM barcode WHERE code IS NOT NULL GROUP BY code HAVING count(*) > 1 LIMIT 20) d;
+    IF duplicates IS NOT NULL THEN
+        RAISE EXCEPTION 'barcode.code has duplicates, fix them before migrating: %', duplicates;
+    END IF;
+END $$;
+
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uq_barcode_code ON barcode (code);
+
+-- Стрічки останніх змін на дашборді (findRecentWithBarcode): ORDER BY change_time DESC LIMIT n
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_location_history_time ON location_history (change_time);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_status_history_time ON status_history (change_time);
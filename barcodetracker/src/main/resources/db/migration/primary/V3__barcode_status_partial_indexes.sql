@@ -0,0 +1,38 @@
+-- Статус штрих-коду - BarcodeStatus: у колонці лише коди stock/out/check у нижньому регістрі.
+-- Старі рядки могли мати інший регістр чи пробіли (раніше частина запитів порівнювала через lower(...)).
+UPDATE barcode SET status = lower(btrim(status)) WHERE status <> lower(btrim(status));
+UPDATE status_history SET old_status = lower(btrim(old_status)) WHERE old_status <> lower(btrim(old_status));
+UPDATE status_history SET new_status = lower(btrim(new_status)) WHERE new_status <> lower(btrim(new_status));
+
+DO $$
+DECLARE
+    unknown text;
+BEGIN
+    SELECT string_agg(DISTINCT status, ', ') INTO unknown
+    FROM barcode WHERE status NOT IN ('stock', 'out', 'check');
+    IF unknown IS NOT NULL THEN
+        RAISE EXCEPTION 'barcode.status has values outside BarcodeStatus, fix them before migrating: %', unknown;
+    END IF;
+
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'chk_barcode_status') THEN
+        -- NOT VALID + VALIDATE: перевірка існуючих рядків без блокування запису на весь час
+        ALTER TABLE barcode ADD CONSTRAINT chk_barcode_status CHECK (status IN ('stock', 'out', 'check')) NOT VALID;
+    END IF;
+END $$;
+
+ALTER TABLE barcode VALIDATE CONSTRAINT chk_barcode_status;
+
+-- Часткові індекси лише по штрих-кодах на складі: їх розмір залежить від залишку, а не від
+-- усієї історії. Запити мають містити умову status <> 'out' літералом (див. BarcodeRepository).
+-- id в кінці - для keyset-пагінації (ORDER BY creation_date, id).
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_barcode_active_created ON barcode (creation_date, id) WHERE status <> 'out';
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_barcode_active_rack_bay ON barcode (rack, bay, creation_date, id) WHERE status <> 'out';
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_barcode_active_bay ON barcode (bay, creation_date, id) WHERE status <> 'out';
+-- Склад по APN і зведення по APN (quantity в індексі - для index-only scan)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_barcode_active_apn ON barcode (apn, creation_date, id) INCLUDE (quantity) WHERE status <> 'out';
+-- Звірка лічильників дашборду: кількість по локаціях
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_barcode_active_location ON barcode (location) WHERE status <> 'out';
+
+-- Повні індекси, які обслуговували лише запити по складу, замінені частковими
+DROP INDEX CONCURRENTLY IF EXISTS idx_barcode_rack_bay_created;
+DROP INDEX CONCURRENTLY IF EXISTS idx_barcode_bay_created;
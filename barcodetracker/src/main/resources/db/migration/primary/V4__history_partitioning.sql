@@ -0,0 +1,59 @@
+-- location_history і status_history: декларативне секціонування по change_time, секція на місяць.
+-- Існуючі рядки не копіюються: стара таблиця перейменовується на <таблиця>_legacy і стає
+-- секцією для всього до початку наступного місяця. Рядки без change_time і все, для чого ще
+-- немає місячної секції, потрапляють у секцію <таблиця>_default.
+-- Місячні секції наперед створює, а старі (за налаштуванням) вивантажує HistoryPartitionManager.
+-- Міграція виконується в одній транзакції і тримає блокування історії, поки ATTACH перевіряє
+-- рядки legacy-секції, тож на великій базі застосунок краще вперше запускати в тихий час.
+
+CREATE OR REPLACE FUNCTION bct_partition_history(tbl text) RETURNS void
+LANGUAGE plpgsql AS $$
+DECLARE
+    legacy text := tbl || '_legacy';
+    boundary timestamp := date_trunc('month', localtimestamp) + interval '1 month';
+    idx record;
+    fk record;
+BEGIN
+    -- Вже секціонована (relkind 'p') - нічого робити
+    IF (SELECT relkind FROM pg_class WHERE oid = to_regclass(tbl)) IS DISTINCT FROM 'r' THEN
+        RETURN;
+    END IF;
+
+    EXECUTE format('ALTER TABLE %I RENAME TO %I', tbl, legacy);
+    -- Імена індексів переходять до батьківської таблиці: CREATE INDEX на ній нижче
+    -- підхопить такий самий індекс legacy-секції замість побудови нового
+    FOR idx IN SELECT c.relname FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid
+               WHERE i.indrelid = to_regclass(legacy) AND NOT i.indisprimary LOOP
+        EXECUTE format('ALTER INDEX %I RENAME TO %I', idx.relname, idx.relname || '_legacy');
+    END LOOP;
+
+    -- Первинний ключ на секціонованій таблиці мав би включати change_time, тому ключ по id
+    -- лишається в кожної секції окремо (id однаково видає спільна послідовність)
+    EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS) PARTITION BY RANGE (change_time)', tbl, legacy);
+    EXECUTE format('CREATE TABLE %I PARTITION OF %I DEFAULT', tbl || '_default', tbl);
+    EXECUTE format('ALTER TABLE %I ADD PRIMARY KEY (id)', tbl || '_default');
+
+    EXECUTE format('INSERT INTO %I SELECT * FROM %I WHERE change_time IS NULL', tbl || '_default', legacy);
+    EXECUTE format('DELETE FROM %I WHERE change_time IS NULL', legacy);
+    EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (MINVALUE) TO (%L)', tbl, legacy, boundary);
+
+    -- Зовнішні ключі (barcode_id) - на батьківську таблицю під тими ж іменами, щоб
+    -- Hibernate (ddl-auto=update) вважав їх своїми; у legacy-секції підхоплюються існуючі
+    FOR fk IN SELECT conname, pg_get_constraintdef(oid) AS def FROM pg_constraint
+              WHERE conrelid = to_regclass(legacy) AND contype = 'f' LOOP
+        EXECUTE format('ALTER TABLE %I ADD CONSTRAINT %I %s', tbl, fk.conname, fk.def);
+    END LOOP;
+END $$;
+
+SELECT bct_partition_history('location_history');
+SELECT bct_partition_history('status_history');
+
+DROP FUNCTION bct_partition_history(text);
+
+-- Індекси на секціонованій таблиці (без CONCURRENTLY - він для них недоступний);
+-- нові секції отримують їх автоматично
+CREATE INDEX IF NOT EXISTS idx_location_history_barcode ON location_history (barcode_id);
+CREATE INDEX IF NOT EXISTS idx_location_history_time ON location_history (change_time);
+CREATE INDEX IF NOT EXISTS idx_status_history_barcode ON status_history (barcode_id);
+CREATE INDEX IF NOT EXISTS idx_status_history_new_status_time ON status_history (new_status, change_time);
+CREATE INDEX IF NOT EXISTS idx_status_history_time ON status_history (change_time);
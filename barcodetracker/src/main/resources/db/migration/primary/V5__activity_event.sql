@@ -0,0 +1,30 @@
+-- Стрічка активності (activity_event, сутність ActivityEvent): останні N подій читаються
+-- зворотним проходом по цьому індексу
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_activity_event_time ON activity_event (event_time, id);
+
+-- Перше заповнення з джерел, з яких стрічку раніше збирали на льоту: останні імпорти,
+-- переміщення і зміни статусу (початкові записи імпорту з порожнім old_* - не дії)
+INSERT INTO activity_event (event_time, event_type, description, link_url)
+SELECT e.event_time, e.event_type, e.description, e.link_url
+FROM (
+    (SELECT ib.import_date, 'IMPORT', 'Створено ' || ib.name, '/import/' || ib.id
+     FROM import_batch ib
+     WHERE ib.job_type = 'NEW_BARCODES' AND ib.import_date IS NOT NULL
+     ORDER BY ib.id DESC LIMIT 50)
+    UNION ALL
+    (SELECT lh.change_time, 'MOVE', 'Код ' || b.code || ' переміщено на ' || coalesce(lh.new_location, ''), '/barcodes/' || b.id
+     FROM location_history lh JOIN barcode b ON b.id = lh.barcode_id
+     WHERE lh.old_location IS NOT NULL AND lh.change_time IS NOT NULL
+     ORDER BY lh.change_time DESC LIMIT 50)
+    UNION ALL
+    (SELECT sh.change_time,
+            CASE WHEN sh.new_status = 'out' THEN 'DISCARD' ELSE 'STATUS' END,
+            CASE WHEN sh.new_status = 'out' THEN 'Код ' || b.code || ' списано'
+                 ELSE 'Статус коду ' || b.code || ' змінено на ' || sh.new_status END,
+            '/barcodes/' || b.id
+     FROM status_history sh JOIN barcode b ON b.id = sh.barcode_id
+     WHERE sh.old_status IS NOT NULL AND sh.change_time IS NOT NULL
+     ORDER BY sh.change_time DESC LIMIT 50)
+) e (event_time, event_type, description, link_url)
+WHERE NOT EXISTS (SELECT 1 FROM activity_event)
+ORDER BY e.event_time;
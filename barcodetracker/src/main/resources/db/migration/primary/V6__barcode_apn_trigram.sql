@@ -0,0 +1,9 @@
+-- Пошук по частині APN на складі: список /barcodes?apn= (apn LIKE '%...%') і вивантаження
+-- по APN (apn ILIKE '%...%'). B-tree індекси по apn такий пошук не обслуговують, тож без
+-- триграмного індексу обидва запити читали всю таблицю barcode.
+-- pg_trgm входить у стандартну поставку PostgreSQL і з 13-ї версії довірене розширення:
+-- створити його може власник бази без прав суперкористувача.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Частковий, як індекси складу з V3: запити мають умову status <> 'out' літералом
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_barcode_active_apn_trgm ON barcode USING gin (apn gin_trgm_ops) WHERE status <> 'out';
@@ -0,0 +1,126 @@
+package ua.karpaty.barcodetracker;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ua.karpaty.barcodetracker.Dto.ImportJobResultDto;
+import ua.karpaty.barcodetracker.Service.BarcodeDiscardService;
+import ua.karpaty.barcodetracker.Service.DashboardCounterService;
+import ua.karpaty.barcodetracker.Service.ImportJobProgress;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Масове списання з файлу (BarcodeDiscardService) на вбудованому PostgreSQL: staging-таблиця,
+ * UPDATE ... FROM і INSERT історії. У файлі - коди на складі, уже списаний код, код, що
+ * повторюється, і код, якого немає в базі.
+ */
+@SpringBootTest(properties = "bct.code-filter.enabled=false")
+class BarcodeDiscardServiceTests {
+
+	private static final String LOCATION = "DT 1";
+	private static final List<String> IN_STOCK = List.of("4190000001", "4190000002", "4190000003", "4190000004", "4190000005");
+	private static final String ALREADY_OUT = "4190000010";
+	private static final String DUPLICATED = "4190000020";
+	private static final String UNKNOWN = "4190000030";
+
+	@DynamicPropertySource
+	static void databases(DynamicPropertyRegistry registry) {
+		TestDatabases.register(registry);
+	}
+
+	@Autowired
+	private BarcodeDiscardService barcodeDiscardService;
+
+	@Autowired
+	private DashboardCounterService dashboardCounterService;
+
+	private final JdbcTemplate jdbcTemplate = new JdbcTemplate(TestDatabases.primaryDataSource());
+
+	@Test
+	void discardsOnlyUniqueCodesInStock() throws IOException {
+		LocalDateTime created = LocalDateTime.now().minusDays(10);
+		for (String code : IN_STOCK) {
+			insert(code, "stock", created);
+		}
+		insert(ALREADY_OUT, "out", created);
+		insert(DUPLICATED, "stock", created);
+
+		dashboardCounterService.reconcile();
+		long discardedBefore = dashboardCounterService.getDiscardedHot();
+		long activeBefore = dashboardCounterService.getActiveInLocation(LOCATION);
+
+		List<String> fileCodes = new ArrayList<>(IN_STOCK);
+		fileCodes.addAll(List.of(ALREADY_OUT, DUPLICATED, DUPLICATED, DUPLICATED, UNKNOWN));
+		ImportJobProgress progress = new ImportJobProgress();
+		ImportJobResultDto result = barcodeDiscardService.discardFromExcel(file(fileCodes), progress);
+
+		// Усі прочитані коди, включно з повторами (а не унікальні + дубльовані); пропущено - уже списані; не оброблено - повтор і невідомий
+		assertEquals(fileCodes.size(), result.getTotalRows());
+		assertEquals(IN_STOCK.size(), result.getAddedRows());
+		assertEquals(1, result.getSkippedRows());
+		assertEquals(2, result.getFailedRows());
+		assertEquals(fileCodes.size(), progress.getProcessedRows());
+		assertTrue(result.getDetails().contains(DUPLICATED));
+		assertTrue(result.getDetails().contains(UNKNOWN));
+
+		for (String code : IN_STOCK) {
+			assertEquals("out", status(code));
+			assertEquals(List.of("stock->out"), history(code));
+			assertTrue(jdbcTemplate.queryForObject("SELECT last_updated FROM barcode WHERE code = ?",
+					LocalDateTime.class, code).isAfter(created));
+		}
+		assertEquals("stock", status(DUPLICATED));
+		assertEquals(List.of(), history(DUPLICATED));
+		assertEquals(List.of(), history(ALREADY_OUT));
+		assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM barcode WHERE code = ?", Long.class, UNKNOWN));
+
+		// Лічильники дашборду змінені на списані коди і збігаються з перерахунком з бази
+		long discardedAfter = dashboardCounterService.getDiscardedHot();
+		long activeAfter = dashboardCounterService.getActiveInLocation(LOCATION);
+		assertEquals(discardedBefore + IN_STOCK.size(), discardedAfter);
+		assertEquals(activeBefore - IN_STOCK.size(), activeAfter);
+		dashboardCounterService.reconcile();
+		assertEquals(discardedAfter, dashboardCounterService.getDiscardedHot());
+		assertEquals(activeAfter, dashboardCounterService.getActiveInLocation(LOCATION));
+	}
+
+	private void insert(String code, String status, LocalDateTime created) {
+		jdbcTemplate.update("INSERT INTO barcode (id, code, apn, quantity, location, rack, bay, excess, status, creation_date, last_updated) " +
+				"VALUES (nextval('barcode_seq'), ?, 'APN-DT', 1, ?, 'dt', '1', false, ?, ?, ?)", code, LOCATION, status, created, created);
+	}
+
+	private String status(String code) {
+		return jdbcTemplate.queryForObject("SELECT status FROM barcode WHERE code = ?", String.class, code);
+	}
+
+	private List<String> history(String code) {
+		return jdbcTemplate.queryForList("SELECT h.old_status || '->' || h.new_status FROM status_history h " +
+				"JOIN barcode b ON b.id = h.barcode_id WHERE b.code = ? ORDER BY h.id", String.class, code);
+	}
+
+	private static MockMultipartFile file(List<String> codes) throws IOException {
+		try (XSSFWorkbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+			Sheet sheet = workbook.createSheet("Discard");
+			sheet.createRow(0).createCell(0).setCellValue("Serial Number");
+			for (int i = 0; i < codes.size(); i++) {
+				sheet.createRow(i + 1).createCell(0).setCellValue(codes.get(i));
+			}
+			workbook.write(out);
+			return new MockMultipartFile("file", "discard.xlsx", null, out.toByteArray());
+		}
+	}
+}
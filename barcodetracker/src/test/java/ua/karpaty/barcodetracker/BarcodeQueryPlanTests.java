@@ -0,0 +1,320 @@
+package ua.karpaty.barcodetracker;
+
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.karpaty.barcodetracker.Dto.BarcodeListView;
+import ua.karpaty.barcodetracker.Repository.BarcodeRepository;
+import ua.karpaty.barcodetracker.Repository.LocationHistoryRepository;
+import ua.karpaty.barcodetracker.Repository.StatusHistoryRepository;
+import ua.karpaty.barcodetracker.Service.KeysetCursors;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Плани запитів BarcodeRepository та історії на вбудованому PostgreSQL з міграціями
+ * db/migration/primary і кількома сотнями тисяч рядків: жоден запит не повинен читати
+ * велику таблицю повним скануванням.
+ * <p>
+ * Методи репозиторіїв викликаються по-справжньому; SQL і параметри, які Hibernate відправив
+ * у базу, перехоплює datasource-proxy, і кожен такий запит перевіряється через EXPLAIN з тими
+ * самими параметрами. Сторінкові списки перевіряються двічі: перша сторінка і наступна
+ * (умова keyset-пагінації).
+ * <p>
+ * Не перевіряються запити, які за призначенням читають усю таблицю: лічильники дашборду
+ * (getCombinedDashboardStats, getLocationFillRate, countActiveByLocation), streamAllCodes,
+ * вивантаження всього складу (streamActiveExport) і всіх списаних без фільтрів
+ * (streamExportByStatus).
+ */
+@SpringBootTest(properties = "bct.code-filter.enabled=false")
+@Import(BarcodeQueryPlanTests.CaptureConfig.class)
+class BarcodeQueryPlanTests {
+
+	private static final int BARCODE_ROWS = 300_000;
+	private static final int BATCHES = 300;
+
+	// Повне сканування маленької таблиці чи порожньої секції - нормальний вибір планувальника
+	private static final long LARGE_TABLE_ROWS = 10_000;
+
+	private static final Pattern SEQ_SCAN = Pattern.compile("Seq Scan on (\\w+)");
+
+	private static final List<QueryInfo> captured = new CopyOnWriteArrayList<>();
+	private static volatile boolean capturing;
+	private static boolean seeded;
+
+	@TestConfiguration
+	static class CaptureConfig {
+
+		@Bean
+		static BeanPostProcessor primaryDataSourceCapture() {
+			return new BeanPostProcessor() {
+				@Override
+				public Object postProcessAfterInitialization(Object bean, String beanName) {
+					if (!"primaryDataSource".equals(beanName)) {
+						return bean;
+					}
+					return ProxyDataSourceBuilder.create((DataSource) bean)
+							.name("primary")
+							.afterQuery((execInfo, queries) -> {
+								if (capturing) {
+									captured.addAll(queries);
+								}
+							})
+							.build();
+				}
+			};
+		}
+	}
+
+	@DynamicPropertySource
+	static void databases(DynamicPropertyRegistry registry) {
+		TestDatabases.register(registry);
+	}
+
+	@Autowired
+	private BarcodeRepository barcodeRepository;
+
+	@Autowired
+	private LocationHistoryRepository locationHistoryRepository;
+
+	@Autowired
+	private StatusHistoryRepository statusHistoryRepository;
+
+	@Autowired
+	@Qualifier("primaryTransactionManager")
+	private PlatformTransactionManager transactionManager;
+
+	private final JdbcTemplate jdbcTemplate = new JdbcTemplate(TestDatabases.primaryDataSource());
+
+	@BeforeEach
+	void seed() {
+		synchronized (BarcodeQueryPlanTests.class) {
+			if (seeded) {
+				return;
+			}
+			jdbcTemplate.update("INSERT INTO material_master (apn, location) " +
+					"SELECT 'APN' || g, (ARRAY['A', 'B', 'C', 'SK'])[g % 4 + 1] || ' ' || (g % 20 + 1) " +
+					"FROM generate_series(0, ? - 1) g", TestBarcodes.APNS);
+			TestBarcodes.seed(jdbcTemplate, "PT", BARCODE_ROWS, BATCHES);
+			jdbcTemplate.update("INSERT INTO location_history (id, barcode_id, old_location, new_location, change_time) " +
+					"SELECT nextval('location_history_seq'), id, 'PRESTOCK', location, creation_date + interval '1 hour' FROM barcode");
+			jdbcTemplate.update("INSERT INTO status_history (id, barcode_id, old_status, new_status, change_time) " +
+					"SELECT nextval('status_history_seq'), id, 'stock', 'out', last_updated FROM barcode WHERE status = 'out'");
+			jdbcTemplate.execute("ANALYZE");
+			seeded = true;
+		}
+	}
+
+	@Test
+	void repositoryQueriesDoNotScanLargeTables() {
+		// Реальні значення з бази, щоб планувальник оцінював звичайні, а не порожні вибірки
+		Map<String, Object> sample = jdbcTemplate.queryForMap(
+				"SELECT id, code, apn, rack, bay, import_batch_id AS batch FROM barcode " +
+						"WHERE status = 'out' AND bay IS NOT NULL AND rack NOT IN ('wires', 'prestock') ORDER BY id DESC LIMIT 1");
+		String code = (String) sample.get("code");
+		String apn = (String) sample.get("apn");
+		String rack = (String) sample.get("rack");
+		String bay = (String) sample.get("bay");
+		Long batchId = (Long) sample.get("batch");
+		Long barcodeId = (Long) sample.get("id");
+		LocalDateTime now = LocalDateTime.now();
+		LocalDateTime monthAgo = now.minusDays(30);
+		LocalDateTime monthStart = YearMonth.now().atDay(1).atStartOfDay();
+		LocalDate exportDay = now.toLocalDate().minusDays(10);
+		// Частина APN, як її вводять у пошук
+		String apnPart = apn.substring(1);
+		Limit page = Limit.of(50);
+
+		Map<String, Runnable> queries = new LinkedHashMap<>();
+		queries.put("findByCode", () -> barcodeRepository.findByCode(code));
+		queries.put("findExistingCodes", () -> barcodeRepository.findExistingCodes(List.of(code, "x-1", "x-2")));
+		pages(queries, "findByStatusAndLastUpdatedBetweenOrderByLastUpdatedDescIdDesc", "lastUpdated", false,
+				(position, range) -> barcodeRepository.findByStatusAndLastUpdatedBetweenOrderByLastUpdatedDescIdDesc(
+						"out", range.from(), range.to(), position, page));
+		pages(queries, "findByStatusAndLastUpdatedBetweenOrderByLastUpdatedDescIdDesc (month)", "lastUpdated", false,
+				(position, range) -> {
+					KeysetCursors.KeyRange<LocalDateTime> month = range.within(monthAgo, now);
+					return barcodeRepository.findByStatusAndLastUpdatedBetweenOrderByLastUpdatedDescIdDesc(
+							"out", month.from(), month.to(), position, page);
+				});
+		pages(queries, "findByStatusAndLastUpdatedBetweenAndApnOrderByLastUpdatedDescIdDesc", "lastUpdated", false,
+				(position, range) -> barcodeRepository.findByStatusAndLastUpdatedBetweenAndApnOrderByLastUpdatedDescIdDesc(
+						"out", range.from(), range.to(), apn, position, page));
+		pages(queries, "findByActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc", "creationDate", true,
+				(position, range) -> barcodeRepository.findByActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc(
+						range.from(), range.to(), position, page));
+		pages(queries, "findByApnContainingAndActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc", "creationDate", true,
+				(position, range) -> barcodeRepository.findByApnContainingAndActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc(
+						apnPart, range.from(), range.to(), position, page));
+		// Як у BarcodeService.findTopOutdatedBarcodes
+		queries.put("findByCreationDateBeforeAndActiveTrue",
+				() -> barcodeRepository.findByCreationDateBeforeAndActiveTrue(now.minusYears(1),
+						PageRequest.of(0, 10, Sort.by("creationDate").ascending())));
+		pages(queries, "findByImportBatchIdAndCreationDateBetweenOrderByCreationDateDescIdDesc", "creationDate", false,
+				(position, range) -> barcodeRepository.findByImportBatchIdAndCreationDateBetweenOrderByCreationDateDescIdDesc(
+						batchId, range.from(), range.to(), position, page));
+		queries.put("countByImportBatchId", () -> barcodeRepository.countByImportBatchId(batchId));
+		queries.put("getMonthlyAddedStats", () -> barcodeRepository.getMonthlyAddedStats(monthStart, now));
+		queries.put("findInventoryByApn", () -> barcodeRepository.findInventoryByApn(apn));
+		pages(queries, "findByRackAndBayIsNotNullAndActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc", "creationDate", true,
+				(position, range) -> barcodeRepository.findByRackAndBayIsNotNullAndActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc(
+						rack, range.from(), range.to(), position, page));
+		pages(queries, "findByRackAndBayIsNullAndExcessFalseAndActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc", "creationDate", true,
+				(position, range) -> barcodeRepository.findByRackAndBayIsNullAndExcessFalseAndActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc(
+						rack, range.from(), range.to(), position, page));
+		pages(queries, "findByRackAndBayAndActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc", "creationDate", true,
+				(position, range) -> barcodeRepository.findByRackAndBayAndActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc(
+						rack, bay, range.from(), range.to(), position, page));
+		pages(queries, "findByBayAndRackNotAndActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc", "creationDate", true,
+				(position, range) -> barcodeRepository.findByBayAndRackNotAndActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc(
+						bay, "wires", range.from(), range.to(), position, page));
+		pages(queries, "findByRackNotAndActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc", "creationDate", true,
+				(position, range) -> barcodeRepository.findByRackNotAndActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc(
+						"wires", range.from(), range.to(), position, page));
+		queries.put("findLocationMismatches", () -> barcodeRepository.findLocationMismatches(PageRequest.of(0, 50)));
+		queries.put("findByStatusAndLastUpdatedBeforeAndIdGreaterThanOrderByIdAsc",
+				() -> barcodeRepository.findByStatusAndLastUpdatedBeforeAndIdGreaterThanOrderByIdAsc(
+						"out", now.minusDays(365), 0L, Limit.of(1000)));
+		queries.put("countByStatusAndLastUpdatedBefore",
+				() -> barcodeRepository.countByStatusAndLastUpdatedBefore("out", now.minusDays(365)));
+		queries.put("findOldestLastUpdated", () -> barcodeRepository.findOldestLastUpdated("out", now.minusDays(365)));
+		// Вивантаження в Excel, параметри як у BarcodeService.exportBarcodesByApn і exportDiscardedBarcodes
+		stream(queries, "streamActiveExportByApnContainingIgnoreCase",
+				() -> barcodeRepository.streamActiveExportByApnContainingIgnoreCase(apnPart.toLowerCase()));
+		stream(queries, "streamExportByStatusAndApn", () -> barcodeRepository.streamExportByStatusAndApn("out", apn));
+		stream(queries, "streamExportByStatusAndLastUpdatedBetween",
+				() -> barcodeRepository.streamExportByStatusAndLastUpdatedBetween(
+						"out", exportDay.atStartOfDay(), exportDay.atTime(LocalTime.MAX)));
+		stream(queries, "streamExportByStatusAndLastUpdatedBetweenAndApn",
+				() -> barcodeRepository.streamExportByStatusAndLastUpdatedBetweenAndApn(
+						"out", exportDay.atStartOfDay(), exportDay.atTime(LocalTime.MAX), apn));
+		stream(queries, "streamActiveExportByCreationDateBefore",
+				() -> barcodeRepository.streamActiveExportByCreationDateBefore(now.minusYears(1)));
+		queries.put("LocationHistoryRepository.findByBarcodeIdOrderByChangeTimeDesc",
+				() -> locationHistoryRepository.findByBarcodeIdOrderByChangeTimeDesc(barcodeId));
+		queries.put("StatusHistoryRepository.findByBarcodeIdOrderByChangeTimeDesc",
+				() -> statusHistoryRepository.findByBarcodeIdOrderByChangeTimeDesc(barcodeId));
+		queries.put("StatusHistoryRepository.getMonthlyDiscardStats",
+				() -> statusHistoryRepository.getMonthlyDiscardStats(monthStart, now));
+
+		Map<String, Long> tableRows = new LinkedHashMap<>();
+		jdbcTemplate.query("SELECT relname, reltuples::bigint FROM pg_class WHERE relkind = 'r'",
+				rs -> {
+					tableRows.put(rs.getString(1), rs.getLong(2));
+				});
+
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		List<String> failures = new ArrayList<>();
+		queries.forEach((name, query) -> {
+			List<QueryInfo> statements = capture(() -> transaction.executeWithoutResult(status -> query.run()));
+			assertFalse(statements.isEmpty(), name + ": no SQL captured");
+			for (QueryInfo statement : statements) {
+				String plan = explain(statement);
+				Matcher scan = SEQ_SCAN.matcher(plan);
+				while (scan.find()) {
+					if (tableRows.getOrDefault(scan.group(1), 0L) >= LARGE_TABLE_ROWS) {
+						failures.add(name + ":\n" + statement.getQuery() + "\n" + plan);
+						break;
+					}
+				}
+			}
+		});
+
+		assertTrue(failures.isEmpty(), "Sequential scans found:\n\n" + String.join("\n\n", failures));
+	}
+
+	// Перша сторінка і наступна за її останнім рядком, діапазон першого ключа - як у BarcodeService
+	private static void pages(Map<String, Runnable> queries, String name, String leadingKey, boolean ascending,
+							  BiFunction<KeysetScrollPosition, KeysetCursors.KeyRange<LocalDateTime>, Window<BarcodeListView>> query) {
+		queries.put(name, () -> {
+			KeysetScrollPosition initial = ScrollPosition.keyset();
+			Window<BarcodeListView> first = query.apply(initial, KeysetCursors.leadingKeyRange(initial, leadingKey, ascending));
+			assertFalse(first.isEmpty(), name + ": empty first page, sample data does not match the query");
+			KeysetScrollPosition next = (KeysetScrollPosition) first.positionAt(first.size() - 1);
+			query.apply(next, KeysetCursors.leadingKeyRange(next, leadingKey, ascending));
+		});
+	}
+
+	// Потік відкривається і читається в транзакції тесту, як у BarcodeService
+	private static void stream(Map<String, Runnable> queries, String name, Supplier<Stream<?>> query) {
+		queries.put(name, () -> {
+			try (Stream<?> rows = query.get()) {
+				rows.findFirst();
+			}
+		});
+	}
+
+	private static List<QueryInfo> capture(Runnable action) {
+		captured.clear();
+		capturing = true;
+		try {
+			action.run();
+		} finally {
+			capturing = false;
+		}
+		return captured.stream()
+				.filter(q -> q.getQuery().stripLeading().toLowerCase().startsWith("select"))
+				.toList();
+	}
+
+	// EXPLAIN того самого SQL з тими самими параметрами, окремим з'єднанням без проксі
+	private static String explain(QueryInfo statement) {
+		try (Connection connection = TestDatabases.primaryDataSource().getConnection();
+			 PreparedStatement explain = connection.prepareStatement("EXPLAIN " + statement.getQuery())) {
+			if (!statement.getParametersList().isEmpty()) {
+				for (ParameterSetOperation parameter : statement.getParametersList().get(0)) {
+					parameter.getMethod().invoke(explain, parameter.getArgs());
+				}
+			}
+			List<String> lines = new ArrayList<>();
+			try (ResultSet rs = explain.executeQuery()) {
+				while (rs.next()) {
+					lines.add(rs.getString(1));
+				}
+			}
+			return String.join("\n", lines);
+		} catch (Exception e) {
+			throw new IllegalStateException("EXPLAIN failed for: " + statement.getQuery(), e);
+		}
+	}
+}
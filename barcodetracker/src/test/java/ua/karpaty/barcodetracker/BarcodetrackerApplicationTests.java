@@ -2,10 +2,17 @@ package ua.karpaty.barcodetracker;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 
 @SpringBootTest
 class BarcodetrackerApplicationTests {
 
+	@DynamicPropertySource
+	static void databases(DynamicPropertyRegistry registry) {
+		TestDatabases.register(registry);
+	}
+
 	@Test
 	void contextLoads() {
 	}
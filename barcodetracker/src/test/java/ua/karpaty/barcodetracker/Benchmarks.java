@@ -0,0 +1,157 @@
+package ua.karpaty.barcodetracker;
+
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Спільне для інтеграційних бенчмарків (тег "benchmark", запуск: mvn -Pbenchmark test).
+ * Результати виводяться рядками "BENCHMARK ..." - їх зручно вибрати з виводу збірки.
+ */
+final class Benchmarks {
+
+	static final String TAG = "benchmark";
+
+	private Benchmarks() {
+	}
+
+	/**
+	 * Рахує звернення до основної бази (JDBC-батч - одне звернення) і, якщо задано
+	 * -Dbench.rtt-ms, додає цю затримку до кожного: вбудований PostgreSQL відповідає за
+	 * частки мілісекунди, а справжня база стоїть за мережею.
+	 */
+	@TestConfiguration
+	static class RoundTrips {
+
+		static final AtomicLong count = new AtomicLong();
+		static final long RTT_MS = Long.getLong("bench.rtt-ms", 0);
+
+		@Bean
+		static BeanPostProcessor primaryRoundTrips() {
+			return new BeanPostProcessor() {
+				@Override
+				public Object postProcessAfterInitialization(Object bean, String beanName) {
+					if (!"primaryDataSource".equals(beanName)) {
+						return bean;
+					}
+					return ProxyDataSourceBuilder.create((DataSource) bean)
+							.name("primary")
+							.beforeQuery((execInfo, queries) -> {
+								count.incrementAndGet();
+								if (RTT_MS > 0) {
+									try {
+										Thread.sleep(RTT_MS);
+									} catch (InterruptedException e) {
+										Thread.currentThread().interrupt();
+									}
+								}
+							})
+							.build();
+				}
+			};
+		}
+	}
+
+	/**
+	 * Медіана часу виконання після прогріву, мс.
+	 */
+	static double medianMs(int warmup, int iterations, Runnable action) {
+		for (int i = 0; i < warmup; i++) {
+			action.run();
+		}
+		long[] nanos = new long[iterations];
+		for (int i = 0; i < iterations; i++) {
+			long start = System.nanoTime();
+			action.run();
+			nanos[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(nanos);
+		return nanos[iterations / 2] / 1_000_000.0;
+	}
+
+	/**
+	 * Медіани процесорного часу (мс) і виділеної пам'яті (КБ) потоку на один виклик дії
+	 * після прогріву. Рахується лише JVM: робота сервера бази сюди не входить.
+	 */
+	static PerCall perCall(int warmup, int iterations, Runnable action) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		for (int i = 0; i < warmup; i++) {
+			action.run();
+		}
+		long[] cpu = new long[iterations];
+		long[] allocated = new long[iterations];
+		for (int i = 0; i < iterations; i++) {
+			long cpuStart = threads.getCurrentThreadCpuTime();
+			long allocatedStart = threads.getCurrentThreadAllocatedBytes();
+			action.run();
+			cpu[i] = threads.getCurrentThreadCpuTime() - cpuStart;
+			allocated[i] = threads.getCurrentThreadAllocatedBytes() - allocatedStart;
+		}
+		Arrays.sort(cpu);
+		Arrays.sort(allocated);
+		return new PerCall(cpu[iterations / 2] / 1_000_000.0, allocated[iterations / 2] / 1024.0);
+	}
+
+	record PerCall(double cpuMs, double allocatedKb) {
+
+		@Override
+		public String toString() {
+			return String.format("%.2f ms CPU / %.0f KB", cpuMs, allocatedKb);
+		}
+	}
+
+	static double timeMs(Runnable action) {
+		long start = System.nanoTime();
+		action.run();
+		return (System.nanoTime() - start) / 1_000_000.0;
+	}
+
+	/**
+	 * Найбільший обсяг живих даних у купі під час дії, МБ понад рівень перед нею. Окремий
+	 * потік кожні 200 мс викликає System.gc() і читає зайнятість купи - це уповільнює дію,
+	 * тож час треба міряти окремим запуском.
+	 */
+	static double peakLiveHeapMb(Runnable action) {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		System.gc();
+		long base = memory.getHeapMemoryUsage().getUsed();
+		AtomicLong peak = new AtomicLong(base);
+		AtomicBoolean done = new AtomicBoolean();
+		Thread sampler = new Thread(() -> {
+			while (!done.get()) {
+				try {
+					Thread.sleep(200);
+				} catch (InterruptedException e) {
+					return;
+				}
+				System.gc();
+				peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+			}
+		}, "heap-sampler");
+		sampler.setDaemon(true);
+		sampler.start();
+		try {
+			action.run();
+		} finally {
+			done.set(true);
+		}
+		try {
+			sampler.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return (peak.get() - base) / (1024.0 * 1024.0);
+	}
+
+	static void report(String name, String format, Object... args) {
+		System.out.println("BENCHMARK " + name + ": " + String.format(format, args));
+	}
+}
@@ -0,0 +1,96 @@
+package ua.karpaty.barcodetracker;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import ua.karpaty.barcodetracker.Dto.BarcodeExportDto;
+import ua.karpaty.barcodetracker.Service.ExcelService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Вивантаження списаних у Excel: час і найбільший обсяг живих даних у купі.
+ * <p>
+ * "До" - колишній exportDiscardedToExcel: XSSFWorkbook у пам'яті і autoSizeColumn, рядки
+ * заздалегідь у списку (тоді це були сутності, тут - легші DTO). "Після" -
+ * ExcelService.exportDiscardedToExcelStreaming з потоку. Старий шлях міряється на менших
+ * обсягах: на 500 тис. рядків він не вміщується в купу тестового JVM.
+ */
+@Tag(Benchmarks.TAG)
+class ExcelExportBenchmark {
+
+	private static final int STREAMING_ROWS = 500_000;
+	private static final int[] IN_MEMORY_ROWS = {25_000, 50_000, 100_000};
+
+	@Test
+	void exportTimeAndHeap() {
+		// Прогрів обох шляхів
+		streaming(10_000);
+		inMemory(rows(10_000).toList());
+
+		StringBuilder inMemory = new StringBuilder();
+		for (int count : IN_MEMORY_ROWS) {
+			List<BarcodeExportDto> list = rows(count).toList();
+			double ms = Benchmarks.timeMs(() -> inMemory(list));
+			double heap = Benchmarks.peakLiveHeapMb(() -> inMemory(list));
+			inMemory.append(String.format("%d rows %.0f ms / %.1f MB; ", count, ms, heap));
+		}
+
+		double ms = Benchmarks.timeMs(() -> streaming(STREAMING_ROWS));
+		double heap = Benchmarks.peakLiveHeapMb(() -> streaming(STREAMING_ROWS));
+
+		Benchmarks.report("excel-export", "in-memory XSSF + autoSize: %sSXSSF streaming: %d rows %.0f ms / %.1f MB (max heap %d MB)",
+				inMemory, STREAMING_ROWS, ms, heap, Runtime.getRuntime().maxMemory() / (1024 * 1024));
+	}
+
+	private static Stream<BarcodeExportDto> rows(int count) {
+		LocalDateTime now = LocalDateTime.now();
+		return IntStream.range(0, count).mapToObj(i -> new BarcodeExportDto(
+				"PT" + String.format("%010d", i), "APN" + (i % 2999), i % 100 + 1, "SK " + (i % 19 + 1), now.minusMinutes(i)));
+	}
+
+	private static void streaming(int count) {
+		try {
+			ExcelService.exportDiscardedToExcelStreaming(rows(count), OutputStream.nullOutputStream());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// Тіло колишнього ExcelService.exportDiscardedToExcel
+	private static void inMemory(List<BarcodeExportDto> rows) {
+		try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+			Sheet sheet = workbook.createSheet("Discarded Barcodes");
+			String[] headers = {"Serial Number", "APN", "Кількість", "Локація", "Дата списання"};
+			Row header = sheet.createRow(0);
+			for (int i = 0; i < headers.length; i++) {
+				header.createCell(i).setCellValue(headers[i]);
+			}
+			DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+			int rowIndex = 1;
+			for (BarcodeExportDto b : rows) {
+				Row row = sheet.createRow(rowIndex++);
+				row.createCell(0).setCellValue(b.getCode());
+				row.createCell(1).setCellValue(b.getApn());
+				row.createCell(2).setCellValue(b.getQuantity());
+				row.createCell(3).setCellValue(b.getLocation());
+				row.createCell(4).setCellValue(b.getDate() != null ? b.getDate().format(formatter) : "");
+			}
+			for (int i = 0; i < headers.length; i++) {
+				sheet.autoSizeColumn(i);
+			}
+			workbook.write(OutputStream.nullOutputStream());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package ua.karpaty.barcodetracker;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.karpaty.barcodetracker.Entity.Frozen.FrozenBarcode;
+import ua.karpaty.barcodetracker.Repository.Frozen.FrozenBarcodeJdbcWriter;
+import ua.karpaty.barcodetracker.Repository.Frozen.FrozenBarcodeRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Імпорт у frozen-базу: 100 тис. рядків пачками по 2000, кожен десятий код уже є в архіві.
+ * <p>
+ * "До" - як FrozenDataService писав раніше: findExistingCodes, відсів дублікатів і
+ * saveAllAndFlush (IDENTITY-ключ, тож Hibernate вставляє по рядку). "Після" -
+ * FrozenBarcodeJdbcWriter.insertIgnoringDuplicates (JDBC-батч INSERT OR IGNORE).
+ * Обидва - у транзакції frozenTransactionManager на пачку.
+ */
+@Tag(Benchmarks.TAG)
+@SpringBootTest(properties = "bct.code-filter.enabled=false")
+class FrozenInsertBenchmark {
+
+	private static final int ROWS = 100_000;
+	private static final int BATCH = 2_000;
+	private static final int EXISTING = 10_000;
+
+	@DynamicPropertySource
+	static void databases(DynamicPropertyRegistry registry) {
+		TestDatabases.register(registry);
+	}
+
+	@Autowired
+	private FrozenBarcodeRepository frozenBarcodeRepository;
+
+	@Autowired
+	private FrozenBarcodeJdbcWriter frozenBarcodeJdbcWriter;
+
+	@Autowired
+	@Qualifier("frozenTransactionManager")
+	private PlatformTransactionManager frozenTransactionManager;
+
+	@Test
+	void insertRowsPerSecond() {
+		TransactionTemplate frozenTransaction = new TransactionTemplate(frozenTransactionManager);
+		for (String prefix : List.of("FIB-", "FIJ-")) {
+			for (int from = 0; from < EXISTING; from += BATCH) {
+				List<FrozenBarcode> batch = batch(prefix, from, 0);
+				frozenTransaction.executeWithoutResult(status -> frozenBarcodeJdbcWriter.insertIgnoringDuplicates(batch));
+			}
+		}
+		// Прогрів
+		frozenTransaction.executeWithoutResult(status -> saveAllAndFlush(batch("FIW-", 0, 0)));
+		frozenTransaction.executeWithoutResult(status -> frozenBarcodeJdbcWriter.insertIgnoringDuplicates(batch("FIW-", BATCH, 0)));
+
+		long[] inserted = new long[2];
+		double entityMs = Benchmarks.timeMs(() -> {
+			for (int from = EXISTING; from < EXISTING + ROWS; from += BATCH) {
+				List<FrozenBarcode> batch = batch("FIB-", from, EXISTING);
+				inserted[0] += frozenTransaction.execute(status -> saveAllAndFlush(batch));
+			}
+		});
+		double jdbcMs = Benchmarks.timeMs(() -> {
+			for (int from = EXISTING; from < EXISTING + ROWS; from += BATCH) {
+				List<FrozenBarcode> batch = batch("FIJ-", from, EXISTING);
+				inserted[1] += frozenTransaction.execute(status -> frozenBarcodeJdbcWriter.insertIgnoringDuplicates(batch).size());
+			}
+		});
+		assertEquals(inserted[0], inserted[1]);
+
+		Benchmarks.report("frozen-insert", "%d rows in %d-row batches (%d new): findExistingCodes + saveAllAndFlush %.0f ms (%.0f rows/s), " +
+						"JDBC INSERT OR IGNORE %.0f ms (%.0f rows/s), x%.1f",
+				ROWS, BATCH, inserted[1], entityMs, ROWS * 1000 / entityMs, jdbcMs, ROWS * 1000 / jdbcMs, entityMs / jdbcMs);
+	}
+
+	private int saveAllAndFlush(List<FrozenBarcode> batch) {
+		Set<String> existing = frozenBarcodeRepository.findExistingCodes(batch.stream().map(FrozenBarcode::getCode).toList());
+		Set<String> unique = new HashSet<>();
+		List<FrozenBarcode> fresh = new ArrayList<>();
+		for (FrozenBarcode barcode : batch) {
+			if (!existing.contains(barcode.getCode()) && unique.add(barcode.getCode())) {
+				fresh.add(barcode);
+			}
+		}
+		frozenBarcodeRepository.saveAllAndFlush(fresh);
+		return fresh.size();
+	}
+
+	// Кожен десятий рядок пачки - код з перших existing уже заархівованих
+	private static List<FrozenBarcode> batch(String prefix, int from, int existing) {
+		LocalDate today = LocalDate.now();
+		List<FrozenBarcode> batch = new ArrayList<>(BATCH);
+		for (int i = from; i < from + BATCH; i++) {
+			int code = existing > 0 && i % 10 == 0 ? i % existing : i;
+			batch.add(new FrozenBarcode(prefix + code, "APN" + (i % 2999), i % 100 + 1, today.minusDays(800), today));
+		}
+		return batch;
+	}
+}
@@ -0,0 +1,198 @@
+package ua.karpaty.barcodetracker;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import ua.karpaty.barcodetracker.Config.Db.FrozenDbConfig;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Frozen-база під час масового імпорту: 200 тис. рядків пачками по 2000 (кожна - транзакція)
+ * і водночас 4 потоки пошуку за кодом.
+ * <p>
+ * "До" - один пул Hikari зі стандартними налаштуваннями SQLite (rollback journal, без
+ * busy_timeout), як frozenDataSource був раніше. "Після" - пули записувача і читачів з
+ * FrozenDbConfig (WAL, busy_timeout, читачі окремо). Пошук читає з пулу читачів, як
+ * readOnly-транзакції через frozenDataSource.
+ */
+@Tag(Benchmarks.TAG)
+class FrozenPoolsBenchmark {
+
+	private static final int EXISTING_ROWS = 100_000;
+	private static final int IMPORT_ROWS = 200_000;
+	private static final int BATCH = 2_000;
+	private static final int READERS = 4;
+
+	private static final String INSERT_SQL = "INSERT OR IGNORE INTO frozen_barcodes " +
+			"(code, apn, quantity, date_added, date_discarded) VALUES (?, ?, ?, ?, ?)";
+
+	private record Result(double importMs, int failedBatches, long lookups, long busyErrors, double p50Ms, double p99Ms) {
+	}
+
+	@Test
+	void importWithConcurrentLookups() throws Exception {
+		Path before = Files.createTempFile("bct-frozen-before-", ".db");
+		Path after = Files.createTempFile("bct-frozen-after-", ".db");
+		try {
+			Result single;
+			try (HikariDataSource pool = properties(before).initializeDataSourceBuilder().type(HikariDataSource.class).build()) {
+				single = run(pool, pool);
+			}
+			Result split;
+			FrozenDbConfig config = new FrozenDbConfig();
+			try (HikariDataSource writer = config.frozenWriterDataSource(properties(after), 60_000, 10_000, 16_384, 268_435_456);
+				 HikariDataSource reader = config.frozenReaderDataSource(properties(after), READERS, 10_000, 16_384, 268_435_456)) {
+				split = run(writer, reader);
+			}
+			assertEquals(0, split.failedBatches());
+			assertEquals(0, split.busyErrors());
+
+			Benchmarks.report("frozen-pools", "%d-row import in %d-row batches with %d concurrent readers: " +
+							"single default pool %s; writer/reader pools %s",
+					IMPORT_ROWS, BATCH, READERS, describe(single), describe(split));
+		} finally {
+			for (Path file : List.of(before, after)) {
+				for (String suffix : List.of("", "-wal", "-shm", "-journal")) {
+					Files.deleteIfExists(Path.of(file + suffix));
+				}
+			}
+		}
+	}
+
+	private static String describe(Result result) {
+		return String.format("import %.0f ms (%d of %d batches failed), %d lookups (%.0f/s), p50 %.2f ms, p99 %.2f ms, SQLITE_BUSY %d",
+				result.importMs(), result.failedBatches(), IMPORT_ROWS / BATCH, result.lookups(),
+				result.lookups() * 1000 / result.importMs(), result.p50Ms(), result.p99Ms(), result.busyErrors());
+	}
+
+	private static DataSourceProperties properties(Path file) {
+		DataSourceProperties properties = new DataSourceProperties();
+		properties.setUrl("jdbc:sqlite:" + file);
+		properties.setDriverClassName("org.sqlite.JDBC");
+		return properties;
+	}
+
+	private Result run(DataSource writer, DataSource reader) throws Exception {
+		try (Connection connection = writer.getConnection(); Statement statement = connection.createStatement()) {
+			statement.execute("CREATE TABLE frozen_barcodes (id INTEGER PRIMARY KEY, code VARCHAR(255) UNIQUE, apn VARCHAR(255), " +
+					"quantity INTEGER, date_added DATE, date_discarded DATE)");
+			statement.execute("CREATE INDEX idx_frozen_date_discarded ON frozen_barcodes (date_discarded)");
+		}
+		for (int from = 0; from < EXISTING_ROWS; from += BATCH) {
+			insertBatch(writer, "E", from);
+		}
+
+		AtomicBoolean importing = new AtomicBoolean(true);
+		AtomicLong busyErrors = new AtomicLong();
+		List<List<Long>> latencies = new ArrayList<>();
+		List<Thread> readers = new ArrayList<>();
+		for (int i = 0; i < READERS; i++) {
+			List<Long> nanos = new ArrayList<>();
+			latencies.add(nanos);
+			Thread thread = new Thread(() -> {
+				while (importing.get()) {
+					long start = System.nanoTime();
+					try (Connection connection = reader.getConnection();
+						 PreparedStatement select = connection.prepareStatement("SELECT * FROM frozen_barcodes WHERE code = ?")) {
+						select.setString(1, "E" + ThreadLocalRandom.current().nextInt(EXISTING_ROWS));
+						try (ResultSet rs = select.executeQuery()) {
+							rs.next();
+						}
+						nanos.add(System.nanoTime() - start);
+					} catch (SQLException e) {
+						if (isBusy(e)) {
+							busyErrors.incrementAndGet();
+						} else {
+							throw new IllegalStateException(e);
+						}
+					}
+				}
+			}, "frozen-reader-" + i);
+			readers.add(thread);
+			thread.start();
+		}
+
+		int failedBatches = 0;
+		long start = System.nanoTime();
+		try {
+			for (int from = 0; from < IMPORT_ROWS; from += BATCH) {
+				try {
+					insertBatch(writer, "I", from);
+				} catch (SQLException e) {
+					if (!isBusy(e)) {
+						throw e;
+					}
+					busyErrors.incrementAndGet();
+					failedBatches++;
+				}
+			}
+		} finally {
+			importing.set(false);
+		}
+		double importMs = (System.nanoTime() - start) / 1_000_000.0;
+		for (Thread thread : readers) {
+			thread.join();
+		}
+
+		List<Long> all = new ArrayList<>();
+		latencies.forEach(all::addAll);
+		Collections.sort(all);
+		return new Result(importMs, failedBatches, all.size(), busyErrors.get(),
+				percentileMs(all, 0.50), percentileMs(all, 0.99));
+	}
+
+	private static void insertBatch(DataSource dataSource, String prefix, int from) throws SQLException {
+		Date today = Date.valueOf(LocalDate.now());
+		try (Connection connection = dataSource.getConnection()) {
+			connection.setAutoCommit(false);
+			try (PreparedStatement insert = connection.prepareStatement(INSERT_SQL)) {
+				for (int i = from; i < from + BATCH; i++) {
+					insert.setString(1, prefix + i);
+					insert.setString(2, "APN" + (i % 2999));
+					insert.setInt(3, i % 100 + 1);
+					insert.setDate(4, today);
+					insert.setDate(5, today);
+					insert.addBatch();
+				}
+				insert.executeBatch();
+				connection.commit();
+			} catch (SQLException e) {
+				connection.rollback();
+				throw e;
+			} finally {
+				connection.setAutoCommit(true);
+			}
+		}
+	}
+
+	// SQLITE_BUSY (5) і SQLITE_BUSY_SNAPSHOT тощо - розширені коди з тим самим молодшим байтом
+	private static boolean isBusy(SQLException e) {
+		return (e.getErrorCode() & 0xff) == 5 || String.valueOf(e.getMessage()).contains("SQLITE_BUSY");
+	}
+
+	private static double percentileMs(List<Long> sorted, double percentile) {
+		if (sorted.isEmpty()) {
+			return 0;
+		}
+		return sorted.get((int) Math.min(sorted.size() - 1, Math.floor(sorted.size() * percentile))) / 1_000_000.0;
+	}
+}
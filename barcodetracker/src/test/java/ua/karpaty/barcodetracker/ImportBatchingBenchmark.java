@@ -0,0 +1,131 @@
+package ua.karpaty.barcodetracker;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.karpaty.barcodetracker.Entity.Barcode;
+import ua.karpaty.barcodetracker.Entity.BarcodeStatus;
+import ua.karpaty.barcodetracker.Entity.ImportBatch;
+import ua.karpaty.barcodetracker.Service.BarcodeService;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Імпорт нових штрих-кодів: рядків за секунду (штрих-код + два рядки історії) до і після
+ * переходу на послідовності та JDBC-батчі.
+ * <p>
+ * "До" - те, що робив Hibernate з IDENTITY-ключами: кожен рядок окремим INSERT ... RETURNING id,
+ * три запити на штрих-код в одній транзакції. Відтворено напряму через JDBC, тобто без накладних
+ * витрат Hibernate, - старий шлях був не швидшим за це. "Після" - те, що робить
+ * BarcodeImportService.importNewBarcodes після розбору файлу і перевірки дублікатів:
+ * BarcodeService.createImportBatch і BarcodeService.insertImportChunk на кожну пачку
+ * по 1000 рядків (окрема транзакція на пачку).
+ * <p>
+ * Локально різниця невелика: час іде на роботу самої бази, а звернення майже безкоштовні.
+ * Виграш батчів - у кількості звернень, тому вона теж у звіті; з -Dbench.rtt-ms=1 кожне
+ * звернення коштує, як у мережі.
+ */
+@Tag(Benchmarks.TAG)
+@SpringBootTest(properties = "bct.code-filter.enabled=false")
+@Import(Benchmarks.RoundTrips.class)
+class ImportBatchingBenchmark {
+
+	private static final int ROWS = 50_000;
+	private static final int WARMUP_ROWS = 5_000;
+	private static final int CHUNK_SIZE = 1_000;
+
+	@DynamicPropertySource
+	static void databases(DynamicPropertyRegistry registry) {
+		TestDatabases.register(registry);
+	}
+
+	@Autowired
+	private BarcodeService barcodeService;
+
+	@Autowired
+	@Qualifier("primaryDataSource")
+	private DataSource dataSource;
+
+	@Autowired
+	@Qualifier("primaryTransactionManager")
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void importRowsPerSecond() {
+		rowByRow(barcodes(WARMUP_ROWS, "IBW-R"));
+		chunked(barcodes(WARMUP_ROWS, "IBW-B"));
+
+		List<Barcode> before = barcodes(ROWS, "IB-R");
+		long tripsBefore = Benchmarks.RoundTrips.count.get();
+		double rowByRowMs = Benchmarks.timeMs(() -> rowByRow(before));
+		long rowByRowTrips = Benchmarks.RoundTrips.count.get() - tripsBefore;
+
+		List<Barcode> after = barcodes(ROWS, "IB-B");
+		tripsBefore = Benchmarks.RoundTrips.count.get();
+		double batchedMs = Benchmarks.timeMs(() -> chunked(after));
+		long batchedTrips = Benchmarks.RoundTrips.count.get() - tripsBefore;
+
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		assertEquals(ROWS, jdbcTemplate.queryForObject("SELECT count(*) FROM barcode WHERE code LIKE 'IB-B%'", Long.class));
+
+		long rows = ROWS * 3L;
+		Benchmarks.report("import-batching", "%d barcodes (%d rows), rtt %d ms: row-by-row %.0f ms (%.0f rows/s, %d round trips), " +
+						"batched %.0f ms (%.0f rows/s, %d round trips), x%.1f",
+				ROWS, rows, Benchmarks.RoundTrips.RTT_MS, rowByRowMs, rows * 1000 / rowByRowMs, rowByRowTrips,
+				batchedMs, rows * 1000 / batchedMs, batchedTrips, rowByRowMs / batchedMs);
+	}
+
+	// Вставка з BarcodeImportService.importNewBarcodes
+	private void chunked(List<Barcode> barcodes) {
+		ImportBatch batch = barcodeService.createImportBatch(barcodes.size());
+		for (int from = 0; from < barcodes.size(); from += CHUNK_SIZE) {
+			barcodeService.insertImportChunk(batch, barcodes.subList(from, Math.min(from + CHUNK_SIZE, barcodes.size())));
+		}
+	}
+
+	private void rowByRow(List<Barcode> barcodes) {
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			for (Barcode b : barcodes) {
+				Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+				Long id = jdbcTemplate.queryForObject(
+						"INSERT INTO barcode (id, code, apn, quantity, location, rack, bay, excess, status, creation_date, last_updated) " +
+								"VALUES (nextval('barcode_seq'), ?, ?, ?, ?, ?, ?, false, ?, ?, ?) RETURNING id",
+						Long.class, b.getCode(), b.getApn(), b.getQuantity(), b.getLocation(), "a", "1",
+						BarcodeStatus.STOCK.getCode(), now, now);
+				jdbcTemplate.queryForObject("INSERT INTO location_history (id, barcode_id, new_location, change_time) " +
+						"VALUES (nextval('location_history_seq'), ?, ?, ?) RETURNING id", Long.class, id, b.getLocation(), now);
+				jdbcTemplate.queryForObject("INSERT INTO status_history (id, barcode_id, new_status, change_time) " +
+						"VALUES (nextval('status_history_seq'), ?, ?, ?) RETURNING id", Long.class, id, BarcodeStatus.STOCK.getCode(), now);
+			}
+		});
+	}
+
+	private static List<Barcode> barcodes(int count, String prefix) {
+		List<Barcode> barcodes = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			Barcode barcode = new Barcode();
+			barcode.setCode(prefix + i);
+			barcode.setApn("APN" + (i % 500));
+			barcode.setQuantity(i % 100 + 1);
+			barcode.setLocation("A 1");
+			barcode.setStatus(BarcodeStatus.STOCK);
+			barcodes.add(barcode);
+		}
+		return barcodes;
+	}
+}
@@ -0,0 +1,184 @@
+package ua.karpaty.barcodetracker;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.karpaty.barcodetracker.Dto.BarcodeListView;
+import ua.karpaty.barcodetracker.Entity.Frozen.FrozenBarcode;
+import ua.karpaty.barcodetracker.Repository.BarcodeRepository;
+import ua.karpaty.barcodetracker.Repository.Frozen.FrozenBarcodeJdbcWriter;
+import ua.karpaty.barcodetracker.Repository.Frozen.FrozenBarcodeRepository;
+import ua.karpaty.barcodetracker.Service.FrozenDataService;
+import ua.karpaty.barcodetracker.Service.KeysetCursors;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Список кодів на складі: сторінка 1 і сторінка 1000 (по 50) через OFFSET, як було з
+ * Page/Pageable (findAllByStatusNot + count), і через keyset-курсор, як зараз у
+ * BarcodeService.findAllActive. Окремо - keyset без діапазону першого ключа
+ * (KeysetCursors.leadingKeyRange): лише умова прокрутки Spring Data. Те саме для архіву
+ * списаних у SQLite (FrozenDataService.findDiscarded).
+ */
+@Tag(Benchmarks.TAG)
+@SpringBootTest(properties = "bct.code-filter.enabled=false")
+class KeysetPaginationBenchmark {
+
+	private static final int ROWS = 300_000;
+	private static final int PAGE_SIZE = 50;
+	private static final int DEEP_PAGE = 1000;
+
+	private static final String OFFSET_SQL = "SELECT * FROM barcode WHERE status <> ? ORDER BY creation_date, id LIMIT ? OFFSET ?";
+	private static final String COUNT_SQL = "SELECT count(*) FROM barcode WHERE status <> ?";
+
+	@DynamicPropertySource
+	static void databases(DynamicPropertyRegistry registry) {
+		TestDatabases.register(registry);
+	}
+
+	@Autowired
+	private BarcodeRepository barcodeRepository;
+
+	@Autowired
+	private FrozenBarcodeRepository frozenBarcodeRepository;
+
+	@Autowired
+	private FrozenBarcodeJdbcWriter frozenBarcodeJdbcWriter;
+
+	@Autowired
+	private FrozenDataService frozenDataService;
+
+	@Autowired
+	@Qualifier("frozenTransactionManager")
+	private PlatformTransactionManager frozenTransactionManager;
+
+	@Autowired
+	@Qualifier("frozenDataSource")
+	private DataSource frozenDataSource;
+
+	private final JdbcTemplate jdbcTemplate = new JdbcTemplate(TestDatabases.primaryDataSource());
+
+	@Test
+	void deepPageCost() {
+		seed();
+
+		double offsetFirst = Benchmarks.medianMs(5, 21, () -> offsetPage(0));
+		double offsetDeep = Benchmarks.medianMs(5, 21, () -> offsetPage(DEEP_PAGE - 1));
+
+		KeysetScrollPosition first = ScrollPosition.keyset();
+		// Курсор сторінки 1000 - ключі останнього рядка сторінки 999, як їх закодував би KeysetCursors
+		Map<String, Object> last = jdbcTemplate.queryForMap(
+				"SELECT creation_date, id FROM barcode WHERE status <> 'out' ORDER BY creation_date, id LIMIT 1 OFFSET ?",
+				(DEEP_PAGE - 1) * PAGE_SIZE - 1);
+		KeysetScrollPosition deep = ScrollPosition.forward(Map.of(
+				"creationDate", ((Timestamp) last.get("creation_date")).toLocalDateTime(),
+				"id", last.get("id")));
+
+		double keysetFirst = Benchmarks.medianMs(5, 21, () -> keysetPage(first));
+		double keysetDeep = Benchmarks.medianMs(5, 21, () -> keysetPage(deep));
+		double unboundedDeep = Benchmarks.medianMs(5, 21, () -> unboundedKeysetPage(deep));
+		double offsetOnlyDeep = Benchmarks.medianMs(5, 21, () -> jdbcTemplate.queryForList(OFFSET_SQL, "out", PAGE_SIZE, (DEEP_PAGE - 1) * PAGE_SIZE));
+		double count = Benchmarks.medianMs(5, 21, () -> jdbcTemplate.queryForObject(COUNT_SQL, Long.class, "out"));
+
+		List<Long> offsetIds = jdbcTemplate.queryForList("SELECT id FROM barcode WHERE status <> 'out' ORDER BY creation_date, id LIMIT ? OFFSET ?",
+				Long.class, PAGE_SIZE, (DEEP_PAGE - 1) * PAGE_SIZE);
+		assertEquals(offsetIds, keysetPage(deep).stream().map(BarcodeListView::getId).toList());
+
+		assertEquals(offsetIds, unboundedKeysetPage(deep).stream().map(BarcodeListView::getId).toList());
+
+		Benchmarks.report("keyset-pagination", "%d rows, page size %d: offset+count page 1 %.2f ms, page %d %.2f ms " +
+						"(offset query alone %.2f ms, count %.2f ms); keyset page 1 %.2f ms, page %d %.2f ms; " +
+						"keyset without leading key range page %d %.2f ms",
+				ROWS, PAGE_SIZE, offsetFirst, DEEP_PAGE, offsetDeep, offsetOnlyDeep, count, keysetFirst, DEEP_PAGE, keysetDeep,
+				DEEP_PAGE, unboundedDeep);
+	}
+
+	@Test
+	void frozenDeepPageCost() {
+		seedFrozen();
+		TransactionTemplate frozenTransaction = new TransactionTemplate(frozenTransactionManager);
+		frozenTransaction.setReadOnly(true);
+
+		// Курсор сторінки 1000 - позиція останнього рядка сторінки 999
+		JdbcTemplate frozenJdbc = new JdbcTemplate(frozenDataSource);
+		KeysetScrollPosition deep = frozenJdbc.queryForObject(
+				"SELECT date_discarded, id FROM frozen_barcodes ORDER BY date_discarded DESC, id DESC LIMIT 1 OFFSET ?",
+				(rs, rowNum) -> ScrollPosition.forward(Map.of("dateDiscarded", rs.getDate(1).toLocalDate(), "id", rs.getLong(2))),
+				(DEEP_PAGE - 1) * PAGE_SIZE - 1);
+		String deepCursor = KeysetCursors.encode(deep);
+
+		double first = Benchmarks.medianMs(5, 21, () -> frozenDataService.findDiscarded(null, null, null, 0, PAGE_SIZE));
+		double deepPage = Benchmarks.medianMs(5, 21, () -> frozenDataService.findDiscarded(null, null, deepCursor, DEEP_PAGE - 1, PAGE_SIZE));
+		double unbounded = Benchmarks.medianMs(5, 21, () -> frozenTransaction.execute(status ->
+				frozenBarcodeRepository.findByDateDiscardedBetweenOrderByDateDiscardedDescIdDesc(
+						KeysetCursors.MIN_DATE_TIME.toLocalDate(), KeysetCursors.MAX_DATE_TIME.toLocalDate(), deep, Limit.of(PAGE_SIZE))));
+
+		List<Long> expected = frozenJdbc.queryForList("SELECT id FROM frozen_barcodes ORDER BY date_discarded DESC, id DESC LIMIT ? OFFSET ?",
+				Long.class, PAGE_SIZE, (DEEP_PAGE - 1) * PAGE_SIZE);
+		assertEquals(expected, frozenDataService.findDiscarded(null, null, deepCursor, DEEP_PAGE - 1, PAGE_SIZE)
+				.getContent().stream().map(FrozenBarcode::getId).toList());
+
+		Benchmarks.report("keyset-pagination-frozen", "%d rows, page size %d: keyset page 1 %.2f ms, page %d %.2f ms; " +
+						"keyset without leading key range page %d %.2f ms",
+				ROWS, PAGE_SIZE, first, DEEP_PAGE, deepPage, DEEP_PAGE, unbounded);
+	}
+
+	private void offsetPage(int page) {
+		jdbcTemplate.queryForList(OFFSET_SQL, "out", PAGE_SIZE, page * PAGE_SIZE);
+		jdbcTemplate.queryForObject(COUNT_SQL, Long.class, "out");
+	}
+
+	private Window<BarcodeListView> keysetPage(KeysetScrollPosition position) {
+		KeysetCursors.KeyRange<LocalDateTime> range = KeysetCursors.leadingKeyRange(position, "creationDate", true);
+		return barcodeRepository.findByActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc(
+				range.from(), range.to(), position, Limit.of(PAGE_SIZE));
+	}
+
+	private Window<BarcodeListView> unboundedKeysetPage(KeysetScrollPosition position) {
+		return barcodeRepository.findByActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc(
+				KeysetCursors.MIN_DATE_TIME, KeysetCursors.MAX_DATE_TIME, position, Limit.of(PAGE_SIZE));
+	}
+
+	private void seed() {
+		Long existing = jdbcTemplate.queryForObject("SELECT count(*) FROM barcode WHERE code LIKE 'KS%'", Long.class);
+		if (existing != null && existing >= ROWS) {
+			return;
+		}
+		TestBarcodes.seed(jdbcTemplate, "KS", ROWS, 0);
+	}
+
+	private void seedFrozen() {
+		if (frozenBarcodeRepository.count() >= ROWS) {
+			return;
+		}
+		LocalDate today = LocalDate.now();
+		for (int from = 0; from < ROWS; from += 5_000) {
+			List<FrozenBarcode> batch = new ArrayList<>(5_000);
+			for (int i = from; i < from + 5_000; i++) {
+				batch.add(new FrozenBarcode("KSF" + i, "APN" + (i % 2999), i % 100 + 1,
+						today.minusDays(800 + i % 2000), today.minusDays(i % 2000)));
+			}
+			new TransactionTemplate(frozenTransactionManager).executeWithoutResult(
+					status -> frozenBarcodeJdbcWriter.insertIgnoringDuplicates(batch));
+		}
+	}
+}
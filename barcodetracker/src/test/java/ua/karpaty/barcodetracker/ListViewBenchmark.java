@@ -0,0 +1,112 @@
+package ua.karpaty.barcodetracker;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.karpaty.barcodetracker.Dto.BarcodeListView;
+import ua.karpaty.barcodetracker.Entity.Barcode;
+import ua.karpaty.barcodetracker.Repository.BarcodeRepository;
+import ua.karpaty.barcodetracker.Service.KeysetCursors;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Одна сторінка списку /barcodes (50 рядків): процесорний час і виділена пам'ять на сторінку.
+ * <p>
+ * "До" - ті самі умова, сортування і keyset-курсор, але повні сутності Barcode у
+ * звичайній (read-write) транзакції, як до BarcodeListView. Окремо - сутності в readOnly
+ * транзакції, щоб відділити знімки dirty-checking від решти. "Після" -
+ * BarcodeRepository.findByActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc, як у
+ * BarcodeService.findAllActive.
+ */
+@Tag(Benchmarks.TAG)
+@SpringBootTest(properties = "bct.code-filter.enabled=false")
+class ListViewBenchmark {
+
+	private static final int ROWS = 100_000;
+	private static final int PAGE_SIZE = 50;
+	private static final int DEEP_PAGE = 500;
+
+	@DynamicPropertySource
+	static void databases(DynamicPropertyRegistry registry) {
+		TestDatabases.register(registry);
+	}
+
+	@Autowired
+	private BarcodeRepository barcodeRepository;
+
+	@Autowired
+	@Qualifier("primaryTransactionManager")
+	private PlatformTransactionManager transactionManager;
+
+	private final JdbcTemplate jdbcTemplate = new JdbcTemplate(TestDatabases.primaryDataSource());
+
+	@Test
+	void heapAndCpuPerPage() {
+		TestBarcodes.seed(jdbcTemplate, "LV", ROWS, 0);
+		TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+		TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+		readOnly.setReadOnly(true);
+
+		// Курсор сторінки DEEP_PAGE - ключі останнього рядка попередньої сторінки
+		Map<String, Object> last = jdbcTemplate.queryForMap(
+				"SELECT creation_date, id FROM barcode WHERE status <> 'out' ORDER BY creation_date, id LIMIT 1 OFFSET ?",
+				(DEEP_PAGE - 1) * PAGE_SIZE - 1);
+		KeysetScrollPosition deep = ScrollPosition.forward(Map.of(
+				"creationDate", ((Timestamp) last.get("creation_date")).toLocalDateTime(),
+				"id", last.get("id")));
+
+		StringBuilder result = new StringBuilder();
+		for (KeysetScrollPosition position : new KeysetScrollPosition[]{ScrollPosition.keyset(), deep}) {
+			assertEquals(
+					readWrite.execute(status -> entityPage(position).stream().map(Barcode::getId).toList()),
+					projectionPage(position).stream().map(BarcodeListView::getId).toList());
+
+			Benchmarks.PerCall entity = Benchmarks.perCall(200, 501, () -> readWrite.execute(status -> entityPage(position)));
+			Benchmarks.PerCall entityReadOnly = Benchmarks.perCall(200, 501, () -> readOnly.execute(status -> entityPage(position)));
+			Benchmarks.PerCall projection = Benchmarks.perCall(200, 501, () -> projectionPage(position));
+			result.append(String.format("page %d: entity read-write %s, entity readOnly %s, projection %s " +
+							"(CPU x%.1f, allocated x%.1f); ",
+					position.isInitial() ? 1 : DEEP_PAGE, entity, entityReadOnly, projection,
+					entity.cpuMs() / projection.cpuMs(), entity.allocatedKb() / projection.allocatedKb()));
+		}
+
+		Benchmarks.report("list-view", "%d rows, page size %d, JVM side only: %s", ROWS, PAGE_SIZE, result);
+	}
+
+	private Window<BarcodeListView> projectionPage(KeysetScrollPosition position) {
+		KeysetCursors.KeyRange<LocalDateTime> range = KeysetCursors.leadingKeyRange(position, "creationDate", true);
+		return barcodeRepository.findByActiveTrueAndCreationDateBetweenOrderByCreationDateAscIdAsc(
+				range.from(), range.to(), position, Limit.of(PAGE_SIZE));
+	}
+
+	// Той самий запит, що й projectionPage, але з повними сутностями
+	private Window<Barcode> entityPage(KeysetScrollPosition position) {
+		KeysetCursors.KeyRange<LocalDateTime> range = KeysetCursors.leadingKeyRange(position, "creationDate", true);
+		Specification<Barcode> spec = (root, query, cb) -> cb.and(
+				cb.isTrue(root.get("active")),
+				cb.between(root.get("creationDate"), range.from(), range.to()));
+		return barcodeRepository.findBy(spec, query -> query
+				.sortBy(Sort.by("creationDate", "id"))
+				.limit(PAGE_SIZE)
+				.scroll(position));
+	}
+
+}
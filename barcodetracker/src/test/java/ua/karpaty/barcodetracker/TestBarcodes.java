@@ -0,0 +1,57 @@
+package ua.karpaty.barcodetracker;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Штрих-коди для тестів і бенчмарків одним INSERT ... SELECT з generate_series, з однаковим
+ * розподілом для всіх: ~30% списані, кожен 50-й на перевірці, решта на складі; шість стелажів
+ * (серед них wires і prestock), кожен сьомий код без прольоту, кожен 25-й excess; дати створення
+ * і зміни - за останні два роки.
+ */
+final class TestBarcodes {
+
+	// Прості числа: APN, проліт і статус рядка не визначають один одного
+	static final int APNS = 2_999;
+
+	private static final String INSERT_SQL = """
+			INSERT INTO barcode (id, code, apn, quantity, location, rack, bay, excess, status,
+			                     creation_date, last_updated, import_batch_id)
+			SELECT nextval('barcode_seq'), ? || lpad(g::text, 10, '0'), 'APN' || (g % ?), g % 100 + 1,
+			       s.location, s.rack, s.bay, s.excess,
+			       CASE WHEN g % 10 < 3 THEN 'out' WHEN g % 50 = 0 THEN 'check' ELSE 'stock' END,
+			       now() - (g % 730) * interval '1 day' - (g % 1440) * interval '1 minute',
+			       now() - (g % 700) * interval '1 day',
+			       ?::bigint + g % greatest(?, 1)
+			FROM generate_series(0, ? - 1) g
+			CROSS JOIN LATERAL (SELECT (ARRAY['a', 'b', 'c', 'sk', 'wires', 'prestock'])[g % 6 + 1] AS rack,
+			                           CASE WHEN g % 7 = 0 THEN NULL ELSE (g % 19 + 1)::text END AS bay,
+			                           g % 25 = 0 AS excess) p
+			CROSS JOIN LATERAL (SELECT p.rack, p.bay, p.excess,
+			                           concat_ws(' ', CASE WHEN p.excess THEN 'EXCESS' END, upper(p.rack), p.bay) AS location) s
+			""";
+
+	private TestBarcodes() {
+	}
+
+	/**
+	 * Код рядка з номером number (з нуля), як його записує seed.
+	 */
+	static String code(String prefix, long number) {
+		return prefix + String.format("%010d", number);
+	}
+
+	/**
+	 * Додає count кодів з префіксом prefix. importBatches > 0 - стільки ж нових записів
+	 * import_batch, коди розподіляються між ними по колу; 0 - коди без імпорту.
+	 */
+	static void seed(JdbcTemplate jdbcTemplate, String prefix, int count, int importBatches) {
+		Long firstBatchId = null;
+		if (importBatches > 0) {
+			firstBatchId = jdbcTemplate.queryForObject("WITH created AS (INSERT INTO import_batch (name, import_date) " +
+					"SELECT 'Import - ' || ? || g, now() - g * interval '1 day' FROM generate_series(1, ?) g RETURNING id) " +
+					"SELECT min(id) FROM created", Long.class, prefix, importBatches);
+		}
+		jdbcTemplate.update(INSERT_SQL, prefix, APNS, firstBatchId, importBatches, count);
+		jdbcTemplate.execute("ANALYZE barcode");
+	}
+}
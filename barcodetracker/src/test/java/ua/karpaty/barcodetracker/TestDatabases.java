@@ -0,0 +1,60 @@
+package ua.karpaty.barcodetracker;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Бази для тестів: вбудований PostgreSQL (один процес на весь прогін) замість основної бази
+ * і тимчасовий файл SQLite замість frozen-бази. Docker і встановлений сервер не потрібні.
+ */
+final class TestDatabases {
+
+	private static EmbeddedPostgres postgres;
+	private static Path frozenFile;
+
+	private TestDatabases() {
+	}
+
+	static synchronized EmbeddedPostgres postgres() {
+		if (postgres == null) {
+			try {
+				postgres = EmbeddedPostgres.start();
+				frozenFile = Files.createTempFile("bct-frozen-", ".db");
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				try {
+					postgres.close();
+					Files.deleteIfExists(frozenFile);
+				} catch (IOException ignored) {
+				}
+			}));
+		}
+		return postgres;
+	}
+
+	static DataSource primaryDataSource() {
+		return postgres().getPostgresDatabase();
+	}
+
+	static String primaryUrl() {
+		return "jdbc:postgresql://localhost:" + postgres().getPort() + "/postgres?reWriteBatchedInserts=true";
+	}
+
+	static void register(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.url", TestDatabases::primaryUrl);
+		registry.add("spring.datasource.username", () -> "postgres");
+		registry.add("spring.datasource.password", () -> "postgres");
+		registry.add("spring.datasource.frozen.url", () -> {
+			postgres();
+			return "jdbc:sqlite:" + frozenFile;
+		});
+	}
+}
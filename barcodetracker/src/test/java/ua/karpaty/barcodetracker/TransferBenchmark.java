@@ -0,0 +1,175 @@
+package ua.karpaty.barcodetracker;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.karpaty.barcodetracker.Dto.ImportJobResultDto;
+import ua.karpaty.barcodetracker.Entity.Barcode;
+import ua.karpaty.barcodetracker.Entity.LocationHistory;
+import ua.karpaty.barcodetracker.Repository.BarcodeRepository;
+import ua.karpaty.barcodetracker.Repository.LocationHistoryRepository;
+import ua.karpaty.barcodetracker.Service.BarcodeTransferService;
+import ua.karpaty.barcodetracker.Service.ExcelService;
+import ua.karpaty.barcodetracker.Service.ImportJobProgress;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Переміщення 100 тис. кодів з файлу на одну локацію (/transfer).
+ * <p>
+ * "До" - колишній цикл BarcodeTransferService: завантажити сутності, змінити location,
+ * saveAll для кодів і історії. Один IN на 100 тис. кодів PostgreSQL не прийме (понад 32767
+ * параметрів), тож коди читаються шматками по 10 тис.; лічильники дашборду і кеш APN
+ * пропущено - обидва спрощення на користь старого шляху. "Після" - справжній
+ * BarcodeTransferService.transferToLocation (staging-таблиця і set-based SQL).
+ */
+@Tag(Benchmarks.TAG)
+@SpringBootTest(properties = "bct.code-filter.enabled=false")
+class TransferBenchmark {
+
+	private static final int CODES = 100_000;
+	private static final int LOAD_CHUNK = 10_000;
+	private static final String TARGET = "SK 5";
+
+	@DynamicPropertySource
+	static void databases(DynamicPropertyRegistry registry) {
+		TestDatabases.register(registry);
+	}
+
+	@Autowired
+	private BarcodeTransferService barcodeTransferService;
+
+	@Autowired
+	private ExcelService excelService;
+
+	@Autowired
+	private BarcodeRepository barcodeRepository;
+
+	@Autowired
+	private LocationHistoryRepository locationHistoryRepository;
+
+	@Autowired
+	@Qualifier("primaryTransactionManager")
+	private PlatformTransactionManager transactionManager;
+
+	private final JdbcTemplate jdbcTemplate = new JdbcTemplate(TestDatabases.primaryDataSource());
+
+	@Test
+	void transferHundredThousandCodes() {
+		TestBarcodes.seed(jdbcTemplate, "TRW-", 2_000, 0);
+		TestBarcodes.seed(jdbcTemplate, "TRE-", CODES, 0);
+		TestBarcodes.seed(jdbcTemplate, "TRS-", CODES, 0);
+		long expected = movable("TRS-");
+		assertEquals(expected, movable("TRE-"));
+
+		// Прогрів обох шляхів
+		entityTransfer(file("TRW-", 0, 1_000));
+		setBasedTransfer(file("TRW-", 1_000, 1_000));
+
+		MockMultipartFile entityFile = file("TRE-", 0, CODES);
+		MockMultipartFile setBasedFile = file("TRS-", 0, CODES);
+		long[] moved = new long[2];
+		double entityMs = Benchmarks.timeMs(() -> moved[0] = entityTransfer(entityFile));
+		double setBasedMs = Benchmarks.timeMs(() -> moved[1] = setBasedTransfer(setBasedFile));
+
+		double parseMs = Benchmarks.timeMs(() -> {
+			try {
+				excelService.extractCodes(setBasedFile);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+
+		assertEquals(expected, moved[0]);
+		assertEquals(expected, moved[1]);
+		assertEquals(0, movable("TRS-"));
+
+		Benchmarks.report("transfer", "%d codes (%d moved): entity load/mutate/saveAll %.0f ms, set-based staging SQL %.0f ms, x%.1f " +
+						"(both include %.0f ms of XLSX parsing; without it x%.1f)",
+				CODES, moved[1], entityMs, setBasedMs, entityMs / setBasedMs, parseMs, (entityMs - parseMs) / (setBasedMs - parseMs));
+	}
+
+	private long setBasedTransfer(MockMultipartFile file) {
+		try {
+			ImportJobResultDto result = barcodeTransferService.transferToLocation(file, TARGET, new ImportJobProgress());
+			return result.getAddedRows();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// Колишній BarcodeTransferService.transferToLocation
+	private long entityTransfer(MockMultipartFile file) {
+		List<String> codes;
+		try {
+			codes = excelService.extractCodes(file);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		Long moved = new TransactionTemplate(transactionManager).execute(status -> {
+			List<Barcode> barcodes = new ArrayList<>(codes.size());
+			for (int from = 0; from < codes.size(); from += LOAD_CHUNK) {
+				List<String> chunk = codes.subList(from, Math.min(from + LOAD_CHUNK, codes.size()));
+				barcodes.addAll(barcodeRepository.findAll((root, query, cb) -> root.get("code").in(chunk)));
+			}
+			List<Barcode> toUpdate = new ArrayList<>();
+			List<LocationHistory> history = new ArrayList<>();
+			for (Barcode barcode : barcodes) {
+				if ("wires".equalsIgnoreCase(barcode.getLocation()) || barcode.getStatus().isOut()) {
+					continue;
+				}
+				String oldLocation = barcode.getLocation();
+				if (!oldLocation.equals(TARGET)) {
+					barcode.setLocation(TARGET);
+					barcode.setLastUpdated(LocalDateTime.now());
+					toUpdate.add(barcode);
+					history.add(new LocationHistory(barcode, oldLocation, TARGET, LocalDateTime.now()));
+				}
+			}
+			barcodeRepository.saveAll(toUpdate);
+			locationHistoryRepository.saveAll(history);
+			return (long) toUpdate.size();
+		});
+		return moved != null ? moved : 0;
+	}
+
+	// Коди, які переміщення має перенести: не 'out', не 'wires' і ще не на цільовій локації
+	private long movable(String prefix) {
+		return jdbcTemplate.queryForObject("SELECT count(*) FROM barcode WHERE code LIKE ? || '%' AND status <> 'out' " +
+				"AND lower(location) <> 'wires' AND location <> ?", Long.class, prefix, TARGET);
+	}
+
+	private static MockMultipartFile file(String prefix, int from, int count) {
+		try (SXSSFWorkbook workbook = new SXSSFWorkbook(200); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+			Sheet sheet = workbook.createSheet("Transfer");
+			sheet.createRow(0).createCell(0).setCellValue("Serial Number");
+			for (int i = 0; i < count; i++) {
+				Row row = sheet.createRow(i + 1);
+				row.createCell(0).setCellValue(TestBarcodes.code(prefix, from + i));
+			}
+			workbook.write(out);
+			workbook.dispose();
+			return new MockMultipartFile("file", "transfer.xlsx", null, out.toByteArray());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}